@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Creates synthetic input for the benchmarks: descriptions, setting models and plugin jars. All fixtures are
+ * deterministic, so that results of different runs are comparable.
+ */
+final class BenchmarkFixtures {
+    
+    private static final String[] WORDS = {
+        "the", "setting", "defines", "which", "extractor", "is", "used", "for", "parsing", "source", "files",
+        "of", "a", "product", "line", "if", "this", "not", "specified", "default", "value", "analysis", "will",
+        "be", "configuration", "variability", "model", "build", "code", "directory", "relative", "to",
+        "net.ssehub.kernel_haven.code_model.JsonCodeModelCache",
+    };
+    
+    private static final Type[] SIMPLE_TYPES = {
+        Type.STRING, Type.INTEGER, Type.BOOLEAN, Type.REGEX, Type.PATH, Type.FILE, Type.DIRECTORY,
+    };
+    
+    /**
+     * Don't allow any instances.
+     */
+    private BenchmarkFixtures() {
+    }
+    
+    /**
+     * Creates a description text.
+     * 
+     * @param random The random source to pick words with.
+     * @param numWords The number of words per paragraph.
+     * @param numParagraphs The number of paragraphs, separated by line breaks.
+     * 
+     * @return The description.
+     */
+    static String createDescription(Random random, int numWords, int numParagraphs) {
+        StringBuilder result = new StringBuilder();
+        for (int p = 0; p < numParagraphs; p++) {
+            if (p > 0) {
+                result.append('\n');
+            }
+            for (int w = 0; w < numWords; w++) {
+                if (w > 0) {
+                    result.append(' ');
+                }
+                result.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            result.append('.');
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Creates a generator with synthetic sections. Every fourth setting is an enum setting, every fifth a list
+     * setting.
+     * 
+     * @param numSections The number of sections.
+     * @param settingsPerSection The number of settings per section.
+     * @param numEnumValues The number of possible values of each enum setting.
+     * 
+     * @return A generator that contains the synthetic sections.
+     */
+    static SettingDocumentationGenerator createGenerator(int numSections, int settingsPerSection,
+            int numEnumValues) {
+        
+        Random random = new Random(42);
+        List<String> enumValues = new ArrayList<>(numEnumValues);
+        for (int i = 0; i < numEnumValues; i++) {
+            enumValues.add("VALUE_" + i);
+        }
+        
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        for (int s = 0; s < numSections; s++) {
+            List<SettingInfo> section = new ArrayList<>(settingsPerSection);
+            for (int i = 0; i < settingsPerSection; i++) {
+                String key = "plugin_" + s + ".setting_" + i;
+                String description = createDescription(random, 10 + random.nextInt(60), 1 + random.nextInt(3));
+                
+                SettingInfo setting;
+                if (i % 4 == 0) {
+                    setting = new SettingInfo(key, Type.ENUM, null, "VALUE_0", false, description, enumValues);
+                } else if (i % 5 == 0) {
+                    setting = new SettingInfo(key, Type.LIST, Type.PATH, null, false, description, null);
+                } else {
+                    Type type = SIMPLE_TYPES[random.nextInt(SIMPLE_TYPES.length)];
+                    String defaultValue = random.nextBoolean() ? "C:\\some\\default" : null;
+                    setting = new SettingInfo(key, type, null, defaultValue, random.nextBoolean(), description, null);
+                }
+                section.add(setting);
+            }
+            generator.addSection("Plugin " + s, section);
+        }
+        return generator;
+    }
+    
+    /**
+     * Creates a plugin jar. Each settings class declares the given number of <code>static final Setting</code>
+     * constants (every fourth one is an enum setting); filler classes have constants of other types only.
+     * 
+     * @param directory The directory to create the jar in. Source and class files are created in sub-directories.
+     * @param numClasses The number of classes that declare settings.
+     * @param settingsPerClass The number of settings per class.
+     * @param numFillerClasses The number of classes that don't declare any settings.
+     * 
+     * @return The created jar file.
+     * 
+     * @throws IOException If creating the jar fails.
+     */
+    static File createPluginJar(File directory, int numClasses, int settingsPerClass, int numFillerClasses)
+            throws IOException {
+        
+        Path sources = directory.toPath().resolve("src/net/ssehub/bench_plugin");
+        Path classes = directory.toPath().resolve("classes");
+        Files.createDirectories(sources);
+        Files.createDirectories(classes);
+        
+        Random random = new Random(42);
+        List<String> sourceFiles = new ArrayList<>();
+        for (int c = 0; c < numClasses; c++) {
+            sourceFiles.add(writeSettingsClass(sources, "Settings" + c, settingsPerClass, random));
+        }
+        for (int c = 0; c < numFillerClasses; c++) {
+            String name = "Filler" + c;
+            String source = "package net.ssehub.bench_plugin;\n"
+                    + "public class " + name + " {\n"
+                    + "    public static final String NAME = \"" + name + "\";\n"
+                    + "    public static final Object LOCK = new Object();\n"
+                    + "}\n";
+            sourceFiles.add(write(sources.resolve(name + ".java"), source));
+        }
+        
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Benchmarks have to run on a JDK");
+        }
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"), "-d", classes.toString(), "-nowarn"));
+        args.addAll(sourceFiles);
+        if (compiler.run(null, null, null, args.toArray(new String[args.size()])) != 0) {
+            throw new IOException("Compiling benchmark fixture failed");
+        }
+        
+        File jar = new File(directory, "bench_plugin.jar");
+        writeJar(classes, jar);
+        return jar;
+    }
+    
+    /**
+     * Writes the source file of a class with setting constants.
+     * 
+     * @param sources The source directory of the package.
+     * @param name The simple name of the class.
+     * @param numSettings The number of setting constants.
+     * @param random The random source for descriptions.
+     * 
+     * @return The path of the written source file.
+     * 
+     * @throws IOException If writing the file fails.
+     */
+    private static String writeSettingsClass(Path sources, String name, int numSettings, Random random)
+            throws IOException {
+        
+        StringBuilder source = new StringBuilder()
+                .append("package net.ssehub.bench_plugin;\n")
+                .append("import net.ssehub.kernel_haven.config.EnumSetting;\n")
+                .append("import net.ssehub.kernel_haven.config.Setting;\n")
+                .append("public class ").append(name).append(" {\n")
+                .append("    public static enum Mode { FIRST, SECOND, THIRD }\n");
+        
+        for (int i = 0; i < numSettings; i++) {
+            String key = "bench." + name.toLowerCase() + ".setting_" + i;
+            String description = createDescription(random, 20 + random.nextInt(40), 1);
+            if (i % 4 == 0) {
+                source.append("    public static final EnumSetting<Mode> S").append(i)
+                        .append(" = new EnumSetting<>(\"").append(key).append("\", Mode.class, false, Mode.FIRST, \"")
+                        .append(description).append("\");\n");
+            } else {
+                source.append("    public static final Setting<String> S").append(i)
+                        .append(" = new Setting<>(\"").append(key)
+                        .append("\", Setting.Type.STRING, false, \"default\", \"")
+                        .append(description).append("\");\n");
+            }
+        }
+        source.append("}\n");
+        
+        return write(sources.resolve(name + ".java"), source.toString());
+    }
+    
+    /**
+     * Writes a text file.
+     * 
+     * @param file The file to write.
+     * @param content The content of the file.
+     * 
+     * @return The path of the written file.
+     * 
+     * @throws IOException If writing the file fails.
+     */
+    private static String write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+    
+    /**
+     * Packs all files of a directory into a jar.
+     * 
+     * @param classes The directory to pack.
+     * @param jar The jar file to create.
+     * 
+     * @throws IOException If writing the jar fails.
+     */
+    private static void writeJar(Path classes, File jar) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(classes)) {
+            files = walk.filter((path) -> Files.isRegularFile(path)).sorted().collect(Collectors.toList());
+        }
+        
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (Path file : files) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, (OutputStream) out);
+                out.closeEntry();
+            }
+        }
+    }
+    
+    /**
+     * Deletes a directory recursively.
+     * 
+     * @param directory The directory to delete.
+     * 
+     * @throws IOException If deleting fails.
+     */
+    static void delete(File directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory.toPath())) {
+            files = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+}
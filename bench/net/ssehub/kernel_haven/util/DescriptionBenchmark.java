@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for wrapping setting descriptions into lines of at most 78 characters. Compares the list-based
+ * {@link SettingDocumentationGenerator#splitDescription(String)} with the direct
+ * {@link SettingDocumentationGenerator#writeDescription(Appendable, String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DescriptionBenchmark {
+    
+    // checkstyle: stop visibility modifier check
+    
+    /**
+     * The number of words per paragraph.
+     */
+    @Param({"10", "100"})
+    public int numWords;
+    
+    /**
+     * The number of paragraphs (separated by line breaks).
+     */
+    @Param({"1", "5"})
+    public int numParagraphs;
+    
+    // checkstyle: resume visibility modifier check
+    
+    private SettingDocumentationGenerator generator;
+    
+    private String description;
+    
+    private StringBuilder buffer;
+    
+    /**
+     * Creates the description to wrap.
+     */
+    @Setup
+    public void setup() {
+        generator = new SettingDocumentationGenerator();
+        description = BenchmarkFixtures.createDescription(new Random(42), numWords, numParagraphs);
+        buffer = new StringBuilder(2 * description.length());
+    }
+    
+    /**
+     * Wraps the description into a list of lines.
+     * 
+     * @return The lines.
+     */
+    @Benchmark
+    public List<String> splitDescription() {
+        return generator.splitDescription(description);
+    }
+    
+    /**
+     * Writes the wrapped description as comment lines into a re-used buffer.
+     * 
+     * @return The buffer containing the comment lines.
+     * 
+     * @throws IOException Never thrown.
+     */
+    @Benchmark
+    public StringBuilder writeDescription() throws IOException {
+        buffer.setLength(0);
+        generator.writeDescription(buffer, description);
+        return buffer;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for rendering the documentation text from an already scanned model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    
+    // checkstyle: stop visibility modifier check
+    
+    /**
+     * The number of sections.
+     */
+    @Param({"20", "200"})
+    public int numSections;
+    
+    /**
+     * The number of settings per section.
+     */
+    @Param({"10", "50"})
+    public int settingsPerSection;
+    
+    /**
+     * The number of possible values of each enum setting.
+     */
+    @Param({"3", "30"})
+    public int numEnumValues;
+    
+    // checkstyle: resume visibility modifier check
+    
+    private SettingDocumentationGenerator generator;
+    
+    /**
+     * Creates the model to render.
+     */
+    @Setup
+    public void setup() {
+        generator = BenchmarkFixtures.createGenerator(numSections, settingsPerSection, numEnumValues);
+    }
+    
+    /**
+     * Renders the whole text into a {@link String}.
+     * 
+     * @return The text.
+     */
+    @Benchmark
+    public String generateSettingText() {
+        return generator.generateSettingText();
+    }
+    
+    /**
+     * Streams the text into a {@link Writer} that discards everything, to measure rendering without building the
+     * whole text in memory.
+     * 
+     * @param blackhole The blackhole that consumes the written text.
+     * 
+     * @throws IOException Never thrown.
+     */
+    @Benchmark
+    public void generateSettingTextStreaming(Blackhole blackhole) throws IOException {
+        generator.generateSettingText(new Writer() {
+            
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                blackhole.consume(cbuf);
+            }
+            
+            @Override
+            public void write(String str, int off, int len) {
+                blackhole.consume(str);
+            }
+            
+            @Override
+            public Writer append(CharSequence csq) {
+                blackhole.consume(csq);
+                return this;
+            }
+            
+            @Override
+            public Writer append(CharSequence csq, int start, int end) {
+                blackhole.consume(csq);
+                return this;
+            }
+            
+            @Override
+            public Writer append(char ch) {
+                blackhole.consume(ch);
+                return this;
+            }
+            
+            @Override
+            public void flush() {
+            }
+            
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for scanning a synthetic plugin jar. Each invocation uses a fresh isolated class loader (see
+ * {@link SettingDocumentationGenerator#setIsolatedClassLoaders(ClassLoader)}), so that every scan really loads and
+ * initializes the classes again. Single scans via
+ * {@link SettingDocumentationGenerator#scanLocation(File, String)} don't re-use classes loaded by earlier scans; only
+ * scans within one {@link SettingDocumentationGenerator#findSettingsInAll(java.util.List, java.util.List, int)} run
+ * do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+    
+    // checkstyle: stop visibility modifier check
+    
+    /**
+     * The number of classes that declare settings.
+     */
+    @Param({"10", "100"})
+    public int numClasses;
+    
+    /**
+     * The number of settings per class.
+     */
+    @Param({"5", "20"})
+    public int settingsPerClass;
+    
+    /**
+     * The number of classes that don't declare any settings.
+     */
+    @Param({"0", "1000"})
+    public int numFillerClasses;
+    
+    // checkstyle: resume visibility modifier check
+    
+    private File directory;
+    
+    private File jar;
+    
+    private SettingDocumentationGenerator generator;
+    
+    /**
+     * Creates the plugin jar.
+     * 
+     * @throws IOException If creating the jar fails.
+     */
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("setting_doc_bench").toFile();
+        jar = BenchmarkFixtures.createPluginJar(directory, numClasses, settingsPerClass, numFillerClasses);
+        
+        generator = new SettingDocumentationGenerator();
+        generator.setIsolatedClassLoaders(SettingDocumentationGenerator.class.getClassLoader());
+    }
+    
+    /**
+     * Deletes the plugin jar.
+     * 
+     * @throws IOException If deleting fails.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.delete(directory);
+    }
+    
+    /**
+     * Scans the plugin jar.
+     * 
+     * @return The settings found.
+     * 
+     * @throws IOException If reading the jar fails.
+     */
+    @Benchmark
+    public List<SettingInfo> scanJar() throws IOException {
+        return generator.scanLocation(jar, jar.getName());
+    }
+
+}
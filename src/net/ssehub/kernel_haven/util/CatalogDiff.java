@@ -0,0 +1,462 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.util.SettingIndex.Entry;
+
+/**
+ * The differences between two versions of the settings, e.g. of two KernelHaven releases. Both versions are read from
+ * {@link SettingIndex} files, so neither version has to be scanned again. Settings are matched by their key via the
+ * hash tables of the indices, so comparing takes linear time in the number of settings.
+ * <p>
+ * A change is <i>breaking</i> if existing configuration files may become invalid: a setting was removed, its type
+ * changed, enum values were removed, or a setting now requires a value (mandatory without a default value) that it
+ * didn't require before. Changed default values, descriptions and sections are reported, but are not breaking.
+ */
+public final class CatalogDiff {
+    
+    /**
+     * The kind of a {@link Change}.
+     */
+    public enum Kind {
+        
+        /**
+         * The setting only exists in the new version.
+         */
+        ADDED,
+        
+        /**
+         * The setting only exists in the old version.
+         */
+        REMOVED,
+        
+        /**
+         * The setting exists in both versions, but differs.
+         */
+        CHANGED;
+        
+    }
+    
+    /**
+     * The change of a single setting.
+     */
+    public static final class Change {
+        
+        private Kind kind;
+        
+        private Entry oldEntry;
+        
+        private Entry newEntry;
+        
+        private List<String> details;
+        
+        private boolean breaking;
+        
+        /**
+         * Creates a {@link Change}.
+         * 
+         * @param kind The kind of the change.
+         * @param oldEntry The old version of the setting; <code>null</code> if it was added.
+         * @param newEntry The new version of the setting; <code>null</code> if it was removed.
+         * @param details Human readable descriptions of the differences.
+         * @param breaking Whether the change is breaking.
+         */
+        private Change(Kind kind, Entry oldEntry, Entry newEntry, List<String> details, boolean breaking) {
+            this.kind = kind;
+            this.oldEntry = oldEntry;
+            this.newEntry = newEntry;
+            this.details = Collections.unmodifiableList(details);
+            this.breaking = breaking;
+        }
+        
+        /**
+         * Returns the kind of this change.
+         * 
+         * @return The kind of this change.
+         */
+        public Kind getKind() {
+            return kind;
+        }
+        
+        /**
+         * Returns the key of the changed setting.
+         * 
+         * @return The key.
+         */
+        public String getKey() {
+            return newEntry != null ? newEntry.getKey() : oldEntry.getKey();
+        }
+        
+        /**
+         * Returns the old version of the setting.
+         * 
+         * @return The old version; <code>null</code> if the setting was added.
+         */
+        public Entry getOldEntry() {
+            return oldEntry;
+        }
+        
+        /**
+         * Returns the new version of the setting.
+         * 
+         * @return The new version; <code>null</code> if the setting was removed.
+         */
+        public Entry getNewEntry() {
+            return newEntry;
+        }
+        
+        /**
+         * Returns human readable descriptions of the differences, e.g. <code>type STRING -&gt; INTEGER</code>.
+         * 
+         * @return The unmodifiable list of differences; may be empty for added and removed settings.
+         */
+        public List<String> getDetails() {
+            return details;
+        }
+        
+        /**
+         * Returns whether this change may make existing configuration files invalid.
+         * 
+         * @return Whether this change is breaking.
+         */
+        public boolean isBreaking() {
+            return breaking;
+        }
+        
+    }
+    
+    /**
+     * The exit code of {@link #main(String[])} (and of the <code>--diff</code> option of
+     * {@link SettingDocumentationGenerator#main(String[])}) if an index file can not be read. This differs from the
+     * exit code for breaking changes, so that scripts can tell a broken release check from a breaking release.
+     */
+    static final int EXIT_UNREADABLE_INDEX = 2;
+    
+    private List<Change> changes;
+    
+    /**
+     * Creates a {@link CatalogDiff}.
+     * 
+     * @param changes The changes.
+     */
+    private CatalogDiff(List<Change> changes) {
+        this.changes = Collections.unmodifiableList(changes);
+    }
+    
+    /**
+     * Compares two versions of the settings. Added and changed settings are listed first, in the order of the new
+     * index; removed settings follow in the order of the old index.
+     * 
+     * @param oldIndex The old version.
+     * @param newIndex The new version.
+     * @return The differences between both versions.
+     */
+    public static CatalogDiff compare(SettingIndex oldIndex, SettingIndex newIndex) {
+        List<Change> changes = new ArrayList<>();
+        
+        for (int i = 0; i < newIndex.size(); i++) {
+            Entry newEntry = newIndex.getEntry(i);
+            Entry oldEntry = oldIndex.get(newEntry.getKey());
+            if (oldEntry == null) {
+                List<String> details = new ArrayList<>();
+                if (requiresValue(newEntry)) {
+                    details.add("requires a value");
+                }
+                changes.add(new Change(Kind.ADDED, null, newEntry, details, !details.isEmpty()));
+                
+            } else {
+                Change change = compare(oldEntry, newEntry);
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+        }
+        
+        for (int i = 0; i < oldIndex.size(); i++) {
+            Entry oldEntry = oldIndex.getEntry(i);
+            if (newIndex.get(oldEntry.getKey()) == null) {
+                changes.add(new Change(Kind.REMOVED, oldEntry, null, new ArrayList<>(), true));
+            }
+        }
+        
+        return new CatalogDiff(changes);
+    }
+    
+    /**
+     * Compares two versions of the same setting.
+     * 
+     * @param oldEntry The old version.
+     * @param newEntry The new version.
+     * @return The change; <code>null</code> if both versions are equal.
+     */
+    private static Change compare(Entry oldEntry, Entry newEntry) {
+        List<String> details = new ArrayList<>();
+        boolean breaking = false;
+        
+        if (!typeToString(oldEntry).equals(typeToString(newEntry))) {
+            details.add("type " + typeToString(oldEntry) + " -> " + typeToString(newEntry));
+            breaking = true;
+            
+        } else if (oldEntry.getEnumValues() != null && newEntry.getEnumValues() != null) {
+            Set<String> newValues = new HashSet<>(newEntry.getEnumValues());
+            Set<String> oldValues = new HashSet<>(oldEntry.getEnumValues());
+            List<String> removed = new ArrayList<>();
+            for (String value : oldEntry.getEnumValues()) {
+                if (!newValues.contains(value)) {
+                    removed.add(value);
+                }
+            }
+            List<String> added = new ArrayList<>();
+            for (String value : newEntry.getEnumValues()) {
+                if (!oldValues.contains(value)) {
+                    added.add(value);
+                }
+            }
+            if (!removed.isEmpty()) {
+                details.add("removed enum values " + String.join(", ", removed));
+                breaking = true;
+            }
+            if (!added.isEmpty()) {
+                details.add("added enum values " + String.join(", ", added));
+            }
+        }
+        
+        if (!Objects.equals(oldEntry.getDefaultValue(), newEntry.getDefaultValue())) {
+            details.add("default value " + quote(oldEntry.getDefaultValue()) + " -> "
+                    + quote(newEntry.getDefaultValue()));
+        }
+        if (requiresValue(newEntry) && !requiresValue(oldEntry)) {
+            details.add("now requires a value");
+            breaking = true;
+        } else if (oldEntry.isMandatory() != newEntry.isMandatory()) {
+            details.add("mandatory " + oldEntry.isMandatory() + " -> " + newEntry.isMandatory());
+        }
+        if (!Objects.equals(oldEntry.getSection(), newEntry.getSection())) {
+            details.add("moved from " + oldEntry.getSection() + " to " + newEntry.getSection());
+        }
+        if (!Objects.equals(oldEntry.getDescription(), newEntry.getDescription())) {
+            details.add("description changed");
+        }
+        
+        return details.isEmpty() ? null : new Change(Kind.CHANGED, oldEntry, newEntry, details, breaking);
+    }
+    
+    /**
+     * Returns whether a configuration file has to specify a value for the given setting.
+     * 
+     * @param entry The setting.
+     * @return Whether the setting is mandatory and has no default value.
+     */
+    private static boolean requiresValue(Entry entry) {
+        return entry.isMandatory() && entry.getDefaultValue() == null;
+    }
+    
+    /**
+     * Returns the type of the given setting, including the nested type of list settings.
+     * 
+     * @param entry The setting.
+     * @return The type, e.g. <code>INTEGER</code> or <code>LIST of PATH</code>.
+     */
+    private static String typeToString(Entry entry) {
+        return entry.getNestedType() != null ? entry.getType() + " of " + entry.getNestedType() : entry.getType();
+    }
+    
+    /**
+     * Quotes a setting value for the changelog.
+     * 
+     * @param value The value to quote; may be <code>null</code>.
+     * @return The value as a quoted and escaped JSON string, or <code>(none)</code> for <code>null</code>.
+     */
+    private static String quote(String value) {
+        String result = "(none)";
+        if (value != null) {
+            StringBuilder str = new StringBuilder();
+            try {
+                Json.writeString(str, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // can't happen for a StringBuilder
+            }
+            result = str.toString();
+        }
+        return result;
+    }
+    
+    /**
+     * Returns all changes.
+     * 
+     * @return The unmodifiable list of changes; empty if both versions are equal.
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+    
+    /**
+     * Returns whether any of the changes is breaking.
+     * 
+     * @return Whether existing configuration files may become invalid.
+     */
+    public boolean hasBreakingChanges() {
+        boolean result = false;
+        for (Change change : changes) {
+            if (change.isBreaking()) {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Writes a changelog in Markdown format. It contains a summary line and a list of the added, removed and changed
+     * settings; breaking changes are marked as such.
+     * 
+     * @param out The output to write to.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void writeChangelog(Appendable out) throws IOException {
+        int[] counts = new int[Kind.values().length];
+        int numBreaking = 0;
+        for (Change change : changes) {
+            counts[change.getKind().ordinal()]++;
+            if (change.isBreaking()) {
+                numBreaking++;
+            }
+        }
+        
+        out.append("# Setting changes\n\n");
+        out.append(String.valueOf(counts[Kind.ADDED.ordinal()])).append(" added, ")
+            .append(String.valueOf(counts[Kind.REMOVED.ordinal()])).append(" removed, ")
+            .append(String.valueOf(counts[Kind.CHANGED.ordinal()])).append(" changed, ")
+            .append(String.valueOf(numBreaking)).append(" breaking\n");
+        
+        writeChanges(out, Kind.ADDED, "Added settings");
+        writeChanges(out, Kind.REMOVED, "Removed settings");
+        writeChanges(out, Kind.CHANGED, "Changed settings");
+    }
+    
+    /**
+     * Writes the list of changes of one kind. Nothing is written if there are no such changes.
+     * 
+     * @param out The output to write to.
+     * @param kind The kind of changes to write.
+     * @param heading The heading of the list.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private void writeChanges(Appendable out, Kind kind, String heading) throws IOException {
+        boolean first = true;
+        for (Change change : changes) {
+            if (change.getKind() != kind) {
+                continue;
+            }
+            if (first) {
+                out.append("\n## ").append(heading).append("\n\n");
+                first = false;
+            }
+            
+            Entry entry = change.getNewEntry() != null ? change.getNewEntry() : change.getOldEntry();
+            out.append("- `").append(change.getKey()).append("` (").append(entry.getSection()).append(')');
+            if (change.isBreaking()) {
+                out.append(" **breaking**");
+            }
+            if (!change.getDetails().isEmpty()) {
+                out.append(": ").append(String.join("; ", change.getDetails()));
+            }
+            out.append('\n');
+        }
+    }
+    
+    /**
+     * Opens an index file for comparing it and reads all of its entries, so that a corrupt or truncated file is
+     * detected before anything is printed. If the file can not be read, the reason is printed to {@link System#err}.
+     * 
+     * @param file The index file.
+     * @return The index; <code>null</code> if the file can not be read or is not a valid index.
+     */
+    static SettingIndex readIndex(File file) {
+        SettingIndex result = null;
+        try {
+            SettingIndex index = SettingIndex.open(file);
+            for (int i = 0; i < index.size(); i++) {
+                index.getEntry(i);
+            }
+            result = index;
+            
+        } catch (IOException e) {
+            System.err.println("Can not read setting index " + file + ": " + e);
+        } catch (UncheckedIOException e) {
+            System.err.println("Can not read setting index " + file + ": " + e.getCause());
+        }
+        return result;
+    }
+    
+    /**
+     * Compares two index files and prints the changelog to {@link System#out}.
+     * 
+     * @param args The old index file, followed by the new index file.
+     * @return The exit code: 0 if there are no breaking changes, 1 if there are breaking changes and
+     *      {@link #EXIT_UNREADABLE_INDEX} if one of the index files can not be read.
+     * 
+     * @throws IOException If writing the changelog fails.
+     */
+    static int run(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Expecting: <old index file> <new index file>");
+        }
+        
+        int exitCode = EXIT_UNREADABLE_INDEX;
+        SettingIndex oldIndex = readIndex(new File(args[0]));
+        SettingIndex newIndex = oldIndex != null ? readIndex(new File(args[1])) : null;
+        if (newIndex != null) {
+            CatalogDiff diff = compare(oldIndex, newIndex);
+            Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            diff.writeChangelog(out);
+            out.flush();
+            exitCode = diff.hasBreakingChanges() ? 1 : 0;
+        }
+        return exitCode;
+    }
+    
+    /**
+     * Compares two index files and prints the changelog to {@link System#out}. The exit code is 1 if there are
+     * breaking changes, and {@link #EXIT_UNREADABLE_INDEX} if one of the index files can not be read.
+     * 
+     * @param args The old index file, followed by the new index file.
+     * 
+     * @throws IOException If writing the changelog fails.
+     */
+    public static void main(String[] args) throws IOException {
+        int exitCode = run(args);
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Lists and reads the .class files of a jar by reading only the central directory of the ZIP format. Entry names are
+ * filtered as raw bytes, so that entries that are not needed (e.g. bundled third-party classes) cost neither a string
+ * nor a {@link File} object. The content of an entry is only read and inflated when it is requested via
+ * {@link #read(int)}.
+ * <p>
+ * The jar is read with positional reads on a {@link FileChannel}, not memory-mapped: Java can not unmap a mapping
+ * explicitly, which keeps the jar locked on some platforms (e.g. Windows) until the mapping is garbage collected.
+ * The file is released when this reader is closed.
+ * <p>
+ * This only supports what jar tools produce: stored or deflated entries without encryption, and no ZIP64 extensions.
+ * {@link #open(File, String)} returns <code>null</code> for other archives, so that callers can fall back to
+ * {@link ZipArchive}.
+ */
+final class CentralDirectoryReader implements Closeable {
+    
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    
+    private static final int EOCD_SIZE = 22;
+    
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    
+    private static final int LOCAL_HEADER_SIZE = 30;
+    
+    private static final int STORED = 0;
+    
+    private static final int DEFLATED = 8;
+    
+    private static final byte[] CLASS_SUFFIX = ".class".getBytes(StandardCharsets.US_ASCII);
+    
+    private FileChannel channel;
+    
+    /**
+     * The central directory of the jar, in little endian order.
+     */
+    private ByteBuffer directory;
+    
+    /**
+     * The offsets of the headers of the matching entries in the {@link #directory}.
+     */
+    private int[] entries;
+    
+    private int numEntries;
+    
+    private Inflater inflater;
+    
+    /**
+     * Creates a {@link CentralDirectoryReader}. See {@link #open(File, String)}.
+     * 
+     * @param channel The opened jar file.
+     */
+    private CentralDirectoryReader(FileChannel channel) {
+        this.channel = channel;
+        this.entries = new int[64];
+    }
+    
+    /**
+     * Opens the given jar and lists all .class files of top-level classes (i.e. no <code>$</code> in the file name)
+     * in packages starting with the given prefix.
+     * 
+     * @param jarFile The jar file to read.
+     * @param packagePrefix The prefix of the fully qualified class names, e.g. <code>net.ssehub</code>.
+     * 
+     * @return The reader; <code>null</code> if the jar uses features that this reader does not support.
+     * 
+     * @throws IOException If reading the jar file fails, or it is not a valid ZIP archive.
+     */
+    static CentralDirectoryReader open(File jarFile, String packagePrefix) throws IOException {
+        FileChannel channel = FileChannel.open(jarFile.toPath(), StandardOpenOption.READ);
+        CentralDirectoryReader result = new CentralDirectoryReader(channel);
+        boolean supported = false;
+        try {
+            supported = result.readCentralDirectory(packagePrefix.replace('.', '/').getBytes(StandardCharsets.UTF_8));
+        } finally {
+            if (!supported) {
+                channel.close();
+            }
+        }
+        if (!supported) {
+            result = null;
+        }
+        return result;
+    }
+    
+    /**
+     * Reads the central directory into {@link #directory} and stores the offsets of all matching entries in
+     * {@link #entries}.
+     * 
+     * @param prefix The prefix of the entry names, with <code>/</code> as the separator.
+     * @return Whether the jar could be read. <code>false</code> if it uses unsupported features.
+     * 
+     * @throws IOException If the jar is not a valid ZIP archive.
+     */
+    private boolean readCentralDirectory(byte[] prefix) throws IOException {
+        ByteBuffer eocd = readEndOfCentralDirectory();
+        int numTotal = Short.toUnsignedInt(eocd.getShort(10));
+        long size = Integer.toUnsignedLong(eocd.getInt(12));
+        long offset = Integer.toUnsignedLong(eocd.getInt(16));
+        
+        // ZIP64 archives mark these fields as "see the ZIP64 record"
+        boolean supported = numTotal != 0xFFFF && size != 0xFFFFFFFFL && offset != 0xFFFFFFFFL;
+        if (supported) {
+            if (offset + size > channel.size() - eocd.capacity()) {
+                throw new IOException("Invalid central directory offset");
+            }
+            directory = read(offset, (int) size);
+        }
+        
+        int position = 0;
+        for (int i = 0; supported && i < numTotal; i++) {
+            if (position + CENTRAL_HEADER_SIZE > directory.limit() || directory.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new IOException("Invalid central directory header at " + (offset + position));
+            }
+            int nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+            if (position + CENTRAL_HEADER_SIZE + nameLength > directory.limit()) {
+                throw new IOException("Invalid central directory header at " + (offset + position));
+            }
+            
+            if (matches(position + CENTRAL_HEADER_SIZE, nameLength, prefix)) {
+                supported = isSupported(position);
+                
+                if (numEntries == entries.length) {
+                    entries = Arrays.copyOf(entries, numEntries * 2);
+                }
+                entries[numEntries++] = position;
+            }
+            
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return supported;
+    }
+    
+    /**
+     * Checks whether this reader can read an entry, i.e. it is neither encrypted nor a ZIP64 entry, and it is stored
+     * or deflated.
+     * 
+     * @param position The offset of the central directory header of the entry in the {@link #directory}.
+     * @return Whether the entry is supported.
+     */
+    private boolean isSupported(int position) {
+        int flags = Short.toUnsignedInt(directory.getShort(position + 8));
+        int method = Short.toUnsignedInt(directory.getShort(position + 10));
+        boolean plain = (flags & 1) == 0 && (method == STORED || method == DEFLATED);
+        boolean zip64 = directory.getInt(position + 20) == 0xFFFFFFFF
+                || directory.getInt(position + 24) == 0xFFFFFFFF || directory.getInt(position + 42) == 0xFFFFFFFF;
+        return plain && !zip64;
+    }
+    
+    /**
+     * Finds and reads the end of central directory record. This is searched backwards from the end of the file,
+     * since it may be followed by a comment of up to 65535 bytes.
+     * 
+     * @return The record, including its comment, in little endian order.
+     * 
+     * @throws IOException If there is no end of central directory record.
+     */
+    private ByteBuffer readEndOfCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, EOCD_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(fileSize - tailSize, tailSize);
+        
+        int found = -1;
+        for (int position = tailSize - EOCD_SIZE; position >= 0 && found == -1; position--) {
+            if (tail.getInt(position) == EOCD_SIGNATURE
+                    && position + EOCD_SIZE + Short.toUnsignedInt(tail.getShort(position + 20)) == tailSize) {
+                found = position;
+            }
+        }
+        if (found == -1) {
+            throw new IOException("Not a ZIP archive");
+        }
+        
+        tail.position(found);
+        return tail.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Reads a range of the jar file into a new buffer.
+     * 
+     * @param offset The offset in the file to start reading at.
+     * @param length The number of bytes to read.
+     * @return The read bytes, in little endian order.
+     * 
+     * @throws IOException If the file ends before the range, or reading fails.
+     */
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (result.hasRemaining()) {
+            if (channel.read(result, offset + result.position()) == -1) {
+                throw new IOException("Unexpected end of file at " + (offset + result.position()));
+            }
+        }
+        result.flip();
+        return result;
+    }
+    
+    /**
+     * Checks whether an entry name starts with the prefix, ends with <code>.class</code> and contains no
+     * <code>$</code> after the last <code>/</code>.
+     * 
+     * @param start The offset of the name in the {@link #directory}.
+     * @param length The length of the name in bytes.
+     * @param prefix The required prefix.
+     * @return Whether the entry is a matching .class file.
+     */
+    private boolean matches(int start, int length, byte[] prefix) {
+        boolean result = length >= prefix.length + CLASS_SUFFIX.length;
+        for (int i = 0; result && i < prefix.length; i++) {
+            result = directory.get(start + i) == prefix[i];
+        }
+        
+        int suffixStart = start + length - CLASS_SUFFIX.length;
+        for (int i = 0; result && i < CLASS_SUFFIX.length; i++) {
+            result = directory.get(suffixStart + i) == CLASS_SUFFIX[i];
+        }
+        
+        for (int i = suffixStart - 1; result && i >= start && directory.get(i) != '/'; i--) {
+            result = directory.get(i) != '$';
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of matching .class files.
+     * 
+     * @return The number of entries.
+     */
+    int getNumEntries() {
+        return numEntries;
+    }
+    
+    /**
+     * Returns the fully qualified name of the class of an entry.
+     * 
+     * @param index The index of the entry.
+     * @return The class name.
+     */
+    String getClassName(int index) {
+        int position = entries[index];
+        int nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+        byte[] name = new byte[nameLength - CLASS_SUFFIX.length];
+        for (int i = 0; i < name.length; i++) {
+            byte b = directory.get(position + CENTRAL_HEADER_SIZE + i);
+            name[i] = b == '/' ? (byte) '.' : b;
+        }
+        return new String(name, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads (and inflates, if needed) the content of an entry.
+     * 
+     * @param index The index of the entry.
+     * @return The content of the .class file.
+     * 
+     * @throws IOException If the entry is corrupt.
+     */
+    byte[] read(int index) throws IOException {
+        int position = entries[index];
+        int method = Short.toUnsignedInt(directory.getShort(position + 10));
+        int compressedSize = directory.getInt(position + 20);
+        int size = directory.getInt(position + 24);
+        long local = Integer.toUnsignedLong(directory.getInt(position + 42));
+        
+        if (local + LOCAL_HEADER_SIZE > channel.size()) {
+            throw new IOException("Invalid local header at " + local);
+        }
+        ByteBuffer localHeader = read(local, LOCAL_HEADER_SIZE);
+        if (localHeader.getInt(0) != LOCAL_SIGNATURE) {
+            throw new IOException("Invalid local header at " + local);
+        }
+        long data = local + LOCAL_HEADER_SIZE + Short.toUnsignedInt(localHeader.getShort(26))
+                + Short.toUnsignedInt(localHeader.getShort(28));
+        if (compressedSize < 0 || size < 0 || data + compressedSize > channel.size()) {
+            throw new IOException("Invalid entry size at " + local);
+        }
+        
+        byte[] result;
+        if (method == STORED) {
+            result = read(data, size).array();
+        } else {
+            // the inflater needs an extra dummy byte when reading raw deflate data
+            byte[] compressed = new byte[compressedSize + 1];
+            read(data, compressedSize).get(compressed, 0, compressedSize);
+            result = inflate(compressed, size, local);
+        }
+        return result;
+    }
+    
+    /**
+     * Inflates the raw deflate data of an entry.
+     * 
+     * @param compressed The compressed data, followed by one dummy byte.
+     * @param size The size of the inflated data.
+     * @param local The offset of the local header of the entry, for error messages.
+     * @return The inflated data.
+     * 
+     * @throws IOException If the data is corrupt.
+     */
+    private byte[] inflate(byte[] compressed, int size, long local) throws IOException {
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        inflater.reset();
+        inflater.setInput(compressed);
+        
+        byte[] result = new byte[size];
+        try {
+            int inflated = 0;
+            boolean stuck = false;
+            while (inflated < size && !inflater.finished() && !stuck) {
+                int read = inflater.inflate(result, inflated, size - inflated);
+                stuck = read == 0 && (inflater.needsInput() || inflater.needsDictionary());
+                inflated += read;
+            }
+            if (inflated != size) {
+                throw new IOException("Truncated entry at " + local);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt entry at " + local, e);
+        }
+        return result;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        directory = null;
+        channel.close();
+    }
+
+}
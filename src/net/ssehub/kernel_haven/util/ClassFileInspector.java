@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the field declarations directly from the bytes of a .class file, without loading the class. This is used to
+ * find out which classes may declare <code>static final Setting</code> fields before loading (and thus initializing)
+ * them via reflection.
+ */
+final class ClassFileInspector {
+    
+    private static final int MAGIC = 0xCAFEBABE;
+    
+    private static final int ACC_STATIC = 0x0008;
+    
+    private static final int ACC_FINAL = 0x0010;
+    
+    /**
+     * Don't allow any instances.
+     */
+    private ClassFileInspector() {
+    }
+    
+    /**
+     * Reads all bytes from the given stream. The stream is not closed.
+     * 
+     * @param in The stream to read from.
+     * @return The bytes read from the stream.
+     * 
+     * @throws IOException If reading the stream fails.
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+    
+    /**
+     * Returns the types of all <code>static final</code> fields of the given class that have a class type (i.e. no
+     * primitives and no arrays).
+     * 
+     * @param classFile The bytes of the .class file.
+     * @return The fully qualified names of the field types (e.g. <code>java.lang.String</code>), in the order of the
+     *      field declarations. May contain duplicates.
+     * 
+     * @throws IOException If the given bytes are not a valid class file.
+     */
+    static List<String> getStaticFinalFieldTypes(byte[] classFile) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(classFile);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a class file");
+            }
+            buffer.getShort(); // minor version
+            buffer.getShort(); // major version
+            
+            int[] utf8Offsets = readConstantPool(buffer);
+            
+            buffer.getShort(); // access flags
+            buffer.getShort(); // this class
+            buffer.getShort(); // super class
+            int numInterfaces = buffer.getShort() & 0xFFFF;
+            buffer.position(buffer.position() + 2 * numInterfaces);
+            
+            List<String> result = new ArrayList<>();
+            int numFields = buffer.getShort() & 0xFFFF;
+            for (int i = 0; i < numFields; i++) {
+                int flags = buffer.getShort() & 0xFFFF;
+                buffer.getShort(); // name index
+                int descriptorIndex = buffer.getShort() & 0xFFFF;
+                skipAttributes(buffer);
+                
+                if ((flags & ACC_STATIC) != 0 && (flags & ACC_FINAL) != 0) {
+                    int offset = utf8Offsets[descriptorIndex];
+                    int length = ((classFile[offset] & 0xFF) << 8) | (classFile[offset + 1] & 0xFF);
+                    // class types have the descriptor form Lsome/package/Name;
+                    if (length > 2 && classFile[offset + 2] == 'L') {
+                        result.add(new String(classFile, offset + 3, length - 2, StandardCharsets.UTF_8)
+                                .replace('/', '.'));
+                    }
+                }
+            }
+            
+            return result;
+        
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Invalid class file", e);
+        }
+    }
+    
+    /**
+     * Reads the constant pool of a class file. Only the positions of the UTF-8 entries are recorded; everything else
+     * is skipped.
+     * 
+     * @param buffer The buffer positioned at the constant pool count. Afterwards, this is positioned directly after
+     *      the constant pool.
+     * @return The offsets of the UTF-8 entries (pointing at the length of the string), indexed by the constant pool
+     *      index. 0 for other entries.
+     * 
+     * @throws IOException If the constant pool contains unknown entries.
+     */
+    private static int[] readConstantPool(ByteBuffer buffer) throws IOException {
+        int count = buffer.getShort() & 0xFFFF;
+        int[] utf8Offsets = new int[count];
+        
+        for (int i = 1; i < count; i++) {
+            int tag = buffer.get();
+            switch (tag) {
+            case 1: // Utf8
+                utf8Offsets[i] = buffer.position();
+                buffer.position(buffer.position() + 2 + (buffer.getShort() & 0xFFFF));
+                break;
+            case 7: // Class
+            case 8: // String
+            case 16: // MethodType
+            case 19: // Module
+            case 20: // Package
+                buffer.position(buffer.position() + 2);
+                break;
+            case 15: // MethodHandle
+                buffer.position(buffer.position() + 3);
+                break;
+            case 3: // Integer
+            case 4: // Float
+            case 9: // Fieldref
+            case 10: // Methodref
+            case 11: // InterfaceMethodref
+            case 12: // NameAndType
+            case 17: // Dynamic
+            case 18: // InvokeDynamic
+                buffer.position(buffer.position() + 4);
+                break;
+            case 5: // Long
+            case 6: // Double
+                buffer.position(buffer.position() + 8);
+                i++; // these take up two entries in the constant pool
+                break;
+            
+            default:
+                throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+        
+        return utf8Offsets;
+    }
+    
+    /**
+     * Skips the attributes of a field or method.
+     * 
+     * @param buffer The buffer positioned at the attribute count. Afterwards, this is positioned directly after the
+     *      attributes.
+     */
+    private static void skipAttributes(ByteBuffer buffer) {
+        int numAttributes = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < numAttributes; i++) {
+            buffer.getShort(); // name index
+            int length = buffer.getInt();
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+}
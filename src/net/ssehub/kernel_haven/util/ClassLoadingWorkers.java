@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helper methods for the worker threads that the classes of a single scan are loaded on, if a time budget per class
+ * is set (see {@link SettingDocumentationGenerator#setClassTimeout(long)}).
+ */
+final class ClassLoadingWorkers {
+    
+    /**
+     * Don't allow any instances.
+     */
+    private ClassLoadingWorkers() {
+    }
+    
+    /**
+     * Creates the worker threads for a scan. These are daemon threads, so that workers that hang in a static
+     * initializer don't keep the JVM alive.
+     * 
+     * @return The new worker threads.
+     */
+    static ExecutorService create() {
+        return Executors.newCachedThreadPool((runnable) -> {
+            Thread thread = new Thread(runnable, "ClassLoadingWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Shuts down the worker threads of a scan and closes its isolated class loader. If a worker thread is still busy
+     * with a class that timed out, the class loader is closed by a background thread once the worker ended. This
+     * thread waits at most the given time; if the worker is still busy then (e.g. because a static initializer
+     * ignores interrupts), the class loader is left open and this is recorded in the statistics.
+     * 
+     * @param workers The worker threads; <code>null</code> if none were used.
+     * @param isolatedLoader The isolated class loader; <code>null</code> if none was used.
+     * @param stats The statistics of the scan, to record a class loader that could not be closed in.
+     * @param maxWaitMillis The maximum time in milliseconds to wait for busy worker threads.
+     * 
+     * @throws IOException If closing the class loader fails.
+     */
+    static void release(ExecutorService workers, URLClassLoader isolatedLoader, ScanStatistics.Section stats,
+            long maxWaitMillis) throws IOException {
+        
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        
+        if (isolatedLoader != null) {
+            if (workers == null || workers.isTerminated()) {
+                isolatedLoader.close();
+            } else {
+                Thread closer = new Thread(() -> closeWhenTerminated(workers, isolatedLoader, stats, maxWaitMillis),
+                        "ClassLoaderCloser");
+                closer.setDaemon(true);
+                closer.start();
+            }
+        }
+    }
+    
+    /**
+     * Waits until the given worker threads ended and closes the class loader. Runs on the background thread started
+     * by {@link #release(ExecutorService, URLClassLoader, ScanStatistics.Section, long)}.
+     * 
+     * @param workers The worker threads.
+     * @param isolatedLoader The isolated class loader to close.
+     * @param stats The statistics of the scan, to record a failure in.
+     * @param maxWaitMillis The maximum time in milliseconds to wait for the worker threads.
+     */
+    private static void closeWhenTerminated(ExecutorService workers, URLClassLoader isolatedLoader,
+            ScanStatistics.Section stats, long maxWaitMillis) {
+        
+        String failure = null;
+        try {
+            if (workers.awaitTermination(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                isolatedLoader.close();
+            } else {
+                failure = "a class was still loading after " + maxWaitMillis + " ms";
+            }
+        } catch (InterruptedException e) {
+            failure = "interrupted while waiting for the loading classes";
+        } catch (IOException e) {
+            failure = e.toString();
+        }
+        
+        if (failure != null) {
+            stats.classLoaderNotClosed(failure);
+            System.err.println("Could not close the class loader of " + stats.getName() + ": " + failure);
+        }
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Validates KernelHaven configuration files against the settings of a {@link SettingCatalog}. This finds:
+ * <ul>
+ *  <li>Keys that are not defined by any setting (list settings also accept the keys <code>key.0</code>,
+ *      <code>key.1</code>, etc.).</li>
+ *  <li>Values that don't match the type of their setting: integers, regular expressions and enum values (not case
+ *      sensitive). Elements of list settings are checked against the nested type. Paths, files and directories are
+ *      not checked, since they may be relative to settings that are only known when KernelHaven runs.</li>
+ *  <li>Mandatory settings without a default value that are missing. Since a catalog usually contains the settings
+ *      of many plugins that are not used together, this is only checked for the sections that the configuration uses
+ *      at least one key of.</li>
+ * </ul>
+ * All lookups go through an index that is created once for the catalog, so that a single validator can check many
+ * files quickly, also concurrently.
+ */
+public class ConfigValidator {
+    
+    /**
+     * A setting in the key index.
+     */
+    private static final class IndexEntry {
+        
+        private SettingInfo setting;
+        
+        private int section;
+        
+        /**
+         * The upper case enum values of the setting; <code>null</code> if it is not an enum setting.
+         */
+        private Set<String> enumValues;
+        
+        /**
+         * Creates an {@link IndexEntry}.
+         * 
+         * @param setting The setting.
+         * @param section The index of the section of the setting.
+         * @param enumValues The upper case enum values of the setting; <code>null</code> if it is not an enum
+         *      setting.
+         */
+        private IndexEntry(SettingInfo setting, int section, Set<String> enumValues) {
+            this.setting = setting;
+            this.section = section;
+            this.enumValues = enumValues;
+        }
+        
+    }
+    
+    /**
+     * The settings by key. If several sections define the same key, the first one is used.
+     */
+    private Map<String, IndexEntry> index;
+    
+    /**
+     * The mandatory settings without default value of each section.
+     */
+    private List<List<IndexEntry>> mandatory;
+    
+    /**
+     * Creates a {@link ConfigValidator} and the key index for the given catalog.
+     * 
+     * @param catalog The settings that configurations are validated against.
+     */
+    public ConfigValidator(SettingCatalog catalog) {
+        this.index = new HashMap<>(catalog.getNumSettings() * 2);
+        this.mandatory = new ArrayList<>(catalog.getNumSections());
+        
+        // the catalog shares equal enum value lists, so each of them is only converted once
+        Map<List<String>, Set<String>> upperCaseValues = new IdentityHashMap<>();
+        
+        for (int section = 0; section < catalog.getNumSections(); section++) {
+            List<IndexEntry> sectionMandatory = new ArrayList<>();
+            for (SettingInfo setting : catalog.getSection(section)) {
+                Set<String> enumValues = null;
+                if (setting.getEnumValues() != null) {
+                    enumValues = upperCaseValues.computeIfAbsent(setting.getEnumValues(), (values) -> {
+                        Set<String> result = new HashSet<>();
+                        for (String value : values) {
+                            result.add(value.toUpperCase(Locale.ROOT));
+                        }
+                        return result;
+                    });
+                }
+                
+                IndexEntry entry = new IndexEntry(setting, section, enumValues);
+                if (index.putIfAbsent(setting.getKey(), entry) == null
+                        && setting.isMandatory() && setting.getDefaultValue() == null) {
+                    sectionMandatory.add(entry);
+                }
+            }
+            mandatory.add(sectionMandatory);
+        }
+    }
+    
+    /**
+     * Validates a configuration file.
+     * 
+     * @param configFile The properties file to validate.
+     * @return The problems found, one message per problem. Empty if the configuration is valid.
+     * 
+     * @throws IOException If reading the file fails.
+     */
+    public List<String> validate(File configFile) throws IOException {
+        Properties properties = new Properties();
+        // like KernelHaven, read the file as a byte stream, i.e. ISO-8859-1 with unicode escapes
+        try (InputStream in = new BufferedInputStream(new FileInputStream(configFile))) {
+            properties.load(in);
+        }
+        return validate(properties);
+    }
+    
+    /**
+     * Validates a configuration.
+     * 
+     * @param properties The configuration to validate.
+     * @return The problems found, one message per problem, ordered by key. Empty if the configuration is valid.
+     */
+    public List<String> validate(Properties properties) {
+        List<String> problems = new ArrayList<>();
+        boolean[] usedSections = new boolean[mandatory.size()];
+        
+        List<String> keys = new ArrayList<>(properties.stringPropertyNames());
+        Collections.sort(keys);
+        for (String key : keys) {
+            String value = properties.getProperty(key);
+            IndexEntry entry = index.get(key);
+            
+            if (entry != null) {
+                usedSections[entry.section] = true;
+                if (entry.setting.getType() == Type.LIST) {
+                    for (String element : value.split(",")) {
+                        // an empty value is an empty list; empty elements are ignored
+                        if (!element.trim().isEmpty()) {
+                            checkValue(key, entry, entry.setting.getNestedType(), element.trim(), problems);
+                        }
+                    }
+                } else {
+                    checkValue(key, entry, entry.setting.getType(), value, problems);
+                }
+                
+            } else {
+                IndexEntry list = getListEntry(key);
+                if (list != null) {
+                    usedSections[list.section] = true;
+                    checkValue(key, list, list.setting.getNestedType(), value, problems);
+                } else {
+                    problems.add(key + ": Unknown setting");
+                }
+            }
+        }
+        
+        for (int section = 0; section < usedSections.length; section++) {
+            if (usedSections[section]) {
+                for (IndexEntry entry : mandatory.get(section)) {
+                    String key = entry.setting.getKey();
+                    if (!properties.containsKey(key) && !properties.containsKey(key + ".0")) {
+                        problems.add(key + ": Missing mandatory setting");
+                    }
+                }
+            }
+        }
+        
+        return problems;
+    }
+    
+    /**
+     * Finds the list setting for a key of the form <code>key.N</code>, where N is a number.
+     * 
+     * @param key The key to find the list setting for.
+     * @return The list setting; <code>null</code> if the key does not have this form or there is no list setting
+     *      with the base key.
+     */
+    private IndexEntry getListEntry(String key) {
+        int dot = key.lastIndexOf('.');
+        boolean numbered = dot > 0 && dot < key.length() - 1;
+        for (int i = dot + 1; numbered && i < key.length(); i++) {
+            numbered = key.charAt(i) >= '0' && key.charAt(i) <= '9';
+        }
+        
+        IndexEntry result = null;
+        if (numbered) {
+            result = index.get(key.substring(0, dot));
+            if (result != null && result.setting.getType() != Type.LIST) {
+                result = null;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether a value matches a setting type.
+     * 
+     * @param key The key of the value, for the problem message.
+     * @param entry The setting of the value.
+     * @param type The type to check against; the nested type for elements of list settings.
+     * @param value The value to check.
+     * @param problems The list to add a problem message to, if the value does not match.
+     */
+    private static void checkValue(String key, IndexEntry entry, Type type, String value, List<String> problems) {
+        String trimmed = value.trim();
+        switch (type) {
+        case INTEGER:
+            // KernelHaven parses the value as it is, so surrounding white space makes it invalid
+            try {
+                Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                problems.add(key + ": Not an integer: \"" + value + "\"");
+            }
+            break;
+        case REGEX:
+            try {
+                Pattern.compile(value);
+            } catch (PatternSyntaxException e) {
+                problems.add(key + ": Invalid regular expression: " + e.getDescription());
+            }
+            break;
+        case ENUM:
+            if (entry.enumValues != null && !entry.enumValues.contains(trimmed.toUpperCase(Locale.ROOT))) {
+                problems.add(key + ": Invalid value " + trimmed + ", possible values are: "
+                        + String.join(", ", entry.setting.getEnumValues()));
+            }
+            break;
+            
+        default:
+            // strings, booleans and paths accept any value
+            break;
+        }
+    }
+    
+    /**
+     * Validates several configuration files concurrently. A file that can not be read is reported as a problem of
+     * that file.
+     * 
+     * @param configFiles The properties files to validate.
+     * @param numThreads The number of threads to validate with. If this is 1 or less, the files are validated one
+     *      after another in the calling thread.
+     * @return The problems of each file; same size and order as <code>configFiles</code>.
+     */
+    public List<List<String>> validateAll(List<File> configFiles, int numThreads) {
+        List<List<String>> result = new ArrayList<>(configFiles.size());
+        
+        if (numThreads <= 1) {
+            for (File file : configFiles) {
+                result.add(validateOrReport(file));
+            }
+        } else {
+            validateConcurrently(configFiles, numThreads, result);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Validates several configuration files concurrently. See {@link #validateAll(List, int)}.
+     * 
+     * @param configFiles The properties files to validate.
+     * @param numThreads The number of threads to validate with.
+     * @param result The list to add the problems of each file to, in the order of <code>configFiles</code>.
+     */
+    private void validateConcurrently(List<File> configFiles, int numThreads, List<List<String>> result) {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>(configFiles.size());
+            for (File file : configFiles) {
+                futures.add(executor.submit(() -> validateOrReport(file)));
+            }
+            
+            for (Future<List<String>> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while validating", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Validates a configuration file. If reading the file fails, this is reported as a problem.
+     * 
+     * @param configFile The properties file to validate.
+     * @return The problems found.
+     */
+    private List<String> validateOrReport(File configFile) {
+        List<String> result;
+        try {
+            result = validate(configFile);
+        } catch (IOException | IllegalArgumentException e) {
+            // Properties.load() throws IllegalArgumentException for malformed unicode escapes
+            result = Collections.singletonList("Can not read file: " + e);
+        }
+        return result;
+    }
+
+}
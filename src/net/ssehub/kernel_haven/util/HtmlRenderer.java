@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Renders the documentation as a standalone HTML page. Each section and each setting has an anchor (the section
+ * index and the setting key, respectively), so that they can be linked to directly.
+ */
+public class HtmlRenderer implements SettingRenderer {
+    
+    @Override
+    public void render(SettingCatalog catalog, Appendable out) throws IOException {
+        out.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n")
+            .append("<title>Configuration Settings of KernelHaven</title>\n</head>\n<body>\n")
+            .append("<h1>Configuration Settings of KernelHaven</h1>\n")
+            .append("<p>This page was automatically generated on: ");
+        writeEscaped(out, Timestamp.INSTANCE.getTimestamp());
+        out.append("</p>\n");
+        
+        for (int i = 0; i < catalog.getNumSections(); i++) {
+            if (catalog.getSection(i).isEmpty()) {
+                continue;
+            }
+            
+            out.append("<h2 id=\"section-").append(String.valueOf(i)).append("\">");
+            writeEscaped(out, catalog.getSectionName(i));
+            out.append("</h2>\n<dl>\n");
+            
+            for (SettingInfo setting : catalog.getSection(i)) {
+                writeSetting(out, setting);
+            }
+            
+            out.append("</dl>\n");
+        }
+        
+        out.append("</body>\n</html>\n");
+    }
+    
+    /**
+     * Writes the documentation of a single setting as an entry of a definition list.
+     * 
+     * @param out The output to write to.
+     * @param setting The setting to document.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private void writeSetting(Appendable out, SettingInfo setting) throws IOException {
+        out.append("<dt id=\"");
+        writeEscaped(out, setting.getKey());
+        out.append("\"><code>");
+        writeEscaped(out, setting.getKey());
+        out.append("</code></dt>\n<dd>\n");
+        
+        // each line of the description is its own paragraph
+        for (String line : setting.getDescription().split("\n")) {
+            if (!line.trim().isEmpty()) {
+                out.append("<p>");
+                writeEscaped(out, line);
+                out.append("</p>\n");
+            }
+        }
+        
+        out.append("<ul>\n<li>Type: ").append(SettingDocumentationGenerator.typeToString(setting)).append("</li>\n");
+        
+        if (setting.getType() == Type.ENUM) {
+            out.append("<li>Possible values");
+            String separator = ": ";
+            for (String value : SettingDocumentationGenerator.getEnumValues(setting)) {
+                out.append(separator).append("<code>");
+                writeEscaped(out, value);
+                out.append("</code>");
+                separator = ", ";
+            }
+            out.append("</li>\n");
+        }
+        
+        if (setting.getDefaultValue() != null) {
+            out.append("<li>Default value: ");
+            if (setting.getDefaultValue().isEmpty()) {
+                out.append("(empty string)");
+            } else {
+                out.append("<code>");
+                writeEscaped(out, setting.getDefaultValue());
+                out.append("</code>");
+            }
+            out.append("</li>\n");
+        } else {
+            out.append("<li>Mandatory: ").append(setting.isMandatory() ? "Yes" : "No").append("</li>\n");
+        }
+        
+        out.append("</ul>\n</dd>\n");
+    }
+    
+    /**
+     * Writes text with the special characters of HTML escaped. The result can be used both as element content and as
+     * attribute value.
+     * 
+     * @param out The output to write to.
+     * @param text The text to write.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private static void writeEscaped(Appendable out, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '&':
+                out.append("&amp;");
+                break;
+            case '<':
+                out.append("&lt;");
+                break;
+            case '>':
+                out.append("&gt;");
+                break;
+            case '"':
+                out.append("&quot;");
+                break;
+            case '\'':
+                out.append("&#39;");
+                break;
+                
+            default:
+                out.append(c);
+                break;
+            }
+        }
+    }
+
+}
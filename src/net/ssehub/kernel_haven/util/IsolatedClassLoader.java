@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * The class loader that a single jar file or class-path directory is scanned with, if isolated class loaders are
+ * enabled (see {@link SettingDocumentationGenerator#setIsolatedClassLoaders(ClassLoader)}). Classes are looked up in
+ * the following order:
+ * <ol>
+ *  <li>The shared class loader, i.e. the class-path of this JVM. This provides the Java platform and the KernelHaven
+ *      infrastructure, so that the scanned classes use the same {@link net.ssehub.kernel_haven.config.Setting} class
+ *      as the generator.</li>
+ *  <li>The scanned location itself.</li>
+ *  <li>The parent class loader, which provides the libraries that the scanned locations depend on.</li>
+ *  <li>The other locations that are scanned in the same run (e.g. an analysis plugin that another analysis plugin
+ *      builds on). These are loaded by a separate class loader, which is only created when a class is not found
+ *      otherwise, and which is closed together with this class loader. Classes of these locations can not see the
+ *      classes of the scanned location.</li>
+ * </ol>
+ * Thus, the classes of the scanned location are defined by this class loader even if the same jar is also one of the
+ * libraries. Only classes on the class-path of this JVM are shared between scans.
+ */
+final class IsolatedClassLoader extends URLClassLoader {
+    
+    static {
+        registerAsParallelCapable();
+    }
+    
+    private ClassLoader shared;
+    
+    private URL[] siblings;
+    
+    private Object siblingLock = new Object();
+    
+    /**
+     * The class loader for the {@link #siblings}; <code>null</code> until a class is looked up there.
+     */
+    private URLClassLoader siblingLoader;
+    
+    /**
+     * Creates an {@link IsolatedClassLoader}.
+     * 
+     * @param location The jar file or class-path directory to load classes from.
+     * @param shared The class loader for the classes that are shared between all scans.
+     * @param parent The class loader for the libraries that the scanned location depends on; classes found by
+     *      <code>shared</code> should be found by this, too.
+     * @param siblings The other locations of the same run, for classes that are found neither in the scanned location
+     *      nor in the libraries.
+     */
+    IsolatedClassLoader(URL location, ClassLoader shared, ClassLoader parent, URL[] siblings) {
+        super(new URL[] {location}, parent);
+        this.shared = shared;
+        this.siblings = siblings;
+    }
+    
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> result = findLoadedClass(name);
+            if (result == null) {
+                result = findOrNull(shared, name);
+            }
+            if (result == null) {
+                try {
+                    result = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    // not in the scanned location; try the libraries, then the other scanned locations
+                    result = findOrNull(getParent(), name);
+                    if (result == null) {
+                        result = loadFromSiblings(name);
+                    }
+                }
+            }
+            if (resolve) {
+                resolveClass(result);
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Loads a class from the other locations of the same run. Creates the class loader for these on first use.
+     * 
+     * @param name The fully qualified name of the class.
+     * @return The class.
+     * 
+     * @throws ClassNotFoundException If none of the other locations contains the class.
+     */
+    private Class<?> loadFromSiblings(String name) throws ClassNotFoundException {
+        if (siblings.length == 0) {
+            throw new ClassNotFoundException(name);
+        }
+        
+        URLClassLoader loader;
+        synchronized (siblingLock) {
+            if (siblingLoader == null) {
+                siblingLoader = new URLClassLoader(siblings, getParent());
+            }
+            loader = siblingLoader;
+        }
+        return loader.loadClass(name);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            URLClassLoader loader;
+            synchronized (siblingLock) {
+                loader = siblingLoader;
+            }
+            if (loader != null) {
+                loader.close();
+            }
+        }
+    }
+    
+    /**
+     * Loads a class with the given class loader, without throwing an exception if it is not found.
+     * 
+     * @param loader The class loader to load the class with.
+     * @param name The fully qualified name of the class.
+     * @return The class; <code>null</code> if the class loader did not find it.
+     */
+    private static Class<?> findOrNull(ClassLoader loader, String name) {
+        Class<?> result;
+        try {
+            result = loader.loadClass(name);
+        } catch (ClassNotFoundException e) {
+            result = null;
+        }
+        return result;
+    }
+
+}
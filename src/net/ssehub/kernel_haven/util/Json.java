@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+
+/**
+ * Helper methods for writing JSON.
+ */
+final class Json {
+    
+    /**
+     * Don't allow any instances.
+     */
+    private Json() {
+    }
+    
+    /**
+     * Writes the given string as a quoted and escaped JSON string.
+     * 
+     * @param out The output to write to.
+     * @param str The string to write. If this is <code>null</code>, <code>null</code> is written.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    static void writeString(Appendable out, String str) throws IOException {
+        if (str == null) {
+            out.append("null");
+        } else {
+            out.append('"');
+            for (int i = 0; i < str.length(); i++) {
+                char c = str.charAt(i);
+                switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+                }
+            }
+            out.append('"');
+        }
+    }
+
+}
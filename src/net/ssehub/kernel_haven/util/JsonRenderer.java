@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Renders the settings as JSON, e.g. for auto-completion in editors. The result is an object with a
+ * <code>"sections"</code> array; each section has a <code>"name"</code> and a <code>"settings"</code> array. Each
+ * setting has the following members:
+ * <ul>
+ *  <li><code>"key"</code>: The key of the setting.</li>
+ *  <li><code>"type"</code>: The type of the setting, as the name of the
+ *      {@link net.ssehub.kernel_haven.config.Setting.Type} constant (e.g. <code>"INTEGER"</code>).</li>
+ *  <li><code>"nestedType"</code>: Only for list settings: the type of the elements.</li>
+ *  <li><code>"typeDescription"</code>: The human-readable type, as in config_template.properties.</li>
+ *  <li><code>"enumValues"</code>: Only for enum settings: an array of the possible values (empty if the setting
+ *      does not specify them).</li>
+ *  <li><code>"defaultValue"</code>: The default value; <code>null</code> if the setting has none.</li>
+ *  <li><code>"mandatory"</code>: Whether the setting is mandatory.</li>
+ *  <li><code>"description"</code>: The description text.</li>
+ * </ul>
+ */
+public class JsonRenderer implements SettingRenderer {
+    
+    @Override
+    public void render(SettingCatalog catalog, Appendable out) throws IOException {
+        out.append("{\n  \"sections\": [");
+        for (int i = 0; i < catalog.getNumSections(); i++) {
+            out.append(i == 0 ? "\n    {\"name\": " : ",\n    {\"name\": ");
+            Json.writeString(out, catalog.getSectionName(i));
+            out.append(", \"settings\": [");
+            
+            List<SettingInfo> section = catalog.getSection(i);
+            for (int j = 0; j < section.size(); j++) {
+                out.append(j == 0 ? "\n      " : ",\n      ");
+                writeSetting(out, section.get(j));
+            }
+            
+            out.append(section.isEmpty() ? "]}" : "\n    ]}");
+        }
+        out.append("\n  ]\n}\n");
+    }
+    
+    /**
+     * Writes a single setting as a JSON object.
+     * 
+     * @param out The output to write to.
+     * @param setting The setting to write.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private void writeSetting(Appendable out, SettingInfo setting) throws IOException {
+        out.append("{\"key\": ");
+        Json.writeString(out, setting.getKey());
+        out.append(", \"type\": ");
+        Json.writeString(out, setting.getType().name());
+        if (setting.getType() == Type.LIST) {
+            out.append(", \"nestedType\": ");
+            Json.writeString(out, setting.getNestedType().name());
+        }
+        out.append(", \"typeDescription\": ");
+        Json.writeString(out, SettingDocumentationGenerator.typeToString(setting));
+        
+        if (setting.getType() == Type.ENUM) {
+            out.append(", \"enumValues\": [");
+            List<String> values = SettingDocumentationGenerator.getEnumValues(setting);
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                Json.writeString(out, values.get(i));
+            }
+            out.append(']');
+        }
+        
+        out.append(", \"defaultValue\": ");
+        Json.writeString(out, setting.getDefaultValue());
+        out.append(", \"mandatory\": ").append(String.valueOf(setting.isMandatory()));
+        out.append(", \"description\": ");
+        Json.writeString(out, setting.getDescription());
+        out.append('}');
+    }
+
+}
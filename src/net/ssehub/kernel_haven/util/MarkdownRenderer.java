@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Renders the documentation as a Markdown page, e.g. for a wiki. Each section is a second level heading, each setting
+ * a third level heading with its key, followed by the description and a list of its properties.
+ */
+public class MarkdownRenderer implements SettingRenderer {
+    
+    @Override
+    public void render(SettingCatalog catalog, Appendable out) throws IOException {
+        out.append("# Configuration Settings of KernelHaven\n\n");
+        out.append("This page was automatically generated on: ").append(Timestamp.INSTANCE.getTimestamp())
+            .append('\n');
+        
+        for (int i = 0; i < catalog.getNumSections(); i++) {
+            if (catalog.getSection(i).isEmpty()) {
+                continue;
+            }
+            
+            out.append("\n## ");
+            writeEscaped(out, catalog.getSectionName(i));
+            out.append('\n');
+            
+            for (SettingInfo setting : catalog.getSection(i)) {
+                writeSetting(out, setting);
+            }
+        }
+    }
+    
+    /**
+     * Writes the documentation of a single setting. The text is preceded by an empty line.
+     * 
+     * @param out The output to write to.
+     * @param setting The setting to document.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private void writeSetting(Appendable out, SettingInfo setting) throws IOException {
+        out.append("\n### ");
+        writeCode(out, setting.getKey());
+        out.append("\n\n");
+        
+        // each line of the description is its own paragraph
+        for (String line : setting.getDescription().split("\n")) {
+            if (!line.trim().isEmpty()) {
+                writeEscaped(out, line);
+                out.append("\n\n");
+            }
+        }
+        
+        out.append("* Type: ").append(SettingDocumentationGenerator.typeToString(setting)).append('\n');
+        
+        if (setting.getType() == Type.ENUM) {
+            out.append("* Possible values");
+            String separator = ": ";
+            for (String value : SettingDocumentationGenerator.getEnumValues(setting)) {
+                out.append(separator);
+                writeCode(out, value);
+                separator = ", ";
+            }
+            out.append('\n');
+        }
+        
+        if (setting.getDefaultValue() != null) {
+            out.append("* Default value: ");
+            if (setting.getDefaultValue().isEmpty()) {
+                out.append("(empty string)");
+            } else {
+                writeCode(out, setting.getDefaultValue());
+            }
+            out.append('\n');
+        } else {
+            out.append("* Mandatory: ").append(setting.isMandatory() ? "Yes" : "No").append('\n');
+        }
+    }
+    
+    /**
+     * Writes text with the characters that have a meaning inside of Markdown paragraphs or headings escaped. Line
+     * breaks are written as spaces, so that the text stays in a single paragraph or heading. Paragraphs start a line,
+     * so list markers at the start of the text (<code>-</code>, <code>+</code> or digits followed by <code>.</code>
+     * or <code>)</code>) are escaped, too.
+     * 
+     * @param out The output to write to.
+     * @param text The text to write.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private static void writeEscaped(Appendable out, String text) throws IOException {
+        int listMarker = getListMarker(text);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                c = ' ';
+            } else if (i == listMarker || "\\`*_[]<>#|&".indexOf(c) != -1) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+    
+    /**
+     * Finds the character that would make the start of the given text a list item or thematic break, i.e. a
+     * <code>-</code> or <code>+</code> or the <code>.</code> or <code>)</code> after digits, following optional
+     * indentation.
+     * 
+     * @param text The text that starts a line.
+     * @return The index of the character to escape; -1 if there is none.
+     */
+    private static int getListMarker(String text) {
+        int start = 0;
+        while (start < text.length() && (text.charAt(start) == ' ' || text.charAt(start) == '\t')) {
+            start++;
+        }
+        int end = start;
+        while (end < text.length() && text.charAt(end) >= '0' && text.charAt(end) <= '9') {
+            end++;
+        }
+        
+        int result = -1;
+        if (end < text.length()) {
+            char c = text.charAt(end);
+            if (end == start ? c == '-' || c == '+' : c == '.' || c == ')') {
+                result = end;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Writes text as an inline code span. If the text contains backticks, the span is delimited by more backticks
+     * than the longest run of backticks in the text. Line breaks are written as spaces.
+     * 
+     * @param out The output to write to.
+     * @param text The text to write.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private static void writeCode(Appendable out, String text) throws IOException {
+        int longestRun = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            run = text.charAt(i) == '`' ? run + 1 : 0;
+            longestRun = Math.max(longestRun, run);
+        }
+        
+        StringBuilder delimiter = new StringBuilder("`");
+        for (int i = 0; i < longestRun; i++) {
+            delimiter.append('`');
+        }
+        
+        // pad with spaces if the text starts or ends with a backtick, so that it is not part of the delimiter
+        String padding = longestRun > 0 ? " " : "";
+        out.append(delimiter).append(padding).append(text.replace('\r', ' ').replace('\n', ' ')).append(padding)
+            .append(delimiter);
+    }
+
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Discovers KernelHaven plugins in a directory tree, so that they don't have to be listed explicitly. Plugins are jar
+ * files and <code>bin</code> directories (compiled Eclipse projects) that contain classes in the
+ * <code>net.ssehub</code> package; other jars (e.g. bundled libraries) are ignored. The tree is walked in parallel.
+ * <p>
+ * The section name of a plugin is derived from the <code>Implementation-Title</code> of its manifest or, if it has
+ * none, the name of the jar (without version suffix) or the name of the project that contains the <code>bin</code>
+ * directory. The sections are ordered by category: the main infrastructure first, followed by utilities, analyses and
+ * extractors. Within a category, the known public plugins keep their usual order; other plugins are sorted by name.
+ * <p>
+ * Jars that can not be read are skipped with a warning. Plugins that are not documented (the incremental analyses
+ * infrastructure) are skipped, too.
+ */
+public class PluginDiscovery {
+    
+    private static final int INFRASTRUCTURE = 0;
+    
+    private static final int UTILITIES = 1;
+    
+    private static final int ANALYSES = 2;
+    
+    private static final int EXTRACTORS = 3;
+    
+    /**
+     * The known public plugins in their usual order. Each entry is the project name, the section name and the
+     * category.
+     */
+    private static final Object[][] KNOWN_PLUGINS = {
+        {"KernelHaven", "Main Infrastructure", INFRASTRUCTURE},
+        
+        {"CnfUtils", "CnfUtils", UTILITIES},
+        {"CppUtils", "CppUtils", UTILITIES},
+        {"IOUtils", "IOUtils", UTILITIES},
+        {"NonBooleanUtils", "NonBooleanUtils", UTILITIES},
+        {"DBUtils", "DBUtils", UTILITIES},
+        {"BusybootPreparation", "BusybootPreparation", UTILITIES},
+        
+        {"FeatureEffectAnalysis", "FeatureEffectAnalysis", ANALYSES},
+        {"MetricHaven", "MetricHaven", ANALYSES},
+        {"UnDeadAnalyzer", "UnDeadAnalyzer", ANALYSES},
+        {"ConfigurationMismatchAnalysis", "ConfigurationMismatchAnalysis", ANALYSES},
+        {"EntityLocatorAnalysis", "EntityLocatorAnalysis", ANALYSES},
+        {"ProblemSolutionSpaceMapperAnalysis", "ProblemSolutionSpaceMapperAnalysis", ANALYSES},
+        
+        {"KbuildMinerExtractor", "KbuildMinerExtractor", EXTRACTORS},
+        {"KconfigReaderExtractor", "KconfigReaderExtractor", EXTRACTORS},
+        {"srcMLExtractor", "SrcMlExtractor", EXTRACTORS},
+        {"TypeChefExtractor", "TypeChefExtractor", EXTRACTORS},
+        {"UndertakerExtractor", "UndertakerExtractor", EXTRACTORS},
+        {"CodeBlockExtractor", "CodeBlockExtractor", EXTRACTORS},
+    };
+    
+    /**
+     * The lower case project names of plugins that are not documented, even if they are found. The incremental
+     * analyses infrastructure is downloaded alongside the other plugins, but it was never part of the documentation.
+     */
+    private static final Set<String> IGNORED_PLUGINS = new HashSet<>(Arrays.asList(
+            "incrementalanalysesinfrastructure"));
+    
+    /**
+     * The position of the known plugins in {@link #KNOWN_PLUGINS}. Key is the lower case project name.
+     */
+    private static final Map<String, Integer> KNOWN_INDICES = new HashMap<>();
+    
+    static {
+        for (int i = 0; i < KNOWN_PLUGINS.length; i++) {
+            KNOWN_INDICES.put(((String) KNOWN_PLUGINS[i][0]).toLowerCase(Locale.ROOT), i);
+        }
+    }
+    
+    /**
+     * A plugin that was found.
+     */
+    private static final class Plugin {
+        
+        private File location;
+        
+        private String sectionName;
+        
+        private int category;
+        
+        /**
+         * The position in {@link PluginDiscovery#KNOWN_PLUGINS}; {@link Integer#MAX_VALUE} for unknown plugins.
+         */
+        private int knownIndex;
+        
+        /**
+         * Creates a {@link Plugin}.
+         * 
+         * @param location The jar file or class-path directory.
+         * @param sectionName The section name.
+         * @param category The category, used for ordering.
+         * @param knownIndex The position in {@link PluginDiscovery#KNOWN_PLUGINS}; {@link Integer#MAX_VALUE} for
+         *      unknown plugins.
+         */
+        private Plugin(File location, String sectionName, int category, int knownIndex) {
+            this.location = location;
+            this.sectionName = sectionName;
+            this.category = category;
+            this.knownIndex = knownIndex;
+        }
+        
+    }
+    
+    /**
+     * Walks a single directory; sub-directories are walked by forked tasks.
+     */
+    private static final class WalkTask extends RecursiveTask<List<Plugin>> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private Path directory;
+        
+        /**
+         * Creates a {@link WalkTask}.
+         * 
+         * @param directory The directory to walk.
+         */
+        private WalkTask(Path directory) {
+            this.directory = directory;
+        }
+        
+        @Override
+        protected List<Plugin> compute() {
+            List<Plugin> result = new ArrayList<>();
+            List<WalkTask> subTasks = new ArrayList<>();
+            
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    String name = child.getFileName().toString();
+                    if (name.startsWith(".")) {
+                        continue;
+                    }
+                    
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        if (name.equals("bin")) {
+                            Plugin plugin = checkClassPath(child);
+                            if (plugin != null) {
+                                result.add(plugin);
+                            }
+                        } else {
+                            WalkTask task = new WalkTask(child);
+                            task.fork();
+                            subTasks.add(task);
+                        }
+                        
+                    } else if (name.endsWith(".jar") && Files.isRegularFile(child)) {
+                        Plugin plugin = checkJarOrSkip(child);
+                        if (plugin != null) {
+                            result.add(plugin);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            
+            for (WalkTask task : subTasks) {
+                result.addAll(task.join());
+            }
+            return result;
+        }
+        
+    }
+    
+    /**
+     * Don't allow any instances.
+     */
+    private PluginDiscovery() {
+    }
+    
+    /**
+     * Adds the <code>bin</code> directories of all known public plugins (see {@link #KNOWN_PLUGINS}), in their usual
+     * order, without checking whether they exist.
+     * 
+     * @param workspace The directory that contains the Eclipse projects of the plugins.
+     * @param locations The list to add the class-path directories of the projects to.
+     * @param sectionNames The list to add the section names to; same order as <code>locations</code>.
+     */
+    public static void addKnownProjects(File workspace, List<File> locations, List<String> sectionNames) {
+        for (Object[] plugin : KNOWN_PLUGINS) {
+            locations.add(new File(new File(workspace, (String) plugin[0]), "bin"));
+            sectionNames.add((String) plugin[1]);
+        }
+    }
+    
+    /**
+     * Discovers all plugins in the given directory tree and adds them in the order described in
+     * {@link PluginDiscovery}. If several plugins have the same section name (e.g. both the jar and the
+     * <code>bin</code> directory of a project were found), only the first one in this order (or with the shorter path)
+     * is used.
+     * 
+     * @param root The directory to search in.
+     * @param locations The list to add the jar files and class-path directories of the plugins to.
+     * @param sectionNames The list to add the section names to; same order as <code>locations</code>.
+     * 
+     * @throws IOException If walking the directory tree fails.
+     */
+    public static void discover(File root, List<File> locations, List<String> sectionNames) throws IOException {
+        if (!root.isDirectory()) {
+            throw new IOException(root + " is not a directory");
+        }
+        
+        List<Plugin> plugins;
+        try {
+            plugins = ForkJoinPool.commonPool().invoke(new WalkTask(root.toPath()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        plugins.sort(Comparator.<Plugin>comparingInt((plugin) -> plugin.category)
+                .thenComparingInt((plugin) -> plugin.knownIndex)
+                .thenComparing((plugin) -> plugin.sectionName.toLowerCase(Locale.ROOT))
+                .thenComparingInt((plugin) -> plugin.location.getPath().length())
+                .thenComparing((plugin) -> plugin.location.getPath()));
+        
+        Set<String> names = new HashSet<>();
+        for (Plugin plugin : plugins) {
+            if (names.add(plugin.sectionName)) {
+                locations.add(plugin.location);
+                sectionNames.add(plugin.sectionName);
+            } else {
+                System.err.println("Ignoring " + plugin.location + ", since another location for "
+                        + plugin.sectionName + " was already found");
+            }
+        }
+    }
+    
+    /**
+     * Checks whether a jar file is a plugin. Files that can not be read as a jar (e.g. because they are broken or
+     * were only partially downloaded) are skipped with a warning, so that they don't prevent finding the other
+     * plugins.
+     * 
+     * @param jar The jar file.
+     * @return The plugin; <code>null</code> if the jar contains no classes in the <code>net.ssehub</code> package or
+     *      can not be read.
+     */
+    private static Plugin checkJarOrSkip(Path jar) {
+        Plugin result = null;
+        try {
+            result = checkJar(jar);
+        } catch (IOException e) {
+            System.err.println("Skipping " + jar + ", since it can not be read as a jar: " + e);
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether a jar file is a plugin.
+     * 
+     * @param jar The jar file.
+     * @return The plugin; <code>null</code> if the jar contains no classes in the <code>net.ssehub</code> package.
+     * 
+     * @throws IOException If reading the jar fails.
+     */
+    private static Plugin checkJar(Path jar) throws IOException {
+        boolean hasClasses;
+        try (CentralDirectoryReader reader = CentralDirectoryReader.open(jar.toFile(), "net.ssehub")) {
+            // jars that the reader does not support are checked when they are scanned
+            hasClasses = reader == null || reader.getNumEntries() > 0;
+        }
+        
+        Plugin result = null;
+        if (hasClasses) {
+            String title = null;
+            try (JarFile jarFile = new JarFile(jar.toFile())) {
+                title = getTitle(jarFile.getManifest());
+            }
+            
+            String name = jar.getFileName().toString();
+            name = name.substring(0, name.length() - ".jar".length());
+            // remove version suffixes, e.g. -1.0.0 or _v2
+            name = name.replaceFirst("[-_]v?[0-9][0-9.]*(-SNAPSHOT)?$", "");
+            
+            result = createPlugin(jar.toFile(), name, title);
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether a <code>bin</code> directory is a plugin.
+     * 
+     * @param bin The directory.
+     * @return The plugin; <code>null</code> if the directory contains no classes in the <code>net.ssehub</code>
+     *      package.
+     * 
+     * @throws IOException If reading the manifest fails.
+     */
+    private static Plugin checkClassPath(Path bin) throws IOException {
+        Plugin result = null;
+        if (Files.isDirectory(bin.resolve("net").resolve("ssehub"))) {
+            String title = null;
+            Path manifestFile = bin.resolve(JarFile.MANIFEST_NAME);
+            if (Files.isRegularFile(manifestFile)) {
+                try (InputStream in = Files.newInputStream(manifestFile)) {
+                    title = getTitle(new Manifest(in));
+                }
+            }
+            
+            Path project = bin.toAbsolutePath().normalize().getParent();
+            String name = project != null && project.getFileName() != null ? project.getFileName().toString() : "bin";
+            result = createPlugin(bin.toFile(), name, title);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the <code>Implementation-Title</code> of a manifest.
+     * 
+     * @param manifest The manifest; may be <code>null</code>.
+     * @return The title; <code>null</code> if there is no manifest or it has no (non-empty) title.
+     */
+    private static String getTitle(Manifest manifest) {
+        String result = null;
+        if (manifest != null) {
+            result = manifest.getMainAttributes().getValue(Attributes.Name.IMPLEMENTATION_TITLE);
+            if (result != null && result.trim().isEmpty()) {
+                result = null;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Creates the plugin for a location. Known plugins get their usual section name and category; other plugins are
+     * named by their manifest title (or project name) and categorized by the suffix of their name.
+     * 
+     * @param location The jar file or class-path directory.
+     * @param projectName The name of the project, derived from the file name.
+     * @param title The <code>Implementation-Title</code> from the manifest; may be <code>null</code>.
+     * @return The plugin; <code>null</code> if it is one of the {@link #IGNORED_PLUGINS}.
+     */
+    private static Plugin createPlugin(File location, String projectName, String title) {
+        Integer known = KNOWN_INDICES.get(projectName.toLowerCase(Locale.ROOT));
+        if (known == null && title != null) {
+            known = KNOWN_INDICES.get(title.trim().toLowerCase(Locale.ROOT));
+        }
+        boolean ignored = IGNORED_PLUGINS.contains(projectName.toLowerCase(Locale.ROOT))
+                || title != null && IGNORED_PLUGINS.contains(title.trim().toLowerCase(Locale.ROOT));
+        
+        Plugin result;
+        if (ignored) {
+            System.err.println("Ignoring " + location + ", since " + projectName + " is not documented");
+            result = null;
+        } else if (known != null) {
+            result = new Plugin(location, (String) KNOWN_PLUGINS[known][1], (Integer) KNOWN_PLUGINS[known][2], known);
+        } else {
+            String name = title != null ? title.trim() : projectName;
+            result = new Plugin(location, name, getCategory(name), Integer.MAX_VALUE);
+        }
+        return result;
+    }
+    
+    /**
+     * Guesses the category of an unknown plugin from its name.
+     * 
+     * @param name The name of the plugin.
+     * @return The category.
+     */
+    private static int getCategory(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        int result;
+        if (lower.endsWith("extractor") || lower.endsWith("extractors")) {
+            result = EXTRACTORS;
+        } else if (lower.endsWith("analysis") || lower.endsWith("analyses") || lower.endsWith("analyzer")
+                || lower.endsWith("haven")) {
+            result = ANALYSES;
+        } else {
+            result = UTILITIES;
+        }
+        return result;
+    }
+
+}
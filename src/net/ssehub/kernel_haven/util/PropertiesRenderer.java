@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Renders the documentation in the format of config_template.properties: a Java properties file with every setting
+ * key and its documentation as comments. This is the format of
+ * {@link SettingDocumentationGenerator#generateSettingText()}.
+ */
+public class PropertiesRenderer implements SettingRenderer {
+    
+    private SettingDocumentationGenerator generator;
+    
+    /**
+     * Creates a {@link PropertiesRenderer}.
+     * 
+     * @param generator The generator that writes the header and sections (and records the rendering in its
+     *      statistics, if set).
+     */
+    public PropertiesRenderer(SettingDocumentationGenerator generator) {
+        this.generator = generator;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each section is written completely before the next one is started; if the output is {@link Flushable}, it is
+     * flushed after each section.
+     */
+    @Override
+    public void render(SettingCatalog catalog, Appendable out) throws IOException {
+        generator.writeFileHeader(out);
+        
+        for (int i = 0; i < catalog.getNumSections(); i++) {
+            generator.writeSection(out, catalog.getSectionName(i), catalog.getSection(i));
+            
+            if (out instanceof Flushable) {
+                ((Flushable) out).flush();
+            }
+        }
+    }
+
+}
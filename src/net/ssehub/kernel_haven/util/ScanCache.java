@@ -0,0 +1,411 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * An on-disk cache for the settings found in jar files and class-path directories. Entries are keyed by a SHA-256
+ * hash of the scanned content, so a jar that changed in any way is never served from the cache.
+ * <p>
+ * The settings found in a jar also depend on other classes: default values may be built from constants of other
+ * jars, and the extraction code itself may change. Thus, the key also covers the content of the declared dependencies
+ * (the KernelHaven jar and the libraries of the isolated class loaders), the Java version and
+ * {@link #EXTRACTION_VERSION}. Changing a dependency invalidates all entries; changing a scanned jar only invalidates
+ * the entry of that jar. Other scanned jars are not dependencies, even if they are on the class-path of this JVM.
+ */
+public class ScanCache {
+    
+    /**
+     * The version of the file format. Cache files with a different version are ignored.
+     */
+    private static final int FORMAT_VERSION = 1;
+    
+    /**
+     * The version of the code that extracts the settings from classes. Increase this whenever the extracted
+     * information changes, so that entries written by older versions are not used anymore.
+     */
+    private static final int EXTRACTION_VERSION = 2;
+    
+    private static final String SUFFIX = ".settings";
+    
+    private File directory;
+    
+    private List<File> dependencies;
+    
+    /**
+     * The hash over all {@link #dependencies}; <code>null</code> until it is calculated for the first key.
+     */
+    private String dependencyHash;
+    
+    /**
+     * Creates a {@link ScanCache}.
+     * 
+     * @param directory The directory to store the cache files in. Created if it does not exist, yet.
+     * @param dependencies The jar files and class-path directories that the scanned locations are loaded with, e.g.
+     *      the KernelHaven jar. Entries that don't exist are ignored. These are hashed only once, for the first key:
+     *      classes that this JVM already loaded from them don't change anymore, either.
+     */
+    public ScanCache(File directory, List<File> dependencies) {
+        this.directory = directory;
+        this.dependencies = new ArrayList<>(dependencies);
+    }
+    
+    /**
+     * Calculates the key of the cache entry for a jar file or class-path directory. This is a hash over the content
+     * of the location (see {@link #hash(File, boolean)}), the content of all dependencies, the Java version and
+     * {@link #EXTRACTION_VERSION}.
+     * 
+     * @param location The jar file or directory to calculate the key for.
+     * @param isDirectory Whether <code>location</code> is a class-path directory.
+     * @return The key as a hex string.
+     * 
+     * @throws IOException If reading the location or a dependency fails.
+     */
+    public String getKey(File location, boolean isDirectory) throws IOException {
+        return hashStrings(Integer.toString(EXTRACTION_VERSION), System.getProperty("java.version"),
+                getDependencyHash(), hash(location, isDirectory));
+    }
+    
+    /**
+     * Returns the hash over all {@link #dependencies}. Calculated on the first call.
+     * 
+     * @return The hash as a hex string.
+     * 
+     * @throws IOException If reading a dependency fails.
+     */
+    private synchronized String getDependencyHash() throws IOException {
+        if (dependencyHash == null) {
+            List<String> hashes = new ArrayList<>();
+            for (File dependency : dependencies) {
+                if (dependency.exists()) {
+                    hashes.add(dependency.getAbsolutePath());
+                    hashes.add(hash(dependency, dependency.isDirectory()));
+                }
+            }
+            dependencyHash = hashStrings(hashes.toArray(new String[hashes.size()]));
+        }
+        return dependencyHash;
+    }
+    
+    /**
+     * Creates a SHA-256 digest.
+     * 
+     * @return The new digest.
+     * 
+     * @throws IOException If the platform does not support SHA-256.
+     */
+    private static MessageDigest createDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e); // every Java platform is required to support SHA-256
+        }
+    }
+    
+    /**
+     * Calculates the hash over several strings.
+     * 
+     * @param strings The strings to hash; may contain <code>null</code>.
+     * @return The hash as a hex string.
+     * 
+     * @throws IOException If the platform does not support SHA-256.
+     */
+    private static String hashStrings(String... strings) throws IOException {
+        MessageDigest digest = createDigest();
+        for (String str : strings) {
+            digest.update(String.valueOf(str).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return toHex(digest.digest());
+    }
+    
+    /**
+     * Converts a hash to a hex string.
+     * 
+     * @param hash The bytes of the hash.
+     * @return The hex string.
+     */
+    private static String toHex(byte[] hash) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : hash) {
+            result.append(String.format("%02x", b & 0xFF));
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Calculates the hash of the content of a jar file or class-path directory, which is part of the key for this
+     * cache (see {@link #getKey(File, boolean)}). For jar files, this is the hash of the file content. For
+     * directories, this is the hash over the relative paths and contents of all .class files in it.
+     * 
+     * @param location The jar file or directory to hash.
+     * @param isDirectory Whether <code>location</code> is a class-path directory.
+     * @return The hash as a hex string.
+     * 
+     * @throws IOException If reading the location fails.
+     */
+    public static String hash(File location, boolean isDirectory) throws IOException {
+        MessageDigest digest = createDigest();
+        
+        if (isDirectory) {
+            Path root = location.toPath();
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(root)) {
+                classFiles = files
+                        .filter((path) -> Files.isRegularFile(path))
+                        .filter((path) -> path.toString().endsWith(".class"))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (Path path : classFiles) {
+                digest.update(root.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                update(digest, path.toFile());
+            }
+        } else {
+            update(digest, location);
+        }
+        
+        return toHex(digest.digest());
+    }
+    
+    /**
+     * Adds the length and content of the given file to the given digest.
+     * 
+     * @param digest The digest to update.
+     * @param file The file to read.
+     * 
+     * @throws IOException If reading the file fails.
+     */
+    private static void update(MessageDigest digest, File file) throws IOException {
+        byte[] length = new byte[8];
+        long size = file.length();
+        for (int i = 0; i < 8; i++) {
+            length[i] = (byte) (size >>> (56 - 8 * i));
+        }
+        digest.update(length);
+        
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+    
+    /**
+     * Loads the cached settings for the given key.
+     * 
+     * @param hash The key of the scanned location, as calculated by {@link #getKey(File, boolean)}.
+     * @return The cached settings; <code>null</code> if there is no (valid) cache entry for the given hash. Truncated
+     *      or otherwise corrupt cache files are treated as missing, so the location is scanned again.
+     */
+    public List<SettingInfo> load(String hash) {
+        File file = new File(directory, hash + SUFFIX);
+        List<SettingInfo> result = null;
+        
+        if (file.isFile()) {
+            // read the whole file, so that all lengths can be checked against the number of remaining bytes
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    Files.readAllBytes(file.toPath())))) {
+                
+                if (in.readInt() == FORMAT_VERSION) {
+                    int size = readLength(in, false);
+                    result = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        result.add(readSetting(in));
+                    }
+                }
+            
+            } catch (IOException | IllegalArgumentException e) {
+                // broken or outdated cache file; treat it as missing
+                result = null;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Stores the settings for the given key in the cache. An existing entry for the key is overwritten.
+     * 
+     * @param hash The key of the scanned location, as calculated by {@link #getKey(File, boolean)}.
+     * @param settings The settings found in the scanned location.
+     * 
+     * @throws IOException If writing the cache file fails.
+     */
+    public void store(String hash, List<SettingInfo> settings) throws IOException {
+        Files.createDirectories(directory.toPath());
+        
+        // write to a temporary file first, so that concurrent or aborted runs never see half-written entries
+        Path tmp = Files.createTempFile(directory.toPath(), hash, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(settings.size());
+                for (SettingInfo setting : settings) {
+                    writeSetting(out, setting);
+                }
+            }
+            
+            Path target = new File(directory, hash + SUFFIX).toPath();
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+    
+    /**
+     * Writes a single setting to the given stream.
+     * 
+     * @param out The stream to write to.
+     * @param setting The setting to write.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private static void writeSetting(DataOutputStream out, SettingInfo setting) throws IOException {
+        writeString(out, setting.getKey());
+        writeString(out, setting.getType().name());
+        writeString(out, setting.getNestedType() != null ? setting.getNestedType().name() : null);
+        writeString(out, setting.getDefaultValue());
+        out.writeBoolean(setting.isMandatory());
+        writeString(out, setting.getDescription());
+        
+        List<String> enumValues = setting.getEnumValues();
+        out.writeInt(enumValues != null ? enumValues.size() : -1);
+        if (enumValues != null) {
+            for (String value : enumValues) {
+                writeString(out, value);
+            }
+        }
+    }
+    
+    /**
+     * Reads a single setting from the given stream.
+     * 
+     * @param in The stream to read from.
+     * @return The setting read.
+     * 
+     * @throws IOException If reading fails or the data is corrupt.
+     */
+    private static SettingInfo readSetting(DataInputStream in) throws IOException {
+        String key = readString(in);
+        String type = readString(in);
+        String nestedType = readString(in);
+        String defaultValue = readString(in);
+        boolean mandatory = in.readBoolean();
+        String description = readString(in);
+        if (key == null || type == null) {
+            throw new IOException("Setting without key or type");
+        }
+        
+        List<String> enumValues = null;
+        int numEnumValues = readLength(in, true);
+        if (numEnumValues >= 0) {
+            enumValues = new ArrayList<>(numEnumValues);
+            for (int i = 0; i < numEnumValues; i++) {
+                enumValues.add(readString(in));
+            }
+        }
+        
+        return new SettingInfo(key, Type.valueOf(type), nestedType != null ? Type.valueOf(nestedType) : null,
+                defaultValue, mandatory, description, enumValues);
+    }
+    
+    /**
+     * Writes a string that may be <code>null</code>. Unlike {@link DataOutputStream#writeUTF(String)}, this has no
+     * length limit.
+     * 
+     * @param out The stream to write to.
+     * @param str The string to write. May be <code>null</code>.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     * 
+     * @param in The stream to read from.
+     * @return The string read. May be <code>null</code>.
+     * 
+     * @throws IOException If reading fails or the data is corrupt.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readLength(in, true);
+        String result = null;
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+    
+    /**
+     * Reads the length of a string or the number of elements of a list. Every element takes at least one byte, so a
+     * length that is larger than the number of remaining bytes can only come from a corrupt file; checking this
+     * before allocating prevents huge arrays for corrupt lengths.
+     * 
+     * @param in The stream to read from; must be backed by a {@link ByteArrayInputStream}, so that
+     *      {@link DataInputStream#available()} is the exact number of remaining bytes.
+     * @param nullable Whether -1 is allowed as the length of a <code>null</code> value.
+     * @return The length read; -1 only if <code>nullable</code> is <code>true</code>.
+     * 
+     * @throws IOException If reading fails or the length is negative or larger than the remaining bytes.
+     */
+    private static int readLength(DataInputStream in, boolean nullable) throws IOException {
+        int length = in.readInt();
+        if (length < (nullable ? -1 : 0) || length > in.available()) {
+            throw new IOException("Invalid length in cache file: " + length);
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,633 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects timings and counters while scanning and rendering. This is thread-safe, since sections may be scanned in
+ * parallel. The collected data can be written as a JSON report via {@link #writeJson(Appendable)}.
+ */
+public class ScanStatistics {
+    
+    /**
+     * The phases that times are recorded for.
+     */
+    public enum Phase {
+        
+        /**
+         * Listing the .class files of a jar or directory.
+         */
+        LISTING,
+        
+        /**
+         * Hashing a jar or directory for the {@link ScanCache}.
+         */
+        HASHING,
+        
+        /**
+         * Reading the bytes of .class files.
+         */
+        READING,
+        
+        /**
+         * Inspecting the bytecode of classes to find out which classes declare settings.
+         */
+        BYTECODE_FILTER,
+        
+        /**
+         * Loading classes (without initializing them).
+         */
+        CLASS_LOADING,
+        
+        /**
+         * Running the static initializers of classes.
+         */
+        CLASS_INITIALIZATION,
+        
+        /**
+         * Reading the {@link net.ssehub.kernel_haven.config.Setting} fields of loaded classes.
+         */
+        FIELD_READING,
+        
+        /**
+         * Writing the documentation text.
+         */
+        RENDERING;
+        
+        /**
+         * Returns the name of this phase as used in the JSON report.
+         * 
+         * @return The name in camel case.
+         */
+        private String jsonName() {
+            StringBuilder result = new StringBuilder();
+            boolean upper = false;
+            for (char c : name().toLowerCase(Locale.ROOT).toCharArray()) {
+                if (c == '_') {
+                    upper = true;
+                } else {
+                    result.append(upper ? Character.toUpperCase(c) : c);
+                    upper = false;
+                }
+            }
+            return result.toString();
+        }
+    
+    }
+    
+    /**
+     * The statistics of a single section (i.e. a single scanned location).
+     */
+    public static final class Section {
+        
+        private ScanStatistics parent;
+        
+        private String name;
+        
+        private File location;
+        
+        private AtomicLongArray phaseNanos;
+        
+        private AtomicLong totalNanos;
+        
+        private AtomicBoolean cacheHit;
+        
+        private AtomicLong classesVisited;
+        
+        private AtomicLong classesLoaded;
+        
+        private AtomicLong classesSkipped;
+        
+        private AtomicLong classesFailed;
+        
+        private AtomicLong classesReused;
+        
+        private AtomicLong settingsFound;
+        
+        private AtomicLong bytesRead;
+        
+        /**
+         * Creates the statistics for a section.
+         * 
+         * @param parent The statistics that this section belongs to; <code>null</code> if it is not recorded.
+         * @param name The name of the section.
+         * @param location The scanned location.
+         */
+        private Section(ScanStatistics parent, String name, File location) {
+            this.parent = parent;
+            this.name = name;
+            this.location = location;
+            this.phaseNanos = new AtomicLongArray(Phase.values().length);
+            this.totalNanos = new AtomicLong();
+            this.cacheHit = new AtomicBoolean();
+            this.classesVisited = new AtomicLong();
+            this.classesLoaded = new AtomicLong();
+            this.classesSkipped = new AtomicLong();
+            this.classesFailed = new AtomicLong();
+            this.classesReused = new AtomicLong();
+            this.settingsFound = new AtomicLong();
+            this.bytesRead = new AtomicLong();
+        }
+        
+        /**
+         * Returns the name of this section.
+         * 
+         * @return The name of the section.
+         */
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * Adds time spent in a phase.
+         * 
+         * @param phase The phase.
+         * @param nanos The time in nanoseconds.
+         */
+        public void addTime(Phase phase, long nanos) {
+            phaseNanos.addAndGet(phase.ordinal(), nanos);
+        }
+        
+        /**
+         * Adds to the total time spent on this section.
+         * 
+         * @param nanos The time in nanoseconds.
+         */
+        public void addTotalTime(long nanos) {
+            totalNanos.addAndGet(nanos);
+        }
+        
+        /**
+         * Records that the settings of this section were taken from the {@link ScanCache}.
+         */
+        public void cacheHit() {
+            cacheHit.set(true);
+        }
+        
+        /**
+         * Records that a .class file was visited (i.e. considered for loading).
+         * 
+         * @param numBytes The number of bytes read from the .class file.
+         */
+        public void classVisited(long numBytes) {
+            classesVisited.incrementAndGet();
+            bytesRead.addAndGet(numBytes);
+        }
+        
+        /**
+         * Records that a class was skipped without loading it.
+         */
+        public void classSkipped() {
+            classesSkipped.incrementAndGet();
+        }
+        
+        /**
+         * Records that a class was loaded and initialized.
+         * 
+         * @param className The name of the class.
+         * @param loadingNanos The time it took to load the class, in nanoseconds.
+         * @param initializationNanos The time it took to run the static initializer, in nanoseconds.
+         */
+        public void classLoaded(String className, long loadingNanos, long initializationNanos) {
+            classesLoaded.incrementAndGet();
+            addTime(Phase.CLASS_LOADING, loadingNanos);
+            addTime(Phase.CLASS_INITIALIZATION, initializationNanos);
+            if (parent != null) {
+                parent.recordInitialization(name, className, initializationNanos);
+            }
+        }
+        
+        /**
+         * Records that the settings of a class were taken from an earlier scan of another location that contains
+         * the same class, instead of loading it again.
+         */
+        public void classReused() {
+            classesReused.incrementAndGet();
+        }
+        
+        /**
+         * Records that a class could not be loaded or initialized in time, so that its settings are missing from this
+         * section.
+         * 
+         * @param className The name of the class.
+         * @param reason A short description of the failure.
+         */
+        public void classFailed(String className, String reason) {
+            classesFailed.incrementAndGet();
+            if (parent != null) {
+                parent.recordFailure(name, className, reason);
+            }
+        }
+        
+        /**
+         * Returns whether any class of this section failed to load (see {@link #classFailed(String, String)}).
+         * 
+         * @return Whether the settings of this section are incomplete.
+         */
+        public boolean hasFailures() {
+            return classesFailed.get() > 0;
+        }
+        
+        /**
+         * Records that the isolated class loader of this section could not be closed, e.g. because a class is still
+         * stuck in its static initializer. The classes of this section then stay in memory. This may be recorded
+         * after the scan of this section finished.
+         * 
+         * @param reason A short description of the failure.
+         */
+        public void classLoaderNotClosed(String reason) {
+            if (parent != null) {
+                parent.recordUnclosedClassLoader(name, location, reason);
+            }
+        }
+        
+        /**
+         * Records settings that were found.
+         * 
+         * @param numSettings The number of settings.
+         */
+        public void settingsFound(int numSettings) {
+            settingsFound.addAndGet(numSettings);
+        }
+        
+        /**
+         * Writes this section as a JSON object.
+         * 
+         * @param out The output to write to.
+         * 
+         * @throws IOException If writing fails.
+         */
+        private void writeJson(Appendable out) throws IOException {
+            out.append("{\"name\": ");
+            Json.writeString(out, name);
+            out.append(", \"location\": ");
+            Json.writeString(out, location != null ? location.getPath() : null);
+            out.append(", \"cacheHit\": ").append(String.valueOf(cacheHit.get()));
+            out.append(", \"totalNanos\": ").append(String.valueOf(totalNanos.get()));
+            out.append(", \"phaseNanos\": ");
+            writePhases(out, phaseNanos);
+            out.append(", \"classesVisited\": ").append(String.valueOf(classesVisited.get()));
+            out.append(", \"classesLoaded\": ").append(String.valueOf(classesLoaded.get()));
+            out.append(", \"classesSkipped\": ").append(String.valueOf(classesSkipped.get()));
+            out.append(", \"classesFailed\": ").append(String.valueOf(classesFailed.get()));
+            out.append(", \"classesReused\": ").append(String.valueOf(classesReused.get()));
+            out.append(", \"settingsFound\": ").append(String.valueOf(settingsFound.get()));
+            out.append(", \"bytesRead\": ").append(String.valueOf(bytesRead.get()));
+            out.append('}');
+        }
+    
+    }
+    
+    /**
+     * A class initialization that is a candidate for the list of slowest initializations.
+     */
+    private static final class Initialization {
+        
+        private String section;
+        
+        private String className;
+        
+        private long nanos;
+        
+        /**
+         * Creates an {@link Initialization}.
+         * 
+         * @param section The name of the section that the class was found in.
+         * @param className The name of the initialized class.
+         * @param nanos The time that the initialization took, in nanoseconds.
+         */
+        private Initialization(String section, String className, long nanos) {
+            this.section = section;
+            this.className = className;
+            this.nanos = nanos;
+        }
+    
+    }
+    
+    /**
+     * A class that could not be loaded or initialized.
+     */
+    private static final class Failure {
+        
+        private String section;
+        
+        private String className;
+        
+        private String reason;
+        
+        /**
+         * Creates a {@link Failure}.
+         * 
+         * @param section The name of the section that the class was found in.
+         * @param className The name of the failed class.
+         * @param reason A short description of the failure.
+         */
+        private Failure(String section, String className, String reason) {
+            this.section = section;
+            this.className = className;
+            this.reason = reason;
+        }
+    
+    }
+    
+    /**
+     * An isolated class loader that could not be closed.
+     */
+    private static final class UnclosedClassLoader {
+        
+        private String section;
+        
+        private File location;
+        
+        private String reason;
+        
+        /**
+         * Creates an {@link UnclosedClassLoader}.
+         * 
+         * @param section The name of the section that the class loader was created for.
+         * @param location The location that the class loader loaded classes from.
+         * @param reason A short description of the failure.
+         */
+        private UnclosedClassLoader(String section, File location, String reason) {
+            this.section = section;
+            this.location = location;
+            this.reason = reason;
+        }
+    
+    }
+    
+    /**
+     * The number of slowest class initializations that are kept for the report.
+     */
+    private static final int NUM_SLOWEST = 20;
+    
+    private long startNanos;
+    
+    private List<Section> sections;
+    
+    /**
+     * The slowest class initializations, at most {@link #NUM_SLOWEST}. The head is the fastest of these.
+     */
+    private PriorityQueue<Initialization> slowestInitializations;
+    
+    private List<Failure> failures;
+    
+    private List<UnclosedClassLoader> unclosedClassLoaders;
+    
+    /**
+     * Creates a new {@link ScanStatistics}. The total time of the report is measured from this point on.
+     */
+    public ScanStatistics() {
+        this.startNanos = System.nanoTime();
+        this.sections = new ArrayList<>();
+        this.slowestInitializations = new PriorityQueue<>(Comparator.comparingLong((init) -> init.nanos));
+        this.failures = new ArrayList<>();
+        this.unclosedClassLoaders = new ArrayList<>();
+    }
+    
+    /**
+     * Creates the statistics for a new section. Sections appear in the report in the order they are created. If a
+     * section with the same name and location was recorded before (i.e. the location is scanned again, e.g. by the
+     * {@link SettingDocumentationDaemon}), the new section takes its place, and the failures, slowest
+     * initializations and unclosed class loaders of the previous scan are dropped. Thus, the report doesn't grow
+     * with every scan.
+     * 
+     * @param name The name of the section.
+     * @param location The location that is scanned for this section.
+     * 
+     * @return The statistics of the new section.
+     */
+    public Section startSection(String name, File location) {
+        Section result = new Section(this, name, location);
+        boolean replaced = false;
+        synchronized (sections) {
+            for (int i = 0; i < sections.size() && !replaced; i++) {
+                Section previous = sections.get(i);
+                if (previous.name.equals(name) && Objects.equals(previous.location, location)) {
+                    sections.set(i, result);
+                    replaced = true;
+                }
+            }
+            if (!replaced) {
+                sections.add(result);
+            }
+        }
+        
+        if (replaced) {
+            synchronized (failures) {
+                failures.removeIf((failure) -> failure.section.equals(name));
+            }
+            synchronized (slowestInitializations) {
+                slowestInitializations.removeIf((init) -> init.section.equals(name));
+            }
+            synchronized (unclosedClassLoaders) {
+                unclosedClassLoaders.removeIf((loader) -> loader.section.equals(name));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Creates statistics for a section that don't belong to any report. Used when no statistics should be collected,
+     * so that scanning code doesn't have to check for <code>null</code>.
+     * 
+     * @param name The name of the section.
+     * @param location The location that is scanned for this section.
+     * 
+     * @return The statistics of the section, which are discarded after the scan.
+     */
+    static Section unrecorded(String name, File location) {
+        return new Section(null, name, location);
+    }
+    
+    /**
+     * Records the time it took to render a section. Added to the last section with the given name.
+     * 
+     * @param name The name of the rendered section.
+     * @param nanos The time in nanoseconds.
+     */
+    public void recordRendering(String name, long nanos) {
+        Section section = null;
+        synchronized (sections) {
+            for (int i = sections.size() - 1; i >= 0 && section == null; i--) {
+                if (sections.get(i).name.equals(name)) {
+                    section = sections.get(i);
+                }
+            }
+        }
+        if (section == null) {
+            section = startSection(name, null);
+        }
+        section.addTime(Phase.RENDERING, nanos);
+    }
+    
+    /**
+     * Records a class initialization for the list of slowest initializations.
+     * 
+     * @param section The name of the section that the class was found in.
+     * @param className The name of the initialized class.
+     * @param nanos The time that the initialization took, in nanoseconds.
+     */
+    private void recordInitialization(String section, String className, long nanos) {
+        synchronized (slowestInitializations) {
+            if (slowestInitializations.size() < NUM_SLOWEST) {
+                slowestInitializations.add(new Initialization(section, className, nanos));
+            } else if (slowestInitializations.peek().nanos < nanos) {
+                slowestInitializations.poll();
+                slowestInitializations.add(new Initialization(section, className, nanos));
+            }
+        }
+    }
+    
+    /**
+     * Records a class that could not be loaded or initialized.
+     * 
+     * @param section The name of the section that the class was found in.
+     * @param className The name of the failed class.
+     * @param reason A short description of the failure.
+     */
+    private void recordFailure(String section, String className, String reason) {
+        synchronized (failures) {
+            failures.add(new Failure(section, className, reason));
+        }
+    }
+    
+    /**
+     * Records an isolated class loader that could not be closed.
+     * 
+     * @param section The name of the section that the class loader was created for.
+     * @param location The location that the class loader loaded classes from.
+     * @param reason A short description of the failure.
+     */
+    private void recordUnclosedClassLoader(String section, File location, String reason) {
+        synchronized (unclosedClassLoaders) {
+            unclosedClassLoaders.add(new UnclosedClassLoader(section, location, reason));
+        }
+    }
+    
+    /**
+     * Writes the report as a JSON object. This contains the total time since the creation of this object, the sum of
+     * the time spent in each phase, the statistics of each section, the slowest class initializations, the classes
+     * that failed to load and the isolated class loaders that could not be closed.
+     * 
+     * @param out The output to write to.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        List<Section> sectionsCopy;
+        synchronized (sections) {
+            sectionsCopy = new ArrayList<>(sections);
+        }
+        List<Initialization> slowest;
+        synchronized (slowestInitializations) {
+            slowest = new ArrayList<>(slowestInitializations);
+        }
+        slowest.sort(Comparator.comparingLong((Initialization init) -> init.nanos).reversed());
+        List<Failure> failed;
+        synchronized (failures) {
+            failed = new ArrayList<>(failures);
+        }
+        List<UnclosedClassLoader> unclosed;
+        synchronized (unclosedClassLoaders) {
+            unclosed = new ArrayList<>(unclosedClassLoaders);
+        }
+        
+        AtomicLongArray totalPhases = new AtomicLongArray(Phase.values().length);
+        for (Section section : sectionsCopy) {
+            for (int i = 0; i < totalPhases.length(); i++) {
+                totalPhases.addAndGet(i, section.phaseNanos.get(i));
+            }
+        }
+        
+        out.append("{\n  \"totalNanos\": ").append(String.valueOf(System.nanoTime() - startNanos));
+        out.append(",\n  \"phaseNanos\": ");
+        writePhases(out, totalPhases);
+        
+        out.append(",\n  \"sections\": [");
+        for (int i = 0; i < sectionsCopy.size(); i++) {
+            out.append(i == 0 ? "\n    " : ",\n    ");
+            sectionsCopy.get(i).writeJson(out);
+        }
+        
+        out.append("\n  ],\n  \"slowestClassInitializations\": [");
+        for (int i = 0; i < slowest.size(); i++) {
+            out.append(i == 0 ? "\n    " : ",\n    ");
+            out.append("{\"class\": ");
+            Json.writeString(out, slowest.get(i).className);
+            out.append(", \"section\": ");
+            Json.writeString(out, slowest.get(i).section);
+            out.append(", \"nanos\": ").append(String.valueOf(slowest.get(i).nanos)).append('}');
+        }
+        
+        out.append("\n  ],\n  \"failedClasses\": [");
+        for (int i = 0; i < failed.size(); i++) {
+            out.append(i == 0 ? "\n    " : ",\n    ");
+            out.append("{\"class\": ");
+            Json.writeString(out, failed.get(i).className);
+            out.append(", \"section\": ");
+            Json.writeString(out, failed.get(i).section);
+            out.append(", \"reason\": ");
+            Json.writeString(out, failed.get(i).reason);
+            out.append('}');
+        }
+        
+        out.append("\n  ],\n  \"unclosedClassLoaders\": [");
+        for (int i = 0; i < unclosed.size(); i++) {
+            out.append(i == 0 ? "\n    " : ",\n    ");
+            out.append("{\"section\": ");
+            Json.writeString(out, unclosed.get(i).section);
+            out.append(", \"location\": ");
+            Json.writeString(out, unclosed.get(i).location != null ? unclosed.get(i).location.getPath() : null);
+            out.append(", \"reason\": ");
+            Json.writeString(out, unclosed.get(i).reason);
+            out.append('}');
+        }
+        out.append("\n  ]\n}\n");
+    }
+    
+    /**
+     * Writes the phase times as a JSON object.
+     * 
+     * @param out The output to write to.
+     * @param phaseNanos The times of the phases, indexed by {@link Phase#ordinal()}.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private static void writePhases(Appendable out, AtomicLongArray phaseNanos) throws IOException {
+        out.append('{');
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                out.append(", ");
+            }
+            out.append('"').append(phase.jsonName()).append("\": ")
+                .append(String.valueOf(phaseNanos.get(phase.ordinal())));
+        }
+        out.append('}');
+    }
+
+}
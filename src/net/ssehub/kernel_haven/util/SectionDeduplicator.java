@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Removes settings that were already found in an earlier section. Classes bundled in several jars (e.g. shaded
+ * copies of the infrastructure) are thus only documented in the first section that contains them. Sections have to
+ * be added in their final order.
+ */
+class SectionDeduplicator {
+    
+    /**
+     * The first definition of each setting key that was added.
+     */
+    private Map<String, SettingInfo> seenSettings;
+    
+    /**
+     * The name of the section that each key in {@link #seenSettings} was first added in.
+     */
+    private Map<String, String> seenSections;
+    
+    /**
+     * Creates an empty {@link SectionDeduplicator}.
+     */
+    SectionDeduplicator() {
+        this.seenSettings = new HashMap<>();
+        this.seenSections = new HashMap<>();
+    }
+    
+    /**
+     * Adds a section. Settings with a key that was already added before are dropped. If the earlier definition
+     * differs in type, default value, mandatory flag or enum values, the earlier definition is still the only one
+     * that is kept, and the conflict is printed to {@link System#err}.
+     * 
+     * @param sectionName The name of the section.
+     * @param section The settings of the section.
+     * @return The settings of the section without the dropped duplicates.
+     */
+    List<SettingInfo> add(String sectionName, List<SettingInfo> section) {
+        List<SettingInfo> result = new ArrayList<>(section.size());
+        
+        for (SettingInfo setting : section) {
+            SettingInfo previous = seenSettings.putIfAbsent(setting.getKey(), setting);
+            if (previous == null) {
+                seenSections.put(setting.getKey(), sectionName);
+                result.add(setting);
+                
+            } else {
+                String conflict = findConflict(previous, setting);
+                if (conflict != null) {
+                    System.err.println("Setting " + setting.getKey() + " in " + sectionName
+                            + " conflicts with its definition in " + seenSections.get(setting.getKey()) + ": "
+                            + conflict + "; only the definition in " + seenSections.get(setting.getKey())
+                            + " is documented");
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Compares two definitions of the same setting key.
+     * 
+     * @param previous The definition that was found first.
+     * @param setting The definition that was found later.
+     * @return A description of the first difference; <code>null</code> if both definitions are compatible (they
+     *      may still differ in their description).
+     */
+    private static String findConflict(SettingInfo previous, SettingInfo setting) {
+        String result = null;
+        if (previous.getType() != setting.getType() || previous.getNestedType() != setting.getNestedType()) {
+            result = "type " + SettingDocumentationGenerator.typeToString(previous) + " vs. "
+                    + SettingDocumentationGenerator.typeToString(setting);
+        } else if (!Objects.equals(previous.getDefaultValue(), setting.getDefaultValue())) {
+            result = "default value " + previous.getDefaultValue() + " vs. " + setting.getDefaultValue();
+        } else if (previous.isMandatory() != setting.isMandatory()) {
+            result = "mandatory " + previous.isMandatory() + " vs. " + setting.isMandatory();
+        } else if (!Objects.equals(previous.getEnumValues(), setting.getEnumValues())) {
+            result = "enum values " + previous.getEnumValues() + " vs. " + setting.getEnumValues();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable collection of the settings of several sections. All settings are stored in a single array, section by
+ * section; sections are ranges in this array. Equal keys and equal lists of enum values are shared between all
+ * settings of the catalog, so that plugins that are scanned several times (or enums that are used by several
+ * settings) don't use additional memory for these.
+ */
+public final class SettingCatalog {
+    
+    private String[] sectionNames;
+    
+    /**
+     * The start index of each section in {@link #settings}. Has one more element than {@link #sectionNames}; the last
+     * element is the total number of settings.
+     */
+    private int[] sectionStarts;
+    
+    private SettingInfo[] settings;
+    
+    /**
+     * The indices of all {@link #settings}, sorted by key. Settings with the same key are in the order of their
+     * sections.
+     */
+    private int[] sortedByKey;
+    
+    /**
+     * The keys of all {@link #settings} in the order of {@link #sortedByKey}, so that lookups compare keys in a
+     * contiguous array.
+     */
+    private String[] sortedKeys;
+    
+    /**
+     * Creates a {@link SettingCatalog}.
+     * 
+     * @param sectionNames The names of the sections.
+     * @param sections The settings of each section; same size and order as <code>sectionNames</code>.
+     */
+    public SettingCatalog(List<String> sectionNames, List<? extends List<SettingInfo>> sections) {
+        if (sectionNames.size() != sections.size()) {
+            throw new IllegalArgumentException("Got " + sectionNames.size() + " section names but "
+                    + sections.size() + " sections");
+        }
+        
+        this.sectionNames = sectionNames.toArray(new String[sectionNames.size()]);
+        this.sectionStarts = new int[sections.size() + 1];
+        
+        int numSettings = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            sectionStarts[i] = numSettings;
+            numSettings += sections.get(i).size();
+        }
+        sectionStarts[sections.size()] = numSettings;
+        
+        Map<String, String> keys = new HashMap<>();
+        Map<List<String>, List<String>> enumValues = new HashMap<>();
+        
+        this.settings = new SettingInfo[numSettings];
+        int index = 0;
+        for (List<SettingInfo> section : sections) {
+            for (SettingInfo setting : section) {
+                settings[index++] = setting.share(keys, enumValues);
+            }
+        }
+        
+        // Arrays.sort() on objects is stable, so settings with the same key stay in section order
+        Integer[] indices = new Integer[numSettings];
+        for (int i = 0; i < numSettings; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, (first, second) -> settings[first].getKey().compareTo(settings[second].getKey()));
+        
+        this.sortedKeys = new String[numSettings];
+        this.sortedByKey = new int[numSettings];
+        for (int i = 0; i < numSettings; i++) {
+            sortedByKey[i] = indices[i];
+            sortedKeys[i] = settings[indices[i]].getKey();
+        }
+    }
+    
+    /**
+     * Returns the number of sections.
+     * 
+     * @return The number of sections.
+     */
+    public int getNumSections() {
+        return sectionNames.length;
+    }
+    
+    /**
+     * Returns the name of a section.
+     * 
+     * @param section The index of the section.
+     * @return The name of the section.
+     */
+    public String getSectionName(int section) {
+        return sectionNames[section];
+    }
+    
+    /**
+     * Returns the names of all sections.
+     * 
+     * @return An unmodifiable list of the section names.
+     */
+    public List<String> getSectionNames() {
+        return Collections.unmodifiableList(Arrays.asList(sectionNames));
+    }
+    
+    /**
+     * Returns the settings of a section.
+     * 
+     * @param section The index of the section.
+     * @return An unmodifiable view of the settings of the section.
+     */
+    public List<SettingInfo> getSection(int section) {
+        return Collections.unmodifiableList(
+                Arrays.asList(settings).subList(sectionStarts[section], sectionStarts[section + 1]));
+    }
+    
+    /**
+     * Returns the total number of settings in all sections.
+     * 
+     * @return The number of settings.
+     */
+    public int getNumSettings() {
+        return settings.length;
+    }
+    
+    /**
+     * Returns the settings of all sections, section by section.
+     * 
+     * @return An unmodifiable view of all settings.
+     */
+    public List<SettingInfo> getSettings() {
+        return Collections.unmodifiableList(Arrays.asList(settings));
+    }
+    
+    /**
+     * Finds the setting with the given key. If several sections contain a setting with this key, the one from the
+     * first of these sections is returned.
+     * 
+     * @param key The key of the setting.
+     * @return The setting; <code>null</code> if there is no setting with the given key.
+     */
+    public SettingInfo getSetting(String key) {
+        int low = 0;
+        int high = sortedKeys.length;
+        // find the first index with a key that is not smaller than the given key
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedKeys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        
+        SettingInfo result = null;
+        if (low < sortedKeys.length && sortedKeys[low].equals(key)) {
+            result = settings[sortedByKey[low]];
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the possible values of the {@link net.ssehub.kernel_haven.config.EnumSetting} with the given key.
+     * 
+     * @param key The key of the setting.
+     * @return The names of the enum constants; <code>null</code> if there is no enum setting with the given key.
+     */
+    public List<String> getEnumValues(String key) {
+        SettingInfo setting = getSetting(key);
+        return setting != null ? setting.getEnumValues() : null;
+    }
+
+}
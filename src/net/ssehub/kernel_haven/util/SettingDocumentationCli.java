@@ -0,0 +1,513 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import net.ssehub.kernel_haven.config.Setting;
+
+/**
+ * The command line interface of the {@link SettingDocumentationGenerator}. Parses the options described at
+ * {@link SettingDocumentationGenerator#main(String[])}, configures a generator accordingly and runs the requested
+ * mode.
+ */
+final class SettingDocumentationCli {
+    
+    /**
+     * The names of all options that are described at {@link SettingDocumentationGenerator#main(String[])}.
+     */
+    private static final Set<String> OPTIONS = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(
+            "parallel", "cache", "isolated", "daemon", "report", "validate", "format", "discover", "index", "diff",
+            "search", "class-timeout")));
+    
+    /**
+     * Don't allow any instances.
+     */
+    private SettingDocumentationCli() {
+    }
+    
+    /**
+     * Runs the generator with the given command line arguments.
+     * 
+     * @param args The command line arguments, see {@link SettingDocumentationGenerator#main(String[])}.
+     * @return The exit code: 0 on success, 1 if a configuration file is invalid or there are breaking changes,
+     *      {@link CatalogDiff#EXIT_UNREADABLE_INDEX} if the index to compare with can not be read.
+     * 
+     * @throws IOException If finding the settings or writing any of the outputs fails.
+     */
+    static int run(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        int firstLocation = parseOptions(args, options);
+        
+        List<File> locations = new ArrayList<>();
+        List<String> sectionNames = new ArrayList<>();
+        addLocations(args, firstLocation, options, locations, sectionNames);
+        
+        if (options.containsKey("daemon") || getNumThreads(options) > 1) {
+            // the daemon has to reload changed classes, and concurrent scans must not share a class loader
+            options.putIfAbsent("isolated", "");
+        }
+        
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        configure(generator, options);
+        
+        int exitCode = 0;
+        if (options.containsKey("daemon")) {
+            runDaemon(generator, locations, sectionNames, options);
+            
+        } else if (options.containsKey("validate")) {
+            exitCode = runValidation(generator, locations, sectionNames, options) ? 0 : 1;
+            
+        } else if (options.containsKey("diff")) {
+            exitCode = runDiff(generator, locations, sectionNames, options);
+            
+        } else if (options.containsKey("search")) {
+            runSearch(generator, locations, sectionNames, options);
+            
+        } else if (options.containsKey("format")) {
+            runRenderers(generator, locations, sectionNames, options);
+            
+        } else {
+            // sections are written as soon as they are scanned
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            generator.generateSettingText(locations, sectionNames, getNumThreads(options), out);
+            out.flush();
+        }
+        
+        // nothing was scanned if the index to compare with can not be read
+        if (exitCode != CatalogDiff.EXIT_UNREADABLE_INDEX) {
+            if (options.containsKey("index")) {
+                SettingIndexWriter.write(generator.getCatalog(), new File(options.get("index")));
+            }
+            if (generator.getStatistics() != null) {
+                writeReport(generator.getStatistics(), options.get("report"));
+            }
+        }
+        return exitCode;
+    }
+    
+    /**
+     * Adds the locations and section names given on the command line. If neither locations nor the
+     * <code>--discover</code> option are given, the public KernelHaven eclipse projects are added.
+     * 
+     * @param args The command line arguments.
+     * @param firstLocation The index of the first argument after the options.
+     * @param options The parsed command line options.
+     * @param locations The list to add the jar files or class-path directories to.
+     * @param sectionNames The list to add the section names to; same order as <code>locations</code>.
+     * 
+     * @throws IOException If discovering the plugin jars fails.
+     */
+    private static void addLocations(String[] args, int firstLocation, Map<String, String> options,
+            List<File> locations, List<String> sectionNames) throws IOException {
+        
+        if (firstLocation == args.length && !options.containsKey("discover")) {
+            // this branch is taken when locally executing this from Eclipse with no java parameters
+            // visit all Eclipse project in the current work space
+            PluginDiscovery.addKnownProjects(new File(".."), locations, sectionNames);
+            
+        } else {
+            // this branch is taken when called from Ant
+            // command line arguments are jar locations followed by the section name
+            
+            if ((args.length - firstLocation) % 2 != 0) {
+                throw new IllegalArgumentException("Expecting: [options] (<jarfile> <section name>)*");
+            }
+            
+            for (int i = firstLocation; i < args.length; i += 2) {
+                locations.add(new File(args[i]));
+                sectionNames.add(args[i + 1]);
+            }
+        }
+        
+        if (options.containsKey("discover")) {
+            // discovered plugins are added after the explicitly given ones
+            PluginDiscovery.discover(new File(options.get("discover")), locations, sectionNames);
+        }
+    }
+    
+    /**
+     * Parses the leading options (<code>--name</code> or <code>--name=value</code>) of the command line arguments.
+     * 
+     * @param args The command line arguments.
+     * @param options The map to store the parsed options in. Options without a value are mapped to an empty string.
+     * 
+     * @return The index of the first argument that is not an option.
+     * 
+     * @throws IllegalArgumentException If an option is not one of the {@link #OPTIONS}.
+     */
+    static int parseOptions(String[] args, Map<String, String> options) {
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            int equals = args[i].indexOf('=');
+            String name = equals == -1 ? args[i].substring(2) : args[i].substring(2, equals);
+            if (!OPTIONS.contains(name)) {
+                // a misspelled option would otherwise silently select a different mode
+                throw new IllegalArgumentException("Unknown option: " + args[i] + "; valid options are --"
+                        + String.join(", --", OPTIONS));
+            }
+            options.put(name, equals == -1 ? "" : args[i].substring(equals + 1));
+        }
+        return i;
+    }
+    
+    /**
+     * Configures the given generator based on the command line options.
+     * 
+     * @param generator The generator to configure.
+     * @param options The parsed command line options.
+     * 
+     * @throws IOException If a library jar for the isolated class loaders can not be found.
+     */
+    private static void configure(SettingDocumentationGenerator generator, Map<String, String> options)
+            throws IOException {
+        
+        // the settings of a scanned jar depend on the KernelHaven classes and the isolated libraries; other plugin
+        // jars (on the class-path, or the other scanned jars that isolated class loaders fall back to) are not
+        // tracked, so that changing one jar only invalidates its own cache entry
+        List<File> dependencies = new ArrayList<>();
+        CodeSource kernelHaven = Setting.class.getProtectionDomain().getCodeSource();
+        if (kernelHaven != null) {
+            try {
+                dependencies.add(new File(kernelHaven.getLocation().toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid location of KernelHaven: " + kernelHaven.getLocation(), e);
+            }
+        }
+        
+        if (options.containsKey("isolated")) {
+            ClassLoader parent = SettingDocumentationCli.class.getClassLoader();
+            
+            String libraries = options.get("isolated");
+            if (!libraries.isEmpty()) {
+                List<URL> urls = new ArrayList<>();
+                for (String library : libraries.split(File.pathSeparator)) {
+                    File file = new File(library);
+                    if (!file.exists()) {
+                        throw new FileNotFoundException("Library " + library + " does not exist");
+                    }
+                    urls.add(file.toURI().toURL());
+                    dependencies.add(file);
+                }
+                // this stays open until the JVM exits
+                parent = new URLClassLoader(urls.toArray(new URL[urls.size()]), parent);
+            }
+            
+            generator.setIsolatedClassLoaders(parent);
+        }
+        
+        if (options.containsKey("cache")) {
+            generator.setCache(new ScanCache(new File(options.get("cache")), dependencies));
+        }
+        
+        if (options.containsKey("report")) {
+            generator.setStatistics(new ScanStatistics());
+        }
+        
+        if (options.containsKey("class-timeout")) {
+            try {
+                generator.setClassTimeout(Long.parseLong(options.get("class-timeout")));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid class timeout: " + options.get("class-timeout"), e);
+            }
+        }
+    }
+    
+    /**
+     * Writes the JSON report of the given statistics, as requested by the <code>--report</code> option.
+     * 
+     * @param statistics The statistics to write.
+     * @param target The value of the <code>--report</code> option: the file to write to, or an empty string or
+     *      <code>-</code> for {@link System#err}.
+     * 
+     * @throws IOException If writing the report fails.
+     */
+    private static void writeReport(ScanStatistics statistics, String target) throws IOException {
+        if (target.isEmpty() || target.equals("-")) {
+            Writer out = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+            statistics.writeJson(out);
+            out.flush();
+        } else {
+            try (Writer out = Files.newBufferedWriter(new File(target).toPath(), StandardCharsets.UTF_8)) {
+                statistics.writeJson(out);
+            }
+        }
+    }
+    
+    /**
+     * Scans the given locations and prints the changes compared to the index file given in the <code>--diff</code>
+     * option as a changelog to {@link System#out}. See {@link CatalogDiff}. The old index is read before scanning;
+     * if it can not be read, nothing is scanned.
+     * 
+     * @param generator The generator to scan with.
+     * @param locations The jar files or class-path directories to scan.
+     * @param sectionNames The section names for the locations.
+     * @param options The parsed command line options.
+     * @return The exit code: 0 if there are no breaking changes, 1 if there are breaking changes and
+     *      {@link CatalogDiff#EXIT_UNREADABLE_INDEX} if the old index can not be read.
+     * 
+     * @throws IOException If scanning or writing the changelog fails.
+     */
+    private static int runDiff(SettingDocumentationGenerator generator, List<File> locations,
+            List<String> sectionNames, Map<String, String> options) throws IOException {
+        
+        int exitCode = CatalogDiff.EXIT_UNREADABLE_INDEX;
+        SettingIndex oldIndex = CatalogDiff.readIndex(new File(options.get("diff")));
+        if (oldIndex != null) {
+            generator.findSettingsInAll(locations, sectionNames, getNumThreads(options));
+            
+            // the comparison works on indices, so create one for the new settings in memory
+            CatalogDiff diff = CatalogDiff.compare(oldIndex, SettingIndexWriter.toIndex(generator.getCatalog()));
+            
+            Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            diff.writeChangelog(out);
+            out.flush();
+            exitCode = diff.hasBreakingChanges() ? 1 : 0;
+        }
+        return exitCode;
+    }
+    
+    /**
+     * Builds a {@link SettingSearchIndex} and answers search queries from {@link System#in}, one per line, until the
+     * end of the input. The settings are read from the index file given in the <code>--search</code> option, or
+     * found by scanning the given locations if no file is given.
+     * 
+     * @param generator The generator to scan with.
+     * @param locations The jar files or class-path directories to scan.
+     * @param sectionNames The section names for the locations.
+     * @param options The parsed command line options.
+     * 
+     * @throws IOException If scanning, reading the index or reading the queries fails.
+     */
+    private static void runSearch(SettingDocumentationGenerator generator, List<File> locations,
+            List<String> sectionNames, Map<String, String> options) throws IOException {
+        
+        SettingSearchIndex index;
+        if (!options.get("search").isEmpty()) {
+            index = SettingSearchIndex.of(SettingIndex.open(new File(options.get("search"))));
+        } else {
+            generator.findSettingsInAll(locations, sectionNames, getNumThreads(options));
+            index = SettingSearchIndex.of(generator.getCatalog());
+        }
+        
+        index.answerQueries(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Runs the {@link SettingDocumentationDaemon} until a client shuts it down.
+     * 
+     * @param generator The configured generator.
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations.
+     * @param options The parsed command line options.
+     * 
+     * @throws IOException If scanning or opening the server socket fails.
+     */
+    private static void runDaemon(SettingDocumentationGenerator generator, List<File> locations,
+            List<String> sectionNames, Map<String, String> options) throws IOException {
+        
+        int port;
+        try {
+            port = Integer.parseInt(options.get("daemon"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port: " + options.get("daemon"), e);
+        }
+        
+        try (SettingDocumentationDaemon daemon = new SettingDocumentationDaemon(generator, locations, sectionNames)) {
+            String report = options.get("report");
+            if (report != null && !report.isEmpty() && !report.equals("-")) {
+                // keep the report up to date while running; the final report is written when the daemon quits
+                daemon.setReportFile(new File(report));
+            }
+            daemon.start(getNumThreads(options));
+            daemon.serve(port);
+        }
+    }
+    
+    /**
+     * Scans all locations and validates the configuration files given by the <code>--validate</code> option against
+     * the found settings. The problems are written to {@link System#out} as UTF-8, one per line and prefixed with the
+     * file name.
+     * 
+     * @param generator The configured generator.
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations.
+     * @param options The parsed command line options.
+     * 
+     * @return Whether all configuration files are valid.
+     * 
+     * @throws IOException If scanning or listing the configuration files fails.
+     */
+    private static boolean runValidation(SettingDocumentationGenerator generator, List<File> locations,
+            List<String> sectionNames, Map<String, String> options) throws IOException {
+        
+        List<File> configFiles = new ArrayList<>();
+        for (String path : options.get("validate").split(File.pathSeparator)) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                try (Stream<Path> files = Files.walk(file.toPath())) {
+                    files
+                        .filter((entry) -> Files.isRegularFile(entry) && entry.toString().endsWith(".properties"))
+                        .sorted()
+                        .forEach((entry) -> configFiles.add(entry.toFile()));
+                }
+            } else {
+                configFiles.add(file);
+            }
+        }
+        
+        int numThreads = getNumThreads(options);
+        generator.findSettingsInAll(locations, sectionNames, numThreads);
+        ConfigValidator validator = new ConfigValidator(generator.getCatalog());
+        List<List<String>> problems = validator.validateAll(configFiles, numThreads);
+        
+        // written like the changelog of --diff, so that the output has the same encoding in all modes
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        boolean valid = true;
+        for (int i = 0; i < configFiles.size(); i++) {
+            for (String problem : problems.get(i)) {
+                out.append(configFiles.get(i).getPath()).append(": ").append(problem).append('\n');
+                valid = false;
+            }
+        }
+        out.flush();
+        return valid;
+    }
+    
+    /**
+     * Scans all locations and renders the documentation in the formats given by the <code>--format</code> option.
+     * 
+     * @param generator The configured generator.
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations.
+     * @param options The parsed command line options.
+     * 
+     * @throws IOException If scanning or writing any of the outputs fails.
+     */
+    private static void runRenderers(SettingDocumentationGenerator generator, List<File> locations,
+            List<String> sectionNames, Map<String, String> options) throws IOException {
+        
+        List<SettingRenderer> renderers = new ArrayList<>();
+        List<Writer> outputs = new ArrayList<>();
+        Writer stdout = null;
+        try {
+            for (String format : options.get("format").split(",")) {
+                int equals = format.indexOf('=');
+                String name = equals == -1 ? format : format.substring(0, equals);
+                renderers.add(createRenderer(generator, name.trim()));
+                
+                if (equals == -1) {
+                    if (stdout != null) {
+                        throw new IllegalArgumentException("Only one format can be written to stdout");
+                    }
+                    stdout = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                    outputs.add(stdout);
+                } else {
+                    outputs.add(Files.newBufferedWriter(new File(format.substring(equals + 1)).toPath(),
+                            StandardCharsets.UTF_8));
+                }
+            }
+            
+            generator.findSettingsInAll(locations, sectionNames, getNumThreads(options));
+            generator.render(renderers, outputs);
+            
+        } finally {
+            for (Writer output : outputs) {
+                if (output != stdout) {
+                    output.close();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Creates the renderer for a format name of the <code>--format</code> option.
+     * 
+     * @param generator The generator for the properties format.
+     * @param format The name of the format: <code>properties</code>, <code>markdown</code>, <code>html</code> or
+     *      <code>json</code>.
+     * @return The renderer for the format.
+     */
+    private static SettingRenderer createRenderer(SettingDocumentationGenerator generator, String format) {
+        SettingRenderer result;
+        switch (format) {
+        case "properties":
+            result = new PropertiesRenderer(generator);
+            break;
+        case "markdown":
+            result = new MarkdownRenderer();
+            break;
+        case "html":
+            result = new HtmlRenderer();
+            break;
+        case "json":
+            result = new JsonRenderer();
+            break;
+            
+        default:
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        return result;
+    }
+    
+    /**
+     * Determines the number of threads to scan with from the <code>--parallel</code> option.
+     * 
+     * @param options The parsed command line options.
+     * @return The number of threads; 1 if sections should be scanned sequentially.
+     */
+    private static int getNumThreads(Map<String, String> options) {
+        String value = options.get("parallel");
+        int result;
+        if (value == null) {
+            result = 1;
+        } else if (value.isEmpty()) {
+            result = Runtime.getRuntime().availableProcessors();
+        } else {
+            try {
+                result = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number of threads: " + value, e);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A long-running server that keeps the scanned settings in memory. The scanned jar files and class-path directories
+ * are watched for changes; only the sections of changed locations are scanned again. The rendered documentation text
+ * is served over a local socket.
+ * <p>
+ * The protocol is line based: a client connects to the loopback interface and sends one command per connection.
+ * <ul>
+ *  <li><code>render</code>: The server responds with the documentation text and closes the connection.</li>
+ *  <li><code>rescan</code>: All sections are scanned again; the server responds with <code>ok</code>.</li>
+ *  <li><code>quit</code>: The server responds with <code>ok</code> and shuts down.</li>
+ * </ul>
+ * For example: <code>echo render | nc localhost 4711 &gt; config_template.properties</code>
+ * <p>
+ * The generator has to use isolated class loaders (see
+ * {@link SettingDocumentationGenerator#setIsolatedClassLoaders(ClassLoader)}), so that the classes of a changed
+ * location are loaded again. Locations that are also in the class-path of this JVM (e.g. the KernelHaven
+ * infrastructure) are loaded from there and can't be reloaded; these are not scanned again when they change.
+ */
+public class SettingDocumentationDaemon implements Closeable {
+    
+    /**
+     * The time in milliseconds to wait for further file system events before scanning changed sections. Copying a jar
+     * usually creates several events; this makes sure that it is scanned only once, after it is written completely.
+     */
+    private static final long QUIET_PERIOD_MS = 500;
+    
+    /**
+     * The time in milliseconds that a client may take to send its command.
+     */
+    private static final int CLIENT_TIMEOUT_MS = 10000;
+    
+    private SettingDocumentationGenerator generator;
+    
+    private List<File> locations;
+    
+    private List<String> sectionNames;
+    
+    /**
+     * The settings found in each location, before duplicates across sections are removed; same indices as
+     * {@link #locations}.
+     */
+    private List<List<SettingInfo>> scannedSections;
+    
+    /**
+     * The UTF-8 encoded text of all sections, i.e. the documentation text without the file header. This is replaced
+     * (not modified) whenever a section changes.
+     */
+    private volatile byte[] body;
+    
+    /**
+     * Serializes all rescans of the watcher thread and of clients; the generator must not scan concurrently.
+     */
+    private Object rescanLock;
+    
+    private WatchService watchService;
+    
+    /**
+     * The directories watched by {@link #watchService}.
+     */
+    private Map<WatchKey, Path> watchedDirectories;
+    
+    private volatile boolean running;
+    
+    /**
+     * The indices of the {@link #locations} that are in the class-path of this JVM.
+     */
+    private Set<Integer> sharedLocations;
+    
+    /**
+     * The file to write the report of the {@link ScanStatistics} of the generator to after every scan;
+     * <code>null</code> if no report should be written.
+     */
+    private File reportFile;
+    
+    /**
+     * Creates a {@link SettingDocumentationDaemon}. Call {@link #start(int)} to do the initial scan.
+     * 
+     * @param generator The generator to scan and render with.
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations; same size and order as <code>locations</code>.
+     * 
+     * @throws IllegalArgumentException If the generator does not use isolated class loaders.
+     */
+    public SettingDocumentationDaemon(SettingDocumentationGenerator generator, List<File> locations,
+            List<String> sectionNames) {
+        
+        if (locations.size() != sectionNames.size()) {
+            throw new IllegalArgumentException("Got " + locations.size() + " locations but "
+                    + sectionNames.size() + " section names");
+        }
+        if (!generator.usesIsolatedClassLoaders()) {
+            throw new IllegalArgumentException("The daemon requires isolated class loaders, otherwise changed "
+                    + "classes are not loaded again");
+        }
+        
+        this.generator = generator;
+        this.locations = new ArrayList<>(locations);
+        this.sectionNames = new ArrayList<>(sectionNames);
+        this.watchedDirectories = new HashMap<>();
+        this.rescanLock = new Object();
+        this.sharedLocations = new TreeSet<>();
+        
+        Set<Path> classPath = new HashSet<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.add(new File(entry).getAbsoluteFile().toPath().normalize());
+        }
+        for (int i = 0; i < locations.size(); i++) {
+            if (classPath.contains(locations.get(i).getAbsoluteFile().toPath().normalize())) {
+                sharedLocations.add(i);
+            }
+        }
+    }
+    
+    /**
+     * Sets the file to write the JSON report of the {@link ScanStatistics} of the generator to. The report is
+     * written after the initial scan and after every rescan, replacing the previous one.
+     * 
+     * @param reportFile The file to write the report to; <code>null</code> to not write any report (the default).
+     */
+    public void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+    
+    /**
+     * Scans all locations and starts watching them for changes.
+     * 
+     * @param numThreads The number of threads for the initial scan.
+     * 
+     * @throws IOException If the initial scan or registering the watches fails.
+     */
+    public void start(int numThreads) throws IOException {
+        scannedSections = generator.scanSections(locations, sectionNames, numThreads);
+        updateBody();
+        writeReport();
+        
+        watchService = FileSystems.getDefault().newWatchService();
+        for (File location : locations) {
+            if (location.isDirectory()) {
+                registerRecursive(location.getAbsoluteFile().toPath());
+            } else {
+                register(location.getAbsoluteFile().getParentFile().toPath());
+            }
+        }
+        
+        running = true;
+        Thread watcher = new Thread(this::watch, "SettingDocumentationDaemon-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+    
+    /**
+     * Re-creates {@link #body} from {@link #scannedSections}. Settings that were already found in an earlier
+     * section (or in a section that was added to the generator before) are removed the same way as in
+     * {@link SettingDocumentationGenerator#findSettingsInAll(List, List, int)}; thus, a section may change if an
+     * earlier section changed.
+     */
+    private synchronized void updateBody() {
+        SectionDeduplicator deduplicator = new SectionDeduplicator();
+        SettingCatalog previous = generator.getCatalog();
+        for (int i = 0; i < previous.getNumSections(); i++) {
+            deduplicator.add(previous.getSectionName(i), previous.getSection(i));
+        }
+        
+        StringBuilder result = new StringBuilder();
+        try {
+            for (int i = 0; i < scannedSections.size(); i++) {
+                String name = sectionNames.get(i);
+                generator.writeSection(result, name, deduplicator.add(name, scannedSections.get(i)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen, StringBuilder doesn't throw
+        }
+        body = result.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Writes the report of the {@link ScanStatistics} of the generator to the {@link #reportFile}, if both are set.
+     * Failures are printed, but don't stop the daemon.
+     */
+    private void writeReport() {
+        ScanStatistics statistics = generator.getStatistics();
+        if (reportFile != null && statistics != null) {
+            try (Writer out = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+                statistics.writeJson(out);
+            } catch (IOException e) {
+                System.err.println("Could not write report to " + reportFile + ": " + e);
+            }
+        }
+    }
+    
+    /**
+     * Scans all sections again, like the <code>rescan</code> command of a client.
+     */
+    void rescanAll() {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < locations.size(); i++) {
+            all.add(i);
+        }
+        rescan(all);
+    }
+    
+    /**
+     * Scans the given sections again and updates the {@link #body}. Rescans are executed one after another, even if
+     * they are requested by the watcher thread and a client at the same time.
+     * 
+     * @param indices The indices of the sections to scan.
+     */
+    private void rescan(Collection<Integer> indices) {
+        synchronized (rescanLock) {
+            for (int index : indices) {
+                if (sharedLocations.contains(index)) {
+                    System.err.println("Not rescanning " + locations.get(index) + ", since it is in the class-path "
+                            + "of this JVM; restart the daemon to scan it again");
+                } else {
+                    rescan(index);
+                }
+            }
+            updateBody();
+            writeReport();
+        }
+    }
+    
+    /**
+     * Scans the given section again. If scanning fails (e.g. because a jar is only partially written), the previous
+     * settings are kept and the error is printed. Only called by {@link #rescan(Collection)}.
+     * 
+     * @param index The index of the section to scan.
+     */
+    private void rescan(int index) {
+        // checkstyle: stop exception type check
+        try {
+            List<SettingInfo> section = generator.scanLocation(locations.get(index), sectionNames.get(index));
+            synchronized (this) {
+                scannedSections.set(index, section);
+            }
+            System.err.println("Rescanned " + locations.get(index));
+        
+        } catch (IOException | RuntimeException | LinkageError e) {
+            // a broken jar must not stop the daemon
+            System.err.println("Could not rescan " + locations.get(index) + ", keeping previous settings: " + e);
+        }
+        // checkstyle: resume exception type check
+    }
+    
+    /**
+     * Registers the given directory at the {@link #watchService}.
+     * 
+     * @param directory The directory to watch.
+     * 
+     * @throws IOException If registering fails.
+     */
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        synchronized (watchedDirectories) {
+            watchedDirectories.put(key, directory);
+        }
+    }
+    
+    /**
+     * Registers the given directory and all its sub-directories at the {@link #watchService}.
+     * 
+     * @param directory The directory to watch.
+     * 
+     * @throws IOException If registering fails.
+     */
+    private void registerRecursive(Path directory) throws IOException {
+        List<Path> directories;
+        try (Stream<Path> files = Files.walk(directory)) {
+            directories = files.filter((path) -> Files.isDirectory(path)).collect(Collectors.toList());
+        }
+        for (Path dir : directories) {
+            register(dir);
+        }
+    }
+    
+    /**
+     * The loop of the watcher thread. Waits for changes and scans the affected sections again.
+     */
+    private void watch() {
+        try {
+            while (running) {
+                Set<Integer> changed = new TreeSet<>();
+                
+                WatchKey key = watchService.take();
+                collectChanges(key, changed);
+                // wait until no more events arrive, so that a jar that is being copied is scanned only once
+                while ((key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) != null) {
+                    collectChanges(key, changed);
+                }
+                
+                if (!changed.isEmpty()) {
+                    rescan(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // daemon is shutting down
+        }
+    }
+    
+    /**
+     * Determines which sections are affected by the events of the given key. Newly created directories inside of
+     * watched class-path directories are registered, too.
+     * 
+     * @param key The key that was signaled.
+     * @param changed The set to add the indices of the affected sections to.
+     */
+    private void collectChanges(WatchKey key, Set<Integer> changed) {
+        Path directory;
+        synchronized (watchedDirectories) {
+            directory = watchedDirectories.get(key);
+        }
+        
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                for (int i = 0; i < locations.size(); i++) {
+                    changed.add(i);
+                }
+                continue;
+            }
+            
+            Path path = directory.resolve((Path) event.context());
+            for (int i = 0; i < locations.size(); i++) {
+                Path location = locations.get(i).getAbsoluteFile().toPath();
+                if (path.equals(location) || path.startsWith(location)) {
+                    changed.add(i);
+                    
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                        try {
+                            registerRecursive(path);
+                        } catch (IOException e) {
+                            System.err.println("Could not watch new directory " + path + ": " + e);
+                        }
+                    }
+                }
+            }
+        }
+        
+        if (!key.reset()) {
+            synchronized (watchedDirectories) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+    
+    /**
+     * Serves client requests on the given port of the loopback interface until a client sends <code>quit</code>.
+     * Clients are handled one after another.
+     * 
+     * @param port The port to listen on.
+     * 
+     * @throws IOException If the server socket can not be opened.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.println("Serving setting documentation on " + server.getLocalSocketAddress());
+            
+            while (running) {
+                try (Socket client = server.accept()) {
+                    client.setSoTimeout(CLIENT_TIMEOUT_MS);
+                    handle(client);
+                } catch (IOException e) {
+                    // a broken client connection doesn't affect other clients
+                    System.err.println("Could not handle client: " + e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Handles a single client connection.
+     * 
+     * @param client The connected client.
+     * 
+     * @throws IOException If communicating with the client fails.
+     */
+    private void handle(Socket client) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        String command = in.readLine();
+        command = command != null ? command.trim() : "";
+        
+        OutputStream out = client.getOutputStream();
+        switch (command) {
+        case "render":
+            StringBuilder header = new StringBuilder();
+            generator.writeFileHeader(header);
+            out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+            out.write(body);
+            break;
+        
+        case "rescan":
+            rescanAll();
+            out.write("ok\n".getBytes(StandardCharsets.UTF_8));
+            break;
+        
+        case "quit":
+            running = false;
+            out.write("ok\n".getBytes(StandardCharsets.UTF_8));
+            break;
+        
+        default:
+            out.write(("unknown command: " + command + "\n").getBytes(StandardCharsets.UTF_8));
+            break;
+        }
+        out.flush();
+    }
+    
+    /**
+     * Returns the documentation text as it is currently served.
+     * 
+     * @return The documentation text, including the file header with the current timestamp.
+     */
+    public String getSettingText() {
+        StringBuilder result = new StringBuilder();
+        try {
+            generator.writeFileHeader(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen, StringBuilder doesn't throw
+        }
+        result.append(new String(body, StandardCharsets.UTF_8));
+        return result.toString();
+    }
+    
+    /**
+     * Stops watching for changes. {@link #serve(int)} returns after the next client was handled.
+     * 
+     * @throws IOException If closing the watch service fails.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+}
@@ -16,16 +16,35 @@
 package net.ssehub.kernel_haven.util;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 import net.ssehub.kernel_haven.config.EnumSetting;
 import net.ssehub.kernel_haven.config.ListSetting;
@@ -103,6 +122,32 @@ public class SettingDocumentationGenerator {
             + "#                   of the list, depending on the specified list type.\n"
             + "#\n"
             + "# This was automatically generated on: ";
+    
+    /**
+     * Serializes the initialization of classes that are shared between concurrent scans, i.e. that are not defined by
+     * the isolated class loader of the scan. Static initializers of shared classes that reference each other could
+     * otherwise deadlock when two scans initialize them at the same time.
+     */
+    private static final Object SHARED_INITIALIZATION_LOCK = new Object();
+    
+    /**
+     * The names of the constants of each enum class that is used by an {@link EnumSetting}. A {@link ClassValue}
+     * doesn't prevent the enum classes (and their isolated class loaders) from being unloaded.
+     */
+    private static final ClassValue<List<String>> ENUM_VALUES = new ClassValue<List<String>>() {
+        
+        @Override
+        protected List<String> computeValue(Class<?> enumClass) {
+            List<String> result = new ArrayList<>();
+            for (Field enumField : enumClass.getFields()) {
+                if (enumClass.isAssignableFrom(enumField.getType())) {
+                    result.add(enumField.getName());
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+        
+    };
 
     /**
      * A list of section names.
@@ -113,25 +158,175 @@ public class SettingDocumentationGenerator {
      * A list of settings. First dimension is section (same indices as {@link #names}), second dimension is settings
      * in this section.
      */
-    private List<List<Setting<?>>> settings;
+    private List<List<SettingInfo>> settings;
+    
+    /**
+     * The immutable catalog of {@link #names} and {@link #settings}; <code>null</code> if sections were added since
+     * it was last created by {@link #getCatalog()}.
+     */
+    private SettingCatalog catalog;
+    
+    /**
+     * Removes the settings from added sections that were already added in an earlier section.
+     */
+    private SectionDeduplicator deduplicator;
+    
+    /**
+     * Cache for {@link #isSettingType(String, ClassLoader)}. Key is the fully qualified name of a field type, value
+     * is whether this type is a {@link Setting} type.
+     */
+    private Map<String, Boolean> settingTypes;
+    
+    /**
+     * The settings declared by each class that was loaded during the current
+     * {@link #scanAll(List, List, int, SectionConsumer)} run, so that classes bundled in several jars are only loaded
+     * once per run. Key is the fully qualified class name and the checksum of the .class file (see
+     * {@link #getClassKey(String, byte[])}), so that different versions of a class are loaded separately. The value
+     * is completed by the scan that loads the class; concurrent scans that need the same class wait for it instead of
+     * loading it, too. It is completed with <code>null</code> if loading the class failed.
+     * <code>null</code> outside of a run; single scans always load all classes.
+     */
+    private Map<String, CompletableFuture<List<SettingInfo>>> loadedClasses;
+    
+    /**
+     * The cache for scan results; <code>null</code> if no cache should be used.
+     */
+    private ScanCache cache;
+    
+    /**
+     * The parent for the isolated class loaders that each location is scanned with; <code>null</code> if classes
+     * should be loaded from the class-path of this JVM.
+     */
+    private ClassLoader isolationParent;
     
     /**
-     * Enum values for {@link EnumSetting}s. Key is setting name, value is a list of enum constant names.
+     * The locations of the latest {@link #scanAll(List, List, int, SectionConsumer)} run. The isolated class loader of
+     * each location can load classes from the other locations, if they are not found in the location itself or in
+     * the libraries of the {@link #isolationParent}.
      */
-    private Map<String, List<String>> enumValues;
+    private volatile List<URL> siblingLocations = Collections.emptyList();
+    
+    /**
+     * The statistics that scans and rendering are recorded in; <code>null</code> if no statistics should be
+     * collected.
+     */
+    private ScanStatistics statistics;
+    
+    /**
+     * The time budget for loading a single class, in milliseconds; 0 if classes are loaded without a time limit on
+     * the scanning thread.
+     */
+    private long classTimeout;
     
     /**
      * Creates a {@link SettingDocumentationGenerator}.
      */
     public SettingDocumentationGenerator() {
-        this.names = new LinkedList<>();
-        this.settings = new LinkedList<>();
-        this.enumValues = new HashMap<>();
+        this.names = new ArrayList<>();
+        this.settings = new ArrayList<>();
+        this.deduplicator = new SectionDeduplicator();
+        this.settingTypes = new ConcurrentHashMap<>();
+        this.settingTypes.put(Setting.class.getName(), true);
+        this.settingTypes.put(ListSetting.class.getName(), true);
+        this.settingTypes.put(EnumSetting.class.getName(), true);
+    }
+    
+    /**
+     * Sets the cache to use for scan results. If a jar file or class-path directory has exactly the same content as
+     * when it was cached, the cached settings are used instead of loading any classes. Newly scanned locations are
+     * added to the cache.
+     * 
+     * @param cache The cache to use; <code>null</code> to disable caching (the default).
+     */
+    public void setCache(ScanCache cache) {
+        this.cache = cache;
+    }
+    
+    /**
+     * Sets whether each jar file or class-path directory should be scanned with its own class loader. If enabled, a
+     * new {@link IsolatedClassLoader} for only the scanned location is created for each scan. This class loader is
+     * closed after the settings are extracted, so that the classes of the location can be unloaded again. The scanned
+     * locations then don't have to be in the class-path of this JVM, and should not be: classes on the class-path of
+     * this JVM are loaded from there and are thus not isolated; when scanning concurrently, these shared classes are
+     * initialized one after another.
+     * <p>
+     * The given parent class loader has to provide the KernelHaven infrastructure (the same {@link Setting} class as
+     * this generator uses) and all libraries that the scanned locations depend on. The classes of the scanned
+     * location are loaded before the classes of these libraries, so a plugin can be both scanned and a library of
+     * other plugins.
+     * <p>
+     * Classes that are found neither in the scanned location nor in the parent are looked up in the other locations of
+     * the same {@link #findSettingsInAll(List, List, int)} call (or the latest one, for single scans). Thus, a plugin
+     * that builds on another plugin can be scanned without passing the other plugin as a library. These classes are
+     * loaded by a separate class loader per scan, which is closed together with the isolated class loader. Note
+     * that the {@link ScanCache} only tracks the libraries given to it, so a plugin is not scanned again if only a
+     * plugin that it builds on changed.
+     * <p>
+     * Isolated class loaders are required for scanning with more than one thread: with a single class loader,
+     * static initializers that reference classes of other locations could deadlock.
+     * 
+     * @param parent The parent for the isolated class loaders; <code>null</code> to load all classes from the
+     *      class-path of this JVM (the default).
+     */
+    public void setIsolatedClassLoaders(ClassLoader parent) {
+        this.isolationParent = parent;
+    }
+    
+    /**
+     * Returns whether each location is scanned with its own class loader. See
+     * {@link #setIsolatedClassLoaders(ClassLoader)}.
+     * 
+     * @return Whether isolated class loaders are used.
+     */
+    boolean usesIsolatedClassLoaders() {
+        return isolationParent != null;
+    }
+    
+    /**
+     * Sets the statistics to record timings and counters of scans and rendering in. See {@link ScanStatistics}.
+     * 
+     * @param statistics The statistics to record in; <code>null</code> to not collect any statistics (the default).
+     */
+    public void setStatistics(ScanStatistics statistics) {
+        this.statistics = statistics;
+    }
+    
+    /**
+     * Sets a time budget for loading a single class. If set, each class is loaded and initialized and its
+     * {@link Setting} constants are read on a separate worker thread. Classes that don't finish within the budget, or
+     * whose loading or static initializer throws, are skipped: a warning is printed to {@link System#err}, the failure
+     * is recorded in the {@link ScanStatistics} and the settings of the class are missing from the result. Scan
+     * results with skipped classes are not stored in the {@link ScanCache}.
+     * <p>
+     * Each scan uses its own worker threads, which are shut down when the scan is done. A hanging static initializer
+     * can not be aborted; its worker thread is abandoned (it is a daemon thread, so it does not keep the JVM alive)
+     * and the isolated class loader of the scan is only closed once the worker thread ended. If it doesn't end within
+     * another time budget, the class loader is left open and this is recorded in the {@link ScanStatistics}.
+     * <p>
+     * Without a time budget (the default), classes are loaded on the scanning thread and any failure aborts the scan.
+     * The time budget is not enabled by default, since a class may legitimately take long to initialize (e.g. on a
+     * slow machine); the ant targets pass a generous budget.
+     * 
+     * @param millis The time budget per class in milliseconds; 0 or less to disable the time budget.
+     */
+    public void setClassTimeout(long millis) {
+        this.classTimeout = Math.max(millis, 0);
+    }
+    
+    /**
+     * Returns the statistics that scans and rendering are recorded in.
+     * 
+     * @return The statistics; <code>null</code> if no statistics are collected.
+     */
+    public ScanStatistics getStatistics() {
+        return statistics;
     }
     
     /**
      * Searches for {@link Setting} constants in a jar file. This walks through all .class files in the jar, loads the
-     * class and searches for {@link Setting} constants via reflection. The jar must be in the class-path of this JVM.
+     * class and searches for {@link Setting} constants via reflection. Classes whose bytecode does not declare any
+     * <code>static final</code> fields of a {@link Setting} type are skipped without being loaded. The jar must be in
+     * the class-path of this JVM.
      * 
      * @param jarFile The jar file to search in.
      * @param sectionName The name of the section that the {@link Setting}s found in the file should appear under.
@@ -139,116 +334,812 @@ public class SettingDocumentationGenerator {
      * @throws IOException If reading the jar file fails.
      */
     public void findSettingsInJarFile(File jarFile, String sectionName) throws IOException {
-        List<Setting<?>> result = new LinkedList<>();
+        addSection(sectionName, scan(jarFile, false, startSection(sectionName, jarFile)));
+    }
+    
+    /**
+     * Searches for {@link Setting} constants in a directory. This walks through all .class files in the directory,
+     * loads the class and searches for {@link Setting} constants via reflection. The directory must be in the
+     * class-path of this JVM.
+     * 
+     * @param classPathDir The directory to search in.
+     * @param sectionName The name of the section that the {@link Setting}s found in this directory should appear under.
+     * 
+     * @throws IOException If searching for .class files fails.
+     */
+    public void findSettingsInClassPath(File classPathDir, String sectionName) throws IOException {
+        addSection(sectionName, scan(classPathDir, true, startSection(sectionName, classPathDir)));
+    }
+    
+    /**
+     * Searches for {@link Setting} constants in several jar files or class-path directories. Each location is handled
+     * like in {@link #findSettingsInJarFile(File, String)} or {@link #findSettingsInClassPath(File, String)},
+     * depending on whether it is a directory. The locations are scanned concurrently by the given number of threads;
+     * the resulting sections are still added in the same order as the given locations.
+     * 
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations; same size and order as <code>locations</code>.
+     * @param numThreads The number of threads to scan with. If this is 1 or less, the locations are scanned one after
+     *      another in the calling thread. More threads require isolated class loaders (see
+     *      {@link #setIsolatedClassLoaders(ClassLoader)}).
+     * 
+     * @throws IOException If reading any of the locations fails.
+     */
+    public void findSettingsInAll(List<File> locations, List<String> sectionNames, int numThreads)
+            throws IOException {
+        
+        scanAll(locations, sectionNames, numThreads, this::addSection);
+    }
+    
+    /**
+     * Scans several jar files or class-path directories for {@link Setting} constants, without adding them as
+     * sections to this generator. Duplicates across the sections are not removed.
+     * 
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations; same size and order as <code>locations</code>.
+     * @param numThreads The number of threads to scan with. If this is 1 or less, the locations are scanned one after
+     *      another in the calling thread. More threads require isolated class loaders (see
+     *      {@link #setIsolatedClassLoaders(ClassLoader)}).
+     * @return The settings found in each location; same size and order as <code>locations</code>.
+     * 
+     * @throws IOException If reading any of the locations fails.
+     */
+    List<List<SettingInfo>> scanSections(List<File> locations, List<String> sectionNames, int numThreads)
+            throws IOException {
+        
+        List<List<SettingInfo>> result = new ArrayList<>(locations.size());
+        scanAll(locations, sectionNames, numThreads, (name, section) -> result.add(section));
+        return result;
+    }
+    
+    /**
+     * Searches for {@link Setting} constants in several jar files or class-path directories and writes the
+     * documentation text to the given output while scanning. This is the same as calling
+     * {@link #findSettingsInAll(List, List, int)} followed by {@link #generateSettingText(Appendable)}, except that
+     * the file header is written immediately and each section is written (and flushed) as soon as it and all
+     * sections before it are scanned. Thus, the first sections are already written while later locations are still
+     * being scanned. Sections that were added to this generator before are written first. The new sections are
+     * added to this generator, like in {@link #findSettingsInAll(List, List, int)}.
+     * 
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations; same size and order as <code>locations</code>.
+     * @param numThreads The number of threads to scan with. If this is 1 or less, the locations are scanned one after
+     *      another in the calling thread. More threads require isolated class loaders (see
+     *      {@link #setIsolatedClassLoaders(ClassLoader)}).
+     * @param out The output to write the documentation text to.
+     * 
+     * @throws IOException If reading any of the locations or writing to the output fails.
+     */
+    public void generateSettingText(List<File> locations, List<String> sectionNames, int numThreads,
+            Appendable out) throws IOException {
+        
+        // this also writes all sections that were added before
+        generateSettingText(out);
+        
+        scanAll(locations, sectionNames, numThreads, (name, section) -> {
+            List<SettingInfo> added = addSection(name, section);
+            
+            writeSection(out, name, added);
+            if (out instanceof Flushable) {
+                ((Flushable) out).flush();
+            }
+        });
+    }
+    
+    /**
+     * Consumes the sections found by {@link SettingDocumentationGenerator#scanAll(List, List, int, SectionConsumer)}.
+     */
+    private interface SectionConsumer {
+        
+        /**
+         * Called for each section, in the order of the scanned locations.
+         * 
+         * @param name The name of the section.
+         * @param section The settings found for this section.
+         * 
+         * @throws IOException If handling the section fails.
+         */
+        public void accept(String name, List<SettingInfo> section) throws IOException;
+        
+    }
+    
+    /**
+     * Scans the given locations with the given number of threads. The results are passed to the consumer in the order
+     * of the locations; each section is passed as soon as it and all sections before it are scanned.
+     * 
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations; same size and order as <code>locations</code>.
+     * @param numThreads The number of threads to scan with. If this is 1 or less, the locations are scanned one after
+     *      another in the calling thread. More threads require isolated class loaders (see
+     *      {@link #setIsolatedClassLoaders(ClassLoader)}).
+     * @param consumer The consumer for the sections. Always called in the calling thread.
+     * 
+     * @throws IOException If reading any of the locations or consuming a section fails.
+     */
+    private void scanAll(List<File> locations, List<String> sectionNames, int numThreads, SectionConsumer consumer)
+            throws IOException {
+        
+        if (locations.size() != sectionNames.size()) {
+            throw new IllegalArgumentException("Got " + locations.size() + " locations but "
+                    + sectionNames.size() + " section names");
+        }
+        if (numThreads > 1 && isolationParent == null) {
+            throw new IllegalArgumentException("Scanning with " + numThreads + " threads requires isolated class "
+                    + "loaders, see setIsolatedClassLoaders()");
+        }
+        
+        List<URL> urls = new ArrayList<>(locations.size());
+        for (File location : locations) {
+            urls.add(location.toURI().toURL());
+        }
+        siblingLocations = urls;
+        
+        loadedClasses = new ConcurrentHashMap<>();
+        try {
+            if (numThreads <= 1) {
+                for (int i = 0; i < locations.size(); i++) {
+                    File location = locations.get(i);
+                    String name = sectionNames.get(i);
+                    consumer.accept(name, scan(location, location.isDirectory(), startSection(name, location)));
+                }
+            } else {
+                scanConcurrently(locations, sectionNames, numThreads, consumer);
+            }
+        } finally {
+            // the classes may change until the next run
+            loadedClasses = null;
+        }
+    }
+    
+    /**
+     * Scans the given locations concurrently. See {@link #scanAll(List, List, int, SectionConsumer)}.
+     * 
+     * @param locations The jar files or class-path directories to search in.
+     * @param sectionNames The section names for the locations; same size and order as <code>locations</code>.
+     * @param numThreads The number of threads to scan with.
+     * @param consumer The consumer for the sections. Always called in the calling thread.
+     * 
+     * @throws IOException If reading any of the locations or consuming a section fails.
+     */
+    private void scanConcurrently(List<File> locations, List<String> sectionNames, int numThreads,
+            SectionConsumer consumer) throws IOException {
+        
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<List<SettingInfo>>> futures = new ArrayList<>(locations.size());
+            for (int i = 0; i < locations.size(); i++) {
+                File location = locations.get(i);
+                // created here, so that the sections are recorded in the order of the locations
+                ScanStatistics.Section stats = startSection(sectionNames.get(i), location);
+                futures.add(executor.submit(() -> scan(location, location.isDirectory(), stats)));
+            }
+            
+            for (int i = 0; i < futures.size(); i++) {
+                consumer.accept(sectionNames.get(i), getResult(futures.get(i)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Waits for the result of a scan submitted by {@link #scanAll(List, List, int, SectionConsumer)} or a rendering
+     * submitted by {@link #render(List, List)}. Unwraps exceptions that occurred in the task.
+     * 
+     * @param <T> The type of the result.
+     * @param future The future of the task.
+     * @return The result of the task.
+     * 
+     * @throws IOException If the task failed with an {@link IOException}.
+     */
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for task", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    /**
+     * Scans a single location for {@link Setting} constants, without adding it as a section to this generator.
+     * 
+     * @param location The jar file or class-path directory to search in.
+     * @param sectionName The name of the section, for the {@link #statistics}.
+     * @return The list of settings found.
+     * 
+     * @throws IOException If reading the location fails.
+     */
+    List<SettingInfo> scanLocation(File location, String sectionName) throws IOException {
+        return scan(location, location.isDirectory(), startSection(sectionName, location));
+    }
+    
+    /**
+     * Creates the statistics section for a scan. Sections appear in the {@link #statistics} in the order that they
+     * are created; scanning a location again replaces its section (see
+     * {@link ScanStatistics#startSection(String, File)}).
+     * 
+     * @param sectionName The name of the section.
+     * @param location The scanned location.
+     * @return The new section; not recorded anywhere if no {@link #statistics} are collected.
+     */
+    private ScanStatistics.Section startSection(String sectionName, File location) {
+        return statistics != null
+                ? statistics.startSection(sectionName, location) : ScanStatistics.unrecorded(sectionName, location);
+    }
+    
+    /**
+     * Scans a single location for {@link Setting} constants. Uses the {@link #cache}, if one is set. Otherwise, the
+     * location is scanned via {@link #scanUncached(File, boolean, ScanStatistics.Section)}. The scan is recorded as a
+     * new section in the {@link #statistics}, if set.
+     * 
+     * @param location The jar file or class-path directory to search in.
+     * @param isDirectory Whether <code>location</code> is a class-path directory.
+     * @param stats The statistics to record the scan in; see {@link #startSection(String, File)}.
+     * @return The list of settings found.
+     * 
+     * @throws IOException If reading the location fails.
+     */
+    private List<SettingInfo> scan(File location, boolean isDirectory, ScanStatistics.Section stats)
+            throws IOException {
+        
+        long start = System.nanoTime();
+        
+        String hash = null;
+        List<SettingInfo> result = null;
+        if (cache != null) {
+            long hashStart = System.nanoTime();
+            hash = cache.getKey(location, isDirectory);
+            stats.addTime(ScanStatistics.Phase.HASHING, System.nanoTime() - hashStart);
+            result = cache.load(hash);
+            if (result != null) {
+                stats.cacheHit();
+            }
+        }
+        
+        if (result == null) {
+            result = scanUncached(location, isDirectory, stats);
+            
+            if (cache != null && !stats.hasFailures()) {
+                cache.store(hash, result);
+            }
+        }
+        
+        stats.settingsFound(result.size());
+        stats.addTotalTime(System.nanoTime() - start);
+        return result;
+    }
+    
+    /**
+     * Scans a single location for {@link Setting} constants, without using the {@link #cache}. Directories are
+     * handled via {@link #listClassPath(File, ClassLoader, ScanStatistics.Section)} and jar files via
+     * {@link #listJarFile(File, ClassLoader, ScanStatistics.Section)}, using an isolated class loader if
+     * {@link #isolationParent} is set.
+     * 
+     * @param location The jar file or class-path directory to search in.
+     * @param isDirectory Whether <code>location</code> is a class-path directory.
+     * @param stats The statistics to record the scan in.
+     * @return The list of settings found.
+     * 
+     * @throws IOException If reading the location fails.
+     */
+    private List<SettingInfo> scanUncached(File location, boolean isDirectory, ScanStatistics.Section stats)
+            throws IOException {
+        
+        URLClassLoader isolatedLoader = null;
+        ClassLoader loader = SettingDocumentationGenerator.class.getClassLoader();
+        if (isolationParent != null) {
+            URL url = location.toURI().toURL();
+            List<URL> siblings = new ArrayList<>(siblingLocations);
+            siblings.remove(url);
+            isolatedLoader = new IsolatedClassLoader(url, SettingDocumentationGenerator.class.getClassLoader(),
+                    isolationParent, siblings.toArray(new URL[siblings.size()]));
+            loader = isolatedLoader;
+        }
+        
+        ExecutorService workers = classTimeout > 0 ? ClassLoadingWorkers.create() : null;
+        
+        try {
+            Map<String, String> classes;
+            if (isDirectory) {
+                classes = listClassPath(location, loader, stats);
+            } else {
+                classes = listJarFile(location, loader, stats);
+            }
+            return loadSettingsFromClasses(classes, loader, workers, stats);
+            
+        } finally {
+            // a class that is still loading gets the same time budget again to react to the interrupt
+            ClassLoadingWorkers.release(workers, isolatedLoader, stats, classTimeout);
+        }
+    }
+    
+    /**
+     * Finds the classes of a jar file that may declare {@link Setting} constants. The jar is read with a
+     * {@link CentralDirectoryReader}, or with a {@link ZipArchive} if it uses ZIP features that the
+     * {@link CentralDirectoryReader} does not support.
+     * 
+     * @param jarFile The jar file to search in.
+     * @param loader The class loader to resolve field types with.
+     * @param stats The statistics to record the scan in.
+     * @return The fully qualified names of the found classes, mapped to their keys for {@link #loadedClasses}.
+     * 
+     * @throws IOException If reading the jar file fails.
+     */
+    private Map<String, String> listJarFile(File jarFile, ClassLoader loader, ScanStatistics.Section stats)
+            throws IOException {
+        
+        Map<String, String> classes = new TreeMap<>();
+        
+        long start = System.nanoTime();
+        CentralDirectoryReader directoryReader = CentralDirectoryReader.open(jarFile, "net.ssehub");
+        if (directoryReader != null) {
+            try (CentralDirectoryReader jar = directoryReader) {
+                stats.addTime(ScanStatistics.Phase.LISTING, System.nanoTime() - start);
+                
+                for (int i = 0; i < jar.getNumEntries(); i++) {
+                    start = System.nanoTime();
+                    byte[] classFile = jar.read(i);
+                    stats.addTime(ScanStatistics.Phase.READING, System.nanoTime() - start);
+                    
+                    if (filterClass(classFile, loader, stats)) {
+                        classes.put(jar.getClassName(i), getClassKey(jar.getClassName(i), classFile));
+                    }
+                }
+            }
+        } else {
+            filterZipArchive(jarFile, loader, stats, classes);
+        }
+        
+        return classes;
+    }
+    
+    /**
+     * Finds the classes of a jar file that may declare {@link Setting} constants, reading the jar with a
+     * {@link ZipArchive}. This is the fallback for jars that the {@link CentralDirectoryReader} can not read.
+     * 
+     * @param jarFile The jar file to search in.
+     * @param loader The class loader to resolve field types with.
+     * @param stats The statistics to record the scan in.
+     * @param classes The map to add the fully qualified names of the found classes to, with their keys for
+     *      {@link #loadedClasses}.
+     * 
+     * @throws IOException If reading the jar file fails.
+     */
+    private void filterZipArchive(File jarFile, ClassLoader loader, ScanStatistics.Section stats,
+            Map<String, String> classes) throws IOException {
         
         try (ZipArchive jar = new ZipArchive(jarFile)) {
             
-            List<String> classes = new LinkedList<>();
+            long start = System.nanoTime();
+            Set<File> files = jar.listFiles();
+            stats.addTime(ScanStatistics.Phase.LISTING, System.nanoTime() - start);
             
-            for (File file : jar.listFiles()) {
+            for (File file : files) {
                 if (file.getName().endsWith(".class") && !file.getName().contains("$")) {
                     String className = file.getPath().replace(".class", "").replace(File.separatorChar, '.');
                     if (className.startsWith("net.ssehub")) {
-                        classes.add(className);
+                        start = System.nanoTime();
+                        byte[] classFile;
+                        try (InputStream in = jar.getInputStream(file)) {
+                            classFile = ClassFileInspector.readFully(in);
+                        }
+                        stats.addTime(ScanStatistics.Phase.READING, System.nanoTime() - start);
+                        
+                        if (filterClass(classFile, loader, stats)) {
+                            classes.put(className, getClassKey(className, classFile));
+                        }
                     }
                 }
             }
-            
-            loadSettingsFromClasses(classes.stream().sorted(), result);
         }
-        
-        settings.add(result);
-        names.add(sectionName);
     }
     
     /**
-     * Searches for {@link Setting} constants in a directory. This walks through all .class files in the directory,
-     * loads the class and searches for {@link Setting} constants via reflection. The directory must be in the
-     * class-path of this JVM.
+     * Finds the classes of a class-path directory that may declare {@link Setting} constants.
      * 
      * @param classPathDir The directory to search in.
-     * @param sectionName The name of the section that the {@link Setting}s found in this directory should appear under.
+     * @param loader The class loader to resolve field types with.
+     * @param stats The statistics to record the scan in.
+     * @return The fully qualified names of the found classes, mapped to their keys for {@link #loadedClasses}.
      * 
      * @throws IOException If searching for .class files fails.
      */
-    public void findSettingsInClassPath(File classPathDir, String sectionName) throws IOException {
-        List<Setting<?>> result = new LinkedList<>();
+    private Map<String, String> listClassPath(File classPathDir, ClassLoader loader, ScanStatistics.Section stats)
+            throws IOException {
         
+        long start = System.nanoTime();
         Path classPath = classPathDir.toPath();
-        Stream<String> classNames = Files.walk(classPath)
-                .filter((path) -> Files.isRegularFile(path))
-                .filter((path) -> path.toString().endsWith(".class"))
-                .filter((path) -> !path.toString().contains("$"))
-                .map((path) -> classPath.relativize(path))
-                .map((path) -> path.toString().replace(".class", "").replace(File.separatorChar, '.'))
-                .sorted();
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(classPath)) {
+            classFiles = files
+                    .filter((path) -> Files.isRegularFile(path))
+                    .filter((path) -> path.toString().endsWith(".class"))
+                    .filter((path) -> !path.toString().contains("$"))
+                    .collect(Collectors.toList());
+        }
+        stats.addTime(ScanStatistics.Phase.LISTING, System.nanoTime() - start);
         
-        loadSettingsFromClasses(classNames, result);
+        Map<String, String> classes = new TreeMap<>();
+        for (Path path : classFiles) {
+            start = System.nanoTime();
+            byte[] classFile = Files.readAllBytes(path);
+            stats.addTime(ScanStatistics.Phase.READING, System.nanoTime() - start);
+            
+            if (filterClass(classFile, loader, stats)) {
+                String className = classPath.relativize(path).toString()
+                        .replace(".class", "").replace(File.separatorChar, '.');
+                classes.put(className, getClassKey(className, classFile));
+            }
+        }
         
-        settings.add(result);
-        names.add(sectionName);
+        return classes;
     }
     
     /**
-     * Walks through the given stream of class names and searches for <code>static final Setting</code> fields. Adds
-     * all of these into the result list. All of the classes must be load-able by {@link Class#forName(String)}.
-     *  
-     * @param classNames The stream containing the fully qualified class names to search in.
-     * @param result The list where to add the results.
+     * Runs {@link #mayDeclareSettings(byte[], ClassLoader)} on a visited class and records it in the statistics.
+     * 
+     * @param classFile The bytes of the .class file.
+     * @param loader The class loader to resolve field types with.
+     * @param stats The statistics to record the class in.
+     * @return Whether the class (possibly) declares {@link Setting} constants and thus has to be loaded.
+     */
+    private boolean filterClass(byte[] classFile, ClassLoader loader, ScanStatistics.Section stats) {
+        long start = System.nanoTime();
+        boolean result = mayDeclareSettings(classFile, loader);
+        stats.addTime(ScanStatistics.Phase.BYTECODE_FILTER, System.nanoTime() - start);
+        
+        stats.classVisited(classFile.length);
+        if (!result) {
+            stats.classSkipped();
+        }
+        return result;
+    }
+    
+    /**
+     * Creates the key of a class for {@link #loadedClasses}.
+     * 
+     * @param className The fully qualified name of the class.
+     * @param classFile The bytes of the .class file.
+     * @return The key of the class.
      */
-    private void loadSettingsFromClasses(Stream<String> classNames, List<Setting<?>> result) {
-        classNames
-            .map((className) -> {
+    private static String getClassKey(String className, byte[] classFile) {
+        CRC32 checksum = new CRC32();
+        checksum.update(classFile);
+        return className + '@' + Long.toHexString(checksum.getValue()) + ':' + classFile.length;
+    }
+    
+    /**
+     * Checks whether the given class declares <code>static final</code> fields with a {@link Setting} type, based on
+     * the bytes of the .class file. This does not load the class itself; only the types of its fields are resolved
+     * (without initializing them). This is conservative: if the class file can not be read or a field type can not be
+     * resolved, <code>true</code> is returned and the reflective search in
+     * {@link #loadSettingsFromClasses(Map, ClassLoader, ExecutorService, ScanStatistics.Section)} decides.
+     * 
+     * @param classFile The bytes of the .class file.
+     * @param loader The class loader to resolve field types with.
+     * @return Whether the class (possibly) declares {@link Setting} constants.
+     */
+    private boolean mayDeclareSettings(byte[] classFile, ClassLoader loader) {
+        List<String> fieldTypes;
+        try {
+            fieldTypes = ClassFileInspector.getStaticFinalFieldTypes(classFile);
+        } catch (IOException e) {
+            fieldTypes = Arrays.asList(Setting.class.getName());
+        }
+        
+        boolean result = false;
+        for (String fieldType : fieldTypes) {
+            if (isSettingType(fieldType, loader)) {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the given type is {@link Setting} or a sub-class of it. Results are cached in
+     * {@link #settingTypes}. Types that can not be resolved are considered to be {@link Setting}s.
+     * 
+     * @param typeName The fully qualified name of the type.
+     * @param loader The class loader to resolve the type with.
+     * @return Whether the given type is a {@link Setting} type.
+     */
+    private boolean isSettingType(String typeName, ClassLoader loader) {
+        Boolean result = settingTypes.get(typeName);
+        if (result == null) {
+            if (typeName.startsWith("java.")) {
+                result = false;
+            } else {
                 try {
-                    return Class.forName(className);
-                } catch (ClassNotFoundException e) {
-                    throw new RuntimeException(e);
+                    Class<?> type = Class.forName(typeName, false, loader);
+                    result = Setting.class.isAssignableFrom(type);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    result = true;
                 }
-            })
-            .map((clazz) -> clazz.getDeclaredFields())
-            .flatMap((fields) -> Arrays.stream(fields))
-            .filter((field) -> Modifier.isFinal(field.getModifiers()) && Modifier.isStatic(field.getModifiers()))
-            .filter((field) -> Setting.class.isAssignableFrom(field.getType()))
-            .map((field) -> {
-                field.setAccessible(true);
-                try {
-                    return (Setting<?>) field.get(null);
-                } catch (IllegalArgumentException | IllegalAccessException e) {
-                    throw new RuntimeException(e);
+            }
+            settingTypes.put(typeName, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Walks through the given classes and searches for <code>static final Setting</code> fields. Collects the metadata
+     * of all of these. All of the classes must be load-able by the given class loader. Loading and initializing each
+     * class is timed separately in the statistics. If worker threads are given, each class is loaded on a worker
+     * thread and skipped if it fails or takes longer than the {@link #classTimeout}. Classes that were already loaded
+     * while scanning another location in the same run (with exactly the same .class file) are not loaded again; if
+     * another scan is still loading such a class, this waits for its result. This can't deadlock: a scan completes
+     * each class it loads before it continues with the next one.
+     *  
+     * @param classes The fully qualified names of the classes to search in, mapped to their keys for
+     *      {@link #loadedClasses}. Iterated in sorted order.
+     * @param loader The class loader to load the classes with.
+     * @param workers The worker threads to load the classes on; <code>null</code> to load them on this thread.
+     * @param stats The statistics to record the classes in.
+     * @return The settings found in the classes.
+     */
+    private List<SettingInfo> loadSettingsFromClasses(Map<String, String> classes, ClassLoader loader,
+            ExecutorService workers, ScanStatistics.Section stats) {
+        
+        List<SettingInfo> result = new ArrayList<>();
+        Map<String, CompletableFuture<List<SettingInfo>>> memo = loadedClasses;
+        for (Map.Entry<String, String> entry : classes.entrySet()) {
+            String className = entry.getKey();
+            List<SettingInfo> classSettings = null;
+            
+            CompletableFuture<List<SettingInfo>> claim = null;
+            if (memo != null) {
+                // only the first scan that needs the class loads it; the others wait for its result
+                CompletableFuture<List<SettingInfo>> ownClaim = new CompletableFuture<>();
+                CompletableFuture<List<SettingInfo>> existing = memo.putIfAbsent(entry.getValue(), ownClaim);
+                if (existing == null) {
+                    claim = ownClaim;
+                } else {
+                    classSettings = awaitLoadedClass(existing, className);
                 }
-            })
-            .peek((setting) -> {
-                if (setting instanceof EnumSetting<?>) {
-                    @SuppressWarnings("unchecked")
-                    Class<? extends Enum<?>> enumClass = ((EnumSetting<? extends Enum<?>>) setting).getEnumClass();
-                    
-                    List<String> fields = new LinkedList<>();
-                    Arrays.stream(enumClass.getFields())
-                        .filter((field) -> enumClass.isAssignableFrom(field.getType()))
-                        .forEach((field) -> fields.add(field.getName()));
-                    
-                    enumValues.put(setting.getKey(), fields);
-                    
+            }
+            
+            if (classSettings != null) {
+                stats.classReused();
+            } else {
+                // also reached if the class failed in another scan; it may still succeed with this class loader
+                try {
+                    classSettings = loadSettingsRecorded(className, loader, workers, stats);
+                } finally {
+                    if (claim != null) {
+                        claim.complete(classSettings);
+                    }
                 }
-            })
-            .forEach((setting) -> result.add(setting));
+            }
+            
+            if (classSettings != null) {
+                result.addAll(classSettings);
+            }
+        }
+        return result;
     }
     
     /**
-     * Splits a line up so that each line is at most 78 characters long. Tries to split at spaces. Single words longer
-     * than 78 characters are not split up.
+     * Waits until another scan of the same run completed loading a class.
      * 
-     * @param description The text to split up.
-     * @return The list of resulting lines.
+     * @param loading The result of the other scan, as stored in {@link #loadedClasses}.
+     * @param className The fully qualified name of the class.
+     * @return The settings found in the class; <code>null</code> if loading the class failed in the other scan.
+     */
+    private static List<SettingInfo> awaitLoadedClass(CompletableFuture<List<SettingInfo>> loading,
+            String className) {
+        
+        try {
+            return loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + className, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause()); // never happens; the futures are always completed normally
+        }
+    }
+    
+    /**
+     * Loads a single class and records it in the statistics.
+     * 
+     * @param className The fully qualified name of the class.
+     * @param loader The class loader to load the class with.
+     * @param workers The worker threads to load the class on; <code>null</code> to load it on this thread.
+     * @param stats The statistics to record the class in.
+     * @return The settings found in the class; <code>null</code> if the class was skipped.
+     */
+    private List<SettingInfo> loadSettingsRecorded(String className, ClassLoader loader, ExecutorService workers,
+            ScanStatistics.Section stats) {
+        
+        LoadedClass loaded;
+        if (workers != null) {
+            loaded = loadSettingsGuarded(className, loader, workers, stats);
+        } else {
+            try {
+                loaded = loadSettingsFromClass(className, loader);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        
+        List<SettingInfo> result = null;
+        if (loaded != null) {
+            // recorded here, so that workers that are abandoned after a timeout never touch the statistics
+            stats.classLoaded(className, loaded.loadingTime, loaded.initializationTime);
+            stats.addTime(ScanStatistics.Phase.FIELD_READING, loaded.readingTime);
+            result = loaded.settings;
+        }
+        return result;
+    }
+    
+    /**
+     * The settings of a single class that was loaded by {@link SettingDocumentationGenerator#loadSettingsFromClass(
+     * String, ClassLoader)}, with the time that the individual steps took.
+     */
+    private static final class LoadedClass {
+        
+        private List<SettingInfo> settings;
+        
+        private long loadingTime;
+        
+        private long initializationTime;
+        
+        private long readingTime;
+        
+    }
+    
+    /**
+     * Loads a single class on one of the given worker threads and waits at most {@link #classTimeout} milliseconds
+     * for its settings. If the class fails or times out, it is skipped and the failure is reported.
+     * 
+     * @param className The fully qualified name of the class.
+     * @param loader The class loader to load the class with.
+     * @param workers The worker threads to load the class on.
+     * @param stats The statistics to record a failure in.
+     * @return The loaded class; <code>null</code> if the class was skipped.
+     */
+    private LoadedClass loadSettingsGuarded(String className, ClassLoader loader, ExecutorService workers,
+            ScanStatistics.Section stats) {
+        
+        Future<LoadedClass> future = workers.submit(() -> loadSettingsFromClass(className, loader));
+        
+        LoadedClass result = null;
+        String failure = null;
+        try {
+            result = future.get(classTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            failure = "timed out after " + classTimeout + " ms";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExceptionInInitializerError && cause.getCause() != null) {
+                failure = "static initializer threw " + cause.getCause();
+            } else {
+                failure = cause.toString();
+            }
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading " + className, e);
+        }
+        
+        if (failure != null) {
+            stats.classFailed(className, failure);
+            System.err.println("Skipping class " + className + " in " + stats.getName() + ": " + failure);
+        }
+        return result;
+    }
+    
+    /**
+     * Loads and initializes a single class and reads its <code>static final Setting</code> fields.
+     * 
+     * @param className The fully qualified name of the class.
+     * @param loader The class loader to load the class with.
+     * @return The settings declared by the class and the time that loading it took.
+     * 
+     * @throws ClassNotFoundException If the class can not be found by the given class loader.
+     */
+    private LoadedClass loadSettingsFromClass(String className, ClassLoader loader) throws ClassNotFoundException {
+        LoadedClass result = new LoadedClass();
+        
+        long start = System.nanoTime();
+        Class<?> clazz = Class.forName(className, false, loader);
+        long loaded = System.nanoTime();
+        if (isolationParent != null && clazz.getClassLoader() != loader) {
+            // the class was found by the parent, so concurrent scans may initialize it (and what it uses), too
+            synchronized (SHARED_INITIALIZATION_LOCK) {
+                Class.forName(className, true, loader);
+            }
+        } else {
+            Class.forName(className, true, loader);
+        }
+        long initialized = System.nanoTime();
+        
+        result.settings = new ArrayList<>();
+        readSettingFields(clazz, result.settings);
+        
+        result.loadingTime = loaded - start;
+        result.initializationTime = initialized - loaded;
+        result.readingTime = System.nanoTime() - initialized;
+        return result;
+    }
+    
+    /**
+     * Reads all <code>static final Setting</code> fields of the given (initialized) class and adds their metadata into
+     * the result list.
+     * 
+     * @param clazz The class to read the fields of.
+     * @param result The list where to add the results.
      */
-    private List<String> splitDescription(String description) {
-        List<String> lines = new LinkedList<>();
+    private void readSettingFields(Class<?> clazz, List<SettingInfo> result) {
+        for (Field field : clazz.getDeclaredFields()) {
+            if (!Modifier.isFinal(field.getModifiers()) || !Modifier.isStatic(field.getModifiers())
+                    || !Setting.class.isAssignableFrom(field.getType())) {
+                continue;
+            }
+            
+            Setting<?> setting;
+            field.setAccessible(true);
+            try {
+                setting = (Setting<?>) field.get(null);
+            } catch (IllegalArgumentException | IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+            
+            List<String> fields = null;
+            if (setting instanceof EnumSetting<?>) {
+                fields = ENUM_VALUES.get(((EnumSetting<?>) setting).getEnumClass());
+            }
+            result.add(SettingInfo.fromSetting(setting, fields));
+        }
+    }
+    
+    /**
+     * Receives the lines found by {@link SettingDocumentationGenerator#wrapDescription(String, LineConsumer)}.
+     */
+    private interface LineConsumer {
+        
+        /**
+         * Called for each line, in order.
+         * 
+         * @param start The start index of the line in the description, inclusive.
+         * @param end The end index of the line in the description, exclusive.
+         * 
+         * @throws IOException If handling the line fails.
+         */
+        public void accept(int start, int end) throws IOException;
         
+    }
+    
+    /**
+     * Splits a description up so that each line is at most 78 characters long. Tries to split at spaces; the space
+     * (or line break) where a line is split is not part of any line. Single words longer than 78 characters are not
+     * split up.
+     * 
+     * @param description The text to split up.
+     * @param consumer The consumer for the resulting lines.
+     * 
+     * @throws IOException If the consumer fails.
+     */
+    private static void wrapDescription(String description, LineConsumer consumer) throws IOException {
+        int length = description.length();
         int currentLength = 0;
         int previousEnd = -1;
-        for (int i = 0; i < description.length(); i++) {
+        for (int i = 0; i < length; i++) {
             if (description.charAt(i) == '\n') {
-                lines.add(description.substring(previousEnd + 1, i));
+                consumer.accept(previousEnd + 1, i);
                 previousEnd = i;
                 currentLength = 0;
             }
@@ -263,47 +1154,101 @@ public class SettingDocumentationGenerator {
                     }
                 }
                 if (j == previousEnd + 1) {
-                    for (; j < description.length(); j++) {
+                    for (; j < length; j++) {
                         char c = description.charAt(j); 
                         if (c == ' ' || c == '\n') {
                             break;
                         }
                     }
                 }
-                lines.add(description.substring(previousEnd + 1, j));
+                consumer.accept(previousEnd + 1, j);
                 previousEnd = j;
                 currentLength = 0;
                 i = j;
             }
         }
-        if (previousEnd + 1 < description.length()) {
-            lines.add(description.substring(previousEnd + 1));
+        if (previousEnd + 1 < length) {
+            consumer.accept(previousEnd + 1, length);
+        }
+    }
+    
+    /**
+     * Splits a line up so that each line is at most 78 characters long. Tries to split at spaces. Single words longer
+     * than 78 characters are not split up.
+     * 
+     * @param description The text to split up.
+     * @return The list of resulting lines.
+     */
+    List<String> splitDescription(String description) {
+        List<String> lines = new ArrayList<>();
+        try {
+            wrapDescription(description, (start, end) -> lines.add(description.substring(start, end)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen, adding to a list doesn't throw
         }
-        
         return lines;
     }
     
     /**
-     * Generates a "section header" string for a section name and appends it to the given buffer. The header will have
-     * the format:
+     * Writes the description as comment lines to the given output. This wraps the description like
+     * {@link #splitDescription(String)}, but writes each line with a <code>"# "</code> prefix directly into the
+     * output, without creating intermediate strings or lists.
+     * 
+     * @param out The output to write the comment lines to.
+     * @param description The text to wrap.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    void writeDescription(Appendable out, String description) throws IOException {
+        wrapDescription(description, (start, end) -> writeCommentLine(out, description, start, end));
+    }
+    
+    /**
+     * Writes a part of the given text as a comment line, i.e. prefixed with <code>"# "</code> and followed by a line
+     * break. {@link Writer}s are written to via {@link Writer#write(String, int, int)}, since their
+     * {@link Writer#append(CharSequence, int, int)} creates a sub-sequence.
+     * 
+     * @param out The output to write to.
+     * @param text The text containing the line.
+     * @param start The start index of the line in the text, inclusive.
+     * @param end The end index of the line in the text, exclusive.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private static void writeCommentLine(Appendable out, String text, int start, int end) throws IOException {
+        out.append("# ");
+        if (out instanceof Writer) {
+            ((Writer) out).write(text, start, end - start);
+        } else {
+            out.append(text, start, end);
+        }
+        out.append('\n');
+    }
+    
+    /**
+     * Generates a "section header" string for a section name and appends it to the given output. The header is
+     * preceded by an empty line and will have the format:
      * <code><pre>
      * #############
      * # Some Text #
      * #############
      * </pre></code>
      *  
-     * @param buffer The buffer to add the "header" string to.
+     * @param out The output to add the "header" string to.
      * @param text The text that should appear in the section header.
+     * 
+     * @throws IOException If writing to the output fails.
      */
-    private void generateHeader(StringBuilder buffer, String text) {
+    private void generateHeader(Appendable out, String text) throws IOException {
+        out.append('\n');
         for (int i = 0; i < text.length() + 4; i++) {
-            buffer.append('#');
+            out.append('#');
         }
-        buffer.append("\n# ").append(text).append(" #\n");
+        out.append("\n# ").append(text).append(" #\n");
         for (int i = 0; i < text.length() + 4; i++) {
-            buffer.append('#');
+            out.append('#');
         }
-        buffer.append("\n\n");
+        out.append('\n');
     }
     
     /**
@@ -318,87 +1263,210 @@ public class SettingDocumentationGenerator {
     }
     
     /**
-     * Returns the list of section names.
+     * Adds a section with already extracted settings. Settings with a key that was already added in an earlier
+     * section are dropped (see {@link SectionDeduplicator}).
+     * 
+     * @param sectionName The name of the section.
+     * @param section The settings of the section.
+     * @return The settings that were added to the section, i.e. without the dropped duplicates.
+     */
+    List<SettingInfo> addSection(String sectionName, List<SettingInfo> section) {
+        List<SettingInfo> added = deduplicator.add(sectionName, section);
+        
+        settings.add(added);
+        names.add(sectionName);
+        catalog = null;
+        return added;
+    }
+    
+    /**
+     * Returns the metadata of all settings found, in sections in the same order as they were added via the find*()
+     * methods. The catalog is created once and re-used until further sections are added.
      * 
-     * @return The section names.
+     * @return The immutable catalog of all settings.
      */
-    public List<String> getSectionNames() {
-        return names;
+    public SettingCatalog getCatalog() {
+        if (catalog == null) {
+            catalog = new SettingCatalog(names, settings);
+        }
+        return catalog;
     }
     
     /**
-     * Returns all settings found. The first dimension are the sections, in the same order as they were added via
-     * the find*() methods.
+     * Generates the documentation text for all settings that were previously added via the
+     * <code>addSettingsFrom*()</code> methods. This text can be used as the content for config_template.properties.
      * 
-     * @return The list of all settings.
+     * @return The documentation text for all settings.
      * 
-     * @see #getSectionNames()
+     * @see #generateSettingText(Appendable)
      */
-    public List<List<Setting<?>>> getSettings() {
-        return settings;
+    public String generateSettingText() {
+        StringBuilder result = new StringBuilder();
+        try {
+            generateSettingText(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen, StringBuilder doesn't throw
+        }
+        return result.toString();
     }
     
     /**
-     * Returns a map containing all enum values for {@link EnumSetting}. The keys are the setting keys.
+     * Writes the documentation text for all settings that were previously added via the
+     * <code>addSettingsFrom*()</code> methods to the given output. Each section is written completely before the next
+     * one is started; if the output is {@link Flushable}, it is flushed after each section.
+     * 
+     * @param out The output to write the text to.
      * 
-     * @return A map of enum values.
+     * @throws IOException If writing to the output fails.
      */
-    public Map<String, List<String>> getEnumValues() {
-        return enumValues;
+    public void generateSettingText(Appendable out) throws IOException {
+        new PropertiesRenderer(this).render(getCatalog(), out);
     }
     
     /**
-     * Generates the documentation text for all settings that were previously added via the
-     * <code>addSettingsFrom*()</code> methods. This text can be used as the content for config_template.properties.
+     * Renders the documentation of all settings that were previously added via the <code>addSettingsFrom*()</code>
+     * methods with several renderers. All renderers share the same {@link SettingCatalog}; each renderer writes to its
+     * own output in its own thread. Outputs that are {@link Flushable} are flushed after their renderer is done.
      * 
-     * @return The documentation text for all settings.
+     * @param renderers The renderers to use.
+     * @param outputs The output for each renderer; same size and order as <code>renderers</code>.
+     * 
+     * @throws IOException If writing to any of the outputs fails.
      */
-    public String generateSettingText() {
-        StringBuilder result = new StringBuilder(HEADER);
+    public void render(List<? extends SettingRenderer> renderers, List<? extends Appendable> outputs)
+            throws IOException {
         
-        result.append(Timestamp.INSTANCE.getTimestamp()).append("\n\n");
+        if (renderers.size() != outputs.size()) {
+            throw new IllegalArgumentException("Got " + renderers.size() + " renderers but "
+                    + outputs.size() + " outputs");
+        }
         
-        for (int i = 0; i < names.size(); i++) {
-            if (settings.get(i).isEmpty()) {
-                continue;
+        SettingCatalog catalog = getCatalog();
+        if (renderers.size() == 1) {
+            render(renderers.get(0), catalog, outputs.get(0));
+            return;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, renderers.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(renderers.size());
+            for (int i = 0; i < renderers.size(); i++) {
+                SettingRenderer renderer = renderers.get(i);
+                Appendable out = outputs.get(i);
+                futures.add(executor.submit(() -> {
+                    render(renderer, catalog, out);
+                    return null;
+                }));
             }
             
-            generateHeader(result, names.get(i));
-            
-            for (Setting<?> setting : settings.get(i)) {
-                for (String line : splitDescription(setting.getDescription())) {
-                    result.append("# ").append(line).append("\n");
-                }
-                result.append("#\n");
-                result.append("# Type: ").append(typeToString(setting)).append("\n");
-                
-                if (setting.getType() == Type.ENUM) {
-                    result.append("# Possible values: ");
-                    for (String value : enumValues.get(setting.getKey())) {
-                        result.append(value).append(", ");
-                    }
-                    result.replace(result.length() - 2, result.length(), ""); // remove trailing ,
-                    result.append("\n");
-                }
-                
-                if (setting.getDefaultValue() != null) {
-                    result.append("# Default value: ")
-                        .append(setting.getDefaultValue().isEmpty()
-                                ? "(empty string)" : escapeSettingValue(setting.getDefaultValue()))
-                        .append("\n");
-                } else {
-                    result.append("# Mandatory: ").append(setting.isMandatory() ? "Yes" : "No").append("\n");
-                }
-                
-                result.append(setting.getKey()).append(" =");
-                result.append("\n\n");
+            for (Future<Void> future : futures) {
+                getResult(future);
             }
-            
+        } finally {
+            executor.shutdownNow();
         }
+    }
+    
+    /**
+     * Renders the catalog with a single renderer and flushes the output, if it is {@link Flushable}.
+     * 
+     * @param renderer The renderer to use.
+     * @param catalog The catalog to render.
+     * @param out The output to write to.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private static void render(SettingRenderer renderer, SettingCatalog catalog, Appendable out)
+            throws IOException {
         
-        result.replace(result.length() - 1, result.length(), ""); // remove one trailing \n
+        renderer.render(catalog, out);
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+    
+    /**
+     * Writes the header of the documentation file, including the current timestamp.
+     * 
+     * @param out The output to write the header to.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    void writeFileHeader(Appendable out) throws IOException {
+        out.append(HEADER).append(Timestamp.INSTANCE.getTimestamp()).append('\n');
+    }
+    
+    /**
+     * Writes the documentation text for a single section. Nothing is written for empty sections.
+     * 
+     * @param out The output to write the text to.
+     * @param name The name of the section.
+     * @param section The settings of the section.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    void writeSection(Appendable out, String name, List<SettingInfo> section) throws IOException {
+        if (section.isEmpty()) {
+            return;
+        }
         
-        return result.toString();
+        long start = System.nanoTime();
+        generateHeader(out, name);
+        
+        for (SettingInfo setting : section) {
+            writeSetting(out, setting);
+        }
+        
+        if (statistics != null) {
+            statistics.recordRendering(name, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Writes the documentation text for a single setting. The text is preceded by an empty line.
+     * 
+     * @param out The output to write the text to.
+     * @param setting The setting to document.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    private void writeSetting(Appendable out, SettingInfo setting) throws IOException {
+        out.append('\n');
+        writeDescription(out, setting.getDescription());
+        out.append("#\n");
+        out.append("# Type: ").append(typeToString(setting)).append('\n');
+        
+        if (setting.getType() == Type.ENUM) {
+            out.append("# Possible values");
+            String separator = ": ";
+            for (String value : getEnumValues(setting)) {
+                out.append(separator).append(value);
+                separator = ", ";
+            }
+            out.append('\n');
+        }
+        
+        if (setting.getDefaultValue() != null) {
+            out.append("# Default value: ")
+                .append(setting.getDefaultValue().isEmpty()
+                        ? "(empty string)" : escapeSettingValue(setting.getDefaultValue()))
+                .append('\n');
+        } else {
+            out.append("# Mandatory: ").append(setting.isMandatory() ? "Yes" : "No").append('\n');
+        }
+        
+        out.append(setting.getKey()).append(" =\n");
+    }
+    
+    /**
+     * Returns the possible values of an enum setting for the documentation.
+     * 
+     * @param setting The {@link Type#ENUM} setting to get the possible values of.
+     * @return The names of the enum constants; an empty list if the setting does not specify them.
+     */
+    static List<String> getEnumValues(SettingInfo setting) {
+        List<String> values = setting.getEnumValues();
+        return values != null ? values : Collections.emptyList();
     }
     
     /**
@@ -407,10 +1475,10 @@ public class SettingDocumentationGenerator {
      * @param setting The setting to get the type string for.
      * @return The human readable text.
      */
-    private String typeToString(Setting<?> setting) {
+    static String typeToString(SettingInfo setting) {
         String str;
         if (setting.getType() == Type.LIST) {
-            str = "List of " + typeToString(((ListSetting<?>) setting).getNestedType()) + "s";
+            str = "List of " + typeToString(setting.getNestedType()) + "s";
         } else {
             str = typeToString(setting.getType());
         }
@@ -418,12 +1486,13 @@ public class SettingDocumentationGenerator {
     }
     
     /**
-     * Converts a setting type into a human-readable string. This is a helper method of {@link #typeToString(Setting)}.
+     * Converts a setting type into a human-readable string. This is a helper method of
+     * {@link #typeToString(SettingInfo)}.
      * 
      * @param type The type to get the string of. Not {@link Type#LIST}.
      * @return The human readable text.
      */
-    private String typeToString(Type type) {
+    private static String typeToString(Type type) {
         String str;
         switch (type) {
         case STRING:
@@ -469,11 +1538,61 @@ public class SettingDocumentationGenerator {
      * If this is called from somewhere else (e.g. ant or a shell), pass locations of jar archives as the command line
      * arguments. Each jar file location must be followed by a string containing the section header for the settings
      * found in that jar. Each of these jars must be in the class-path of this JVM.
+     * <p>
+     * The jar locations may be preceded by the following options; other options are rejected:
+     * <ul>
+     *  <li><code>--parallel[=threads]</code>: Scan the jars (or eclipse projects) concurrently. If no number of
+     *      threads is given, one thread per available processor is used. The output order is not affected. Implies
+     *      <code>--isolated</code>.</li>
+     *  <li><code>--cache=directory</code>: Cache the settings found in each jar in the given directory. Jars with
+     *      exactly the same content as in a previous run are not scanned again, unless the KernelHaven jar or any
+     *      of the isolated libraries changed.</li>
+     *  <li><code>--isolated[=libraries]</code>: Scan each jar with its own class loader, which is discarded after the
+     *      jar is scanned. The jars then don't need to be in the class-path of this JVM; only the KernelHaven
+     *      infrastructure does. Jars that are in the class-path are not isolated, so they are initialized one after
+     *      another with <code>--parallel</code>. Libraries that the jars depend on (e.g. the utility plugins) can be
+     *      passed as a list of jar files, separated by {@link File#pathSeparator}; these may also be scanned.
+     *      Classes that are neither in the scanned jar nor in the libraries are loaded from the other jars of the
+     *      run, so a plugin that builds on another plugin is documented, too. Changes of these other jars are not
+     *      tracked by <code>--cache</code>; pass them as libraries if their classes affect the settings.</li>
+     *  <li><code>--daemon=port</code>: Don't print the documentation, but keep running and serve it on the given
+     *      local port. Changed jars are scanned again automatically. Implies <code>--isolated</code>. A report file
+     *      given with <code>--report</code> is rewritten after every scan. See {@link SettingDocumentationDaemon} for
+     *      the protocol.</li>
+     *  <li><code>--report[=file]</code>: Write a JSON report with the time spent in each phase of scanning and
+     *      rendering, counters per jar and the slowest class initializations (see {@link ScanStatistics}) to the
+     *      given file. If no file (or <code>-</code>) is given, the report is written to {@link System#err}.</li>
+     *  <li><code>--validate=files</code>: Don't print the documentation, but validate the given configuration files
+     *      against the found settings (see {@link ConfigValidator}). Directories are searched for .properties files;
+     *      several files or directories are separated by {@link File#pathSeparator}. The problems are printed and the
+     *      exit code is 1 if any file is invalid.</li>
+     *  <li><code>--format=format[=file],...</code>: Render the documentation in one or more formats from a single
+     *      scan: <code>properties</code> (the default), <code>markdown</code>, <code>html</code> or
+     *      <code>json</code>. Each format is written to the given file, or to {@link System#out} if no file is given
+     *      (only possible for one format). The formats are rendered concurrently.</li>
+     *  <li><code>--discover=directory</code>: Search the given directory tree for plugin jars and <code>bin</code>
+     *      directories, instead of (or in addition to) passing them explicitly. See {@link PluginDiscovery} for how
+     *      the section names and their order are determined.</li>
+     *  <li><code>--index=file</code>: Additionally write all settings to a binary index file, which can be read
+     *      with {@link SettingIndex} without KernelHaven on the class-path.</li>
+     *  <li><code>--diff=index</code>: Don't print the documentation, but a changelog of the found settings compared
+     *      to the given index file (e.g. written by <code>--index</code> for the previous release). The exit code is 1
+     *      if there are breaking changes, and 2 if the given index file can not be read. See {@link CatalogDiff};
+     *      two existing index files can be compared with {@link CatalogDiff#main(String[])} without scanning
+     *      anything.</li>
+     *  <li><code>--search[=index]</code>: Don't print the documentation, but answer full-text search queries from
+     *      {@link System#in}, one per line (see {@link SettingSearchIndex}). The settings are read from the given
+     *      index file; if no file is given, they are found by scanning the jars.</li>
+     *  <li><code>--class-timeout=milliseconds</code>: Load each class on a worker thread and give up on it after the
+     *      given time. Classes that time out or whose static initializer throws are skipped with a warning, instead
+     *      of stalling or aborting the whole run. See {@link #setClassTimeout(long)}.</li>
+     * </ul>
      * <h2>Example</h2>
      * <code>java -cp .:plugin1.jar:plugin2.jar net.ssehub.kernel_haven.util.SettingDocumentationGenerator
-     * plugin1.jar "Plugin 1" plugin2.jar "Plugin 2"</code>
+     * --parallel plugin1.jar "Plugin 1" plugin2.jar "Plugin 2"</code>
      * <p>
-     * The created documentation text is printed to {@link System#out}. You may want to save that in a file.
+     * The created documentation text is printed to {@link System#out} as UTF-8, like the files written by the
+     * renderers. You may want to save that in a file.
      * 
      * @param args Command line arguments. See above.
      * 
@@ -485,54 +1604,10 @@ public class SettingDocumentationGenerator {
             System.exit(1);
         });
         
-        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
-        
-        if (args.length == 0) {
-            // this branch is taken when locally executing this from Eclipse with no java parameters
-            // visit all Eclipse project in the current work space
-            
-            generator.findSettingsInClassPath(new File("../KernelHaven/bin"), "Main Infrastructure");
-            
-            // Utilities
-            generator.findSettingsInClassPath(new File("../CnfUtils/bin"), "CnfUtils");
-            generator.findSettingsInClassPath(new File("../CppUtils/bin"), "CppUtils");
-            generator.findSettingsInClassPath(new File("../IOUtils/bin"), "IOUtils");
-            generator.findSettingsInClassPath(new File("../NonBooleanUtils/bin"), "NonBooleanUtils");
-            generator.findSettingsInClassPath(new File("../DBUtils/bin"), "DBUtils");
-            generator.findSettingsInClassPath(new File("../BusybootPreparation/bin"), "BusybootPreparation");
-            
-            // analyses
-            generator.findSettingsInClassPath(new File("../FeatureEffectAnalysis/bin"), "FeatureEffectAnalysis");
-            generator.findSettingsInClassPath(new File("../MetricHaven/bin"), "MetricHaven");
-            generator.findSettingsInClassPath(new File("../UnDeadAnalyzer/bin"), "UnDeadAnalyzer");
-            generator.findSettingsInClassPath(new File("../ConfigurationMismatchAnalysis/bin"),
-                    "ConfigurationMismatchAnalysis");
-            generator.findSettingsInClassPath(new File("../EntityLocatorAnalysis/bin"), "EntityLocatorAnalysis");
-            generator.findSettingsInClassPath(new File("../ProblemSolutionSpaceMapperAnalysis/bin"), 
-                   "ProblemSolutionSpaceMapperAnalysis");
-            
-            // extractors
-            generator.findSettingsInClassPath(new File("../KbuildMinerExtractor/bin"), "KbuildMinerExtractor");
-            generator.findSettingsInClassPath(new File("../KconfigReaderExtractor/bin"), "KconfigReaderExtractor");
-            generator.findSettingsInClassPath(new File("../srcMLExtractor/bin"), "SrcMlExtractor");
-            generator.findSettingsInClassPath(new File("../TypeChefExtractor/bin"), "TypeChefExtractor");
-            generator.findSettingsInClassPath(new File("../UndertakerExtractor/bin"), "UndertakerExtractor");
-            generator.findSettingsInClassPath(new File("../CodeBlockExtractor/bin"), "CodeBlockExtractor");
-            
-        } else {
-            // this branch is taken when called from Ant
-            // command line arguments are jar locations followed by the section name
-            
-            if (args.length % 2 != 0) {
-                throw new IllegalArgumentException("Expecting: (<jarfile> <section name>)*");
-            }
-            
-            for (int i = 0; i < args.length; i += 2) {
-                generator.findSettingsInJarFile(new File(args[i]), args[i + 1]);
-            }
+        int exitCode = SettingDocumentationCli.run(args);
+        if (exitCode != 0) {
+            System.exit(exitCode);
         }
-        
-        System.out.print(generator.generateSettingText());
     }
 
 }
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only index of settings, stored in a compact binary file that is memory-mapped for reading. Settings can be
+ * looked up by key in constant time, without parsing the whole file. This class only uses the Java class library, so
+ * tools that read the index need neither KernelHaven nor any plugin jars on their class-path. Index files are written
+ * by the <code>--index</code> option of {@link SettingDocumentationGenerator#main(String[])}.
+ * <p>
+ * The file format (all numbers are big endian 32 bit integers, unless noted otherwise):
+ * <ul>
+ *  <li>Header: the magic number {@link #MAGIC}, the format version {@link #VERSION}, the number of entries and the
+ *      size of the hash table (a power of two).</li>
+ *  <li>Hash table: for each slot, the file offset of an entry; 0 for empty slots. The slot of a key is derived from
+ *      {@link String#hashCode()}; collisions are resolved by linear probing.</li>
+ *  <li>Order: the file offsets of all entries, in the order of their sections.</li>
+ *  <li>Entries: the hash code of the key, followed by the offsets of the strings for key, section name, type,
+ *      nested type, default value and description, one byte for the mandatory flag, the number of enum values and
+ *      the string offsets of the enum values. Missing strings and enum values have the offset (or number) -1.</li>
+ *  <li>Strings: each string is stored once, as its length in bytes followed by its UTF-8 bytes.</li>
+ * </ul>
+ * Each key is stored only once; if several sections define the same key, the entry of the first section is used.
+ */
+public final class SettingIndex {
+    
+    /**
+     * A single setting in a {@link SettingIndex}. Types are the names of the
+     * {@link net.ssehub.kernel_haven.config.Setting.Type} constants, so that they can be read without KernelHaven.
+     */
+    public static final class Entry {
+        
+        private String key;
+        
+        private String section;
+        
+        private String type;
+        
+        private String nestedType;
+        
+        private String defaultValue;
+        
+        private boolean mandatory;
+        
+        private String description;
+        
+        private List<String> enumValues;
+        
+        /**
+         * Creates an empty {@link Entry}. The fields are filled by {@link SettingIndex#readEntry(int)}.
+         */
+        private Entry() {
+        }
+        
+        /**
+         * Returns the key of this setting.
+         * 
+         * @return The key.
+         */
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * Returns the name of the section that this setting was found in.
+         * 
+         * @return The section name.
+         */
+        public String getSection() {
+            return section;
+        }
+        
+        /**
+         * Returns the type of this setting.
+         * 
+         * @return The name of the type, e.g. <code>"INTEGER"</code>.
+         */
+        public String getType() {
+            return type;
+        }
+        
+        /**
+         * Returns the type of the elements if this is a list setting.
+         * 
+         * @return The name of the nested type; <code>null</code> if this is not a list setting.
+         */
+        public String getNestedType() {
+            return nestedType;
+        }
+        
+        /**
+         * Returns the default value of this setting.
+         * 
+         * @return The default value; <code>null</code> if this setting has none.
+         */
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+        
+        /**
+         * Returns whether this setting is mandatory.
+         * 
+         * @return Whether this setting is mandatory.
+         */
+        public boolean isMandatory() {
+            return mandatory;
+        }
+        
+        /**
+         * Returns the description text of this setting.
+         * 
+         * @return The description.
+         */
+        public String getDescription() {
+            return description;
+        }
+        
+        /**
+         * Returns the possible values if this is an enum setting.
+         * 
+         * @return The unmodifiable list of values; <code>null</code> if this is not an enum setting.
+         */
+        public List<String> getEnumValues() {
+            return enumValues;
+        }
+        
+    }
+    
+    /**
+     * The magic number at the start of index files (<code>"KHSI"</code>).
+     */
+    static final int MAGIC = 0x4B485349;
+    
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+    
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 16;
+    
+    /**
+     * The size of an entry in bytes, without its enum values.
+     */
+    static final int ENTRY_SIZE = 33;
+    
+    private ByteBuffer buffer;
+    
+    private int size;
+    
+    private int tableSize;
+    
+    /**
+     * Creates a {@link SettingIndex} for the given content.
+     * 
+     * @param buffer The content of an index file.
+     * 
+     * @throws IOException If the content is not a valid index.
+     */
+    SettingIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a setting index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported setting index version " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.tableSize = buffer.getInt(12);
+        if (size < 0 || tableSize <= 0 || Integer.bitCount(tableSize) != 1
+                || HEADER_SIZE + 4L * (tableSize + size) > buffer.limit()) {
+            throw new IOException("Corrupt setting index header");
+        }
+    }
+    
+    /**
+     * Creates the exception for a corrupt or truncated index file.
+     * 
+     * @param message The description of the problem.
+     * @return The exception.
+     */
+    private static UncheckedIOException corrupt(String message) {
+        return new UncheckedIOException(new IOException("Corrupt setting index: " + message));
+    }
+    
+    /**
+     * Checks that an entry and all strings that it references lie within the file. Entries are only checked when
+     * they are read, so that opening an index does not depend on its size.
+     * 
+     * @param offset The offset of the entry.
+     * 
+     * @throws UncheckedIOException If the entry or one of its strings is out of bounds.
+     */
+    private void checkEntry(int offset) {
+        checkRange(offset, ENTRY_SIZE);
+        for (int field = 4; field <= 24; field += 4) {
+            checkString(buffer.getInt(offset + field));
+        }
+        
+        int numEnumValues = buffer.getInt(offset + 29);
+        if (numEnumValues < -1) {
+            throw corrupt("invalid number of enum values at " + offset);
+        }
+        checkRange(offset + ENTRY_SIZE, 4L * Math.max(numEnumValues, 0));
+        for (int i = 0; i < numEnumValues; i++) {
+            checkString(buffer.getInt(offset + ENTRY_SIZE + 4 * i));
+        }
+    }
+    
+    /**
+     * Checks that a string lies within the file.
+     * 
+     * @param offset The offset of the string; -1 for <code>null</code>.
+     * 
+     * @throws UncheckedIOException If the string is out of bounds.
+     */
+    private void checkString(int offset) {
+        if (offset != -1) {
+            checkRange(offset, 4);
+            int length = buffer.getInt(offset);
+            if (length < 0) {
+                throw corrupt("invalid string length at " + offset);
+            }
+            checkRange(offset + 4L, length);
+        }
+    }
+    
+    /**
+     * Checks that a range lies in the data part of the file, i.e. after the header, the hash table and the order.
+     * 
+     * @param offset The start of the range.
+     * @param length The length of the range in bytes.
+     * 
+     * @throws UncheckedIOException If the range is out of bounds.
+     */
+    private void checkRange(long offset, long length) {
+        if (offset < HEADER_SIZE + 4L * (tableSize + size) || offset + length > buffer.limit()) {
+            throw corrupt("offset " + offset + " out of bounds");
+        }
+    }
+    
+    /**
+     * Opens an index file. The file is memory-mapped. Opening only checks the header and that the hash table fits into
+     * the file; each setting is checked and decoded when it is accessed.
+     * 
+     * @param file The index file.
+     * @return The index.
+     * 
+     * @throws IOException If reading the file fails or it is not a valid index.
+     */
+    public static SettingIndex open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Setting index too large: " + file);
+            }
+            return new SettingIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Computes the first hash table slot for a key hash.
+     * 
+     * @param hash The {@link String#hashCode()} of the key.
+     * @param tableSize The size of the hash table; a power of two.
+     * @return The slot.
+     */
+    static int slot(int hash, int tableSize) {
+        return (hash ^ (hash >>> 16)) & (tableSize - 1);
+    }
+    
+    /**
+     * Returns the number of settings in this index.
+     * 
+     * @return The number of settings.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Returns a setting by its position in the index. Settings are in the order of their sections.
+     * 
+     * @param index The position of the setting; between 0 and {@link #size()} (exclusive).
+     * @return The setting.
+     * 
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     * @throws UncheckedIOException If the entry is corrupt or truncated.
+     */
+    public Entry getEntry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return readEntry(buffer.getInt(HEADER_SIZE + 4 * (tableSize + index)));
+    }
+    
+    /**
+     * Looks up a setting by its key.
+     * 
+     * @param key The key of the setting.
+     * @return The setting; <code>null</code> if the index contains no setting with this key.
+     * 
+     * @throws UncheckedIOException If an entry that is compared with the key is corrupt or truncated.
+     */
+    public Entry get(String key) {
+        int hash = key.hashCode();
+        byte[] keyBytes = null;
+        
+        Entry result = null;
+        int mask = tableSize - 1;
+        for (int slot = slot(hash, tableSize), probes = 0; probes < tableSize; slot = (slot + 1) & mask, probes++) {
+            int offset = buffer.getInt(HEADER_SIZE + 4 * slot);
+            if (offset == 0) {
+                break;
+            }
+            checkRange(offset, ENTRY_SIZE);
+            if (buffer.getInt(offset) == hash) {
+                if (keyBytes == null) {
+                    keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                }
+                int keyOffset = buffer.getInt(offset + 4);
+                checkString(keyOffset);
+                if (stringEquals(keyOffset, keyBytes)) {
+                    result = readEntry(offset);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Reads the entry at the given file offset.
+     * 
+     * @param offset The offset of the entry.
+     * @return The entry.
+     * 
+     * @throws UncheckedIOException If the entry is corrupt or truncated.
+     */
+    private Entry readEntry(int offset) {
+        checkEntry(offset);
+        
+        Entry result = new Entry();
+        result.key = readString(buffer.getInt(offset + 4));
+        result.section = readString(buffer.getInt(offset + 8));
+        result.type = readString(buffer.getInt(offset + 12));
+        result.nestedType = readString(buffer.getInt(offset + 16));
+        result.defaultValue = readString(buffer.getInt(offset + 20));
+        result.description = readString(buffer.getInt(offset + 24));
+        result.mandatory = buffer.get(offset + 28) != 0;
+        
+        int numEnumValues = buffer.getInt(offset + 29);
+        if (numEnumValues >= 0) {
+            List<String> values = new ArrayList<>(numEnumValues);
+            for (int i = 0; i < numEnumValues; i++) {
+                values.add(readString(buffer.getInt(offset + ENTRY_SIZE + 4 * i)));
+            }
+            result.enumValues = Collections.unmodifiableList(values);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Reads the string at the given file offset.
+     * 
+     * @param offset The offset of the string; -1 for <code>null</code>.
+     * @return The string.
+     */
+    private String readString(int offset) {
+        String result = null;
+        if (offset != -1) {
+            byte[] bytes = new byte[buffer.getInt(offset)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(offset + 4 + i);
+            }
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the string at the given file offset has the given UTF-8 bytes, without decoding it.
+     * 
+     * @param offset The offset of the string.
+     * @param bytes The UTF-8 bytes to compare with.
+     * @return Whether the string has exactly these bytes.
+     */
+    private boolean stringEquals(int offset, byte[] bytes) {
+        boolean result = buffer.getInt(offset) == bytes.length;
+        for (int i = 0; result && i < bytes.length; i++) {
+            result = buffer.get(offset + 4 + i) == bytes[i];
+        }
+        return result;
+    }
+    
+    /**
+     * Prints the settings with the given keys from an index file, one line per property. This allows scripts to
+     * query an index without parsing it.
+     * 
+     * @param args The index file, followed by the keys of the settings to print.
+     * 
+     * @throws IOException If reading the index fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Expecting: <index file> <key>*");
+        }
+        
+        SettingIndex index = open(new File(args[0]));
+        boolean allFound = true;
+        for (int i = 1; i < args.length; i++) {
+            Entry entry = index.get(args[i]);
+            if (entry == null) {
+                System.err.println(args[i] + ": unknown setting");
+                allFound = false;
+            } else {
+                System.out.println(entry.getKey() + ".type=" + entry.getType());
+                if (entry.getNestedType() != null) {
+                    System.out.println(entry.getKey() + ".nestedType=" + entry.getNestedType());
+                }
+                if (entry.getEnumValues() != null) {
+                    System.out.println(entry.getKey() + ".values=" + String.join(",", entry.getEnumValues()));
+                }
+                if (entry.getDefaultValue() != null) {
+                    System.out.println(entry.getKey() + ".default=" + entry.getDefaultValue());
+                }
+                System.out.println(entry.getKey() + ".mandatory=" + entry.isMandatory());
+                System.out.println(entry.getKey() + ".section=" + entry.getSection());
+            }
+        }
+        if (!allFound) {
+            System.exit(1);
+        }
+    }
+
+}
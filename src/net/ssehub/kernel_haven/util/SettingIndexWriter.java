@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the settings of a {@link SettingCatalog} as a {@link SettingIndex} file. See {@link SettingIndex} for the
+ * file format.
+ */
+final class SettingIndexWriter {
+    
+    /**
+     * Don't allow any instances.
+     */
+    private SettingIndexWriter() {
+    }
+    
+    /**
+     * Writes the index for the given catalog. The file is written to a temporary file first and then moved to the
+     * target, so that readers never see a half-written index.
+     * 
+     * @param catalog The settings to write.
+     * @param file The index file to write. An existing file is overwritten.
+     * 
+     * @throws IOException If writing the file fails.
+     */
+    static void write(SettingCatalog catalog, File file) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        // not a createTempFile(), since that would only be readable by the current user
+        Path tmp = new File(file.getPath() + ".tmp").toPath();
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                write(catalog, out);
+            }
+            
+            try {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+    
+    /**
+     * Creates an in-memory index for the given catalog, without writing a file.
+     * 
+     * @param catalog The settings to create the index for.
+     * @return The index.
+     */
+    static SettingIndex toIndex(SettingCatalog catalog) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(catalog, bytes);
+            return new SettingIndex(ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen, the index is written to memory
+        }
+    }
+    
+    /**
+     * Writes the index for the given catalog to a stream.
+     * 
+     * @param catalog The settings to write.
+     * @param stream The stream to write the index to. Not closed by this method.
+     * 
+     * @throws IOException If writing to the stream fails.
+     */
+    private static void write(SettingCatalog catalog, OutputStream stream) throws IOException {
+        List<SettingInfo> settings = new ArrayList<>();
+        List<String> sections = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < catalog.getNumSections(); i++) {
+            for (SettingInfo setting : catalog.getSection(i)) {
+                if (keys.add(setting.getKey())) {
+                    settings.add(setting);
+                    sections.add(catalog.getSectionName(i));
+                }
+            }
+        }
+        
+        int tableSize = 1;
+        while (tableSize < settings.size() * 2) {
+            tableSize *= 2;
+        }
+        
+        // layout: header, table, order, entries, strings
+        int[] entryOffsets = new int[settings.size()];
+        int offset = SettingIndex.HEADER_SIZE + 4 * (tableSize + settings.size());
+        for (int i = 0; i < settings.size(); i++) {
+            entryOffsets[i] = offset;
+            List<String> enumValues = settings.get(i).getEnumValues();
+            offset += SettingIndex.ENTRY_SIZE + 4 * (enumValues != null ? enumValues.size() : 0);
+        }
+        
+        Map<String, Integer> strings = collectStrings(settings, sections, offset);
+        
+        int[] table = new int[tableSize];
+        for (int i = 0; i < settings.size(); i++) {
+            int slot = SettingIndex.slot(settings.get(i).getKey().hashCode(), tableSize);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = entryOffsets[i];
+        }
+        
+        DataOutputStream out = new DataOutputStream(stream);
+        writeHeader(out, table, entryOffsets);
+        writeEntries(out, settings, sections, strings);
+        writeStrings(out, strings);
+        out.flush();
+    }
+    
+    /**
+     * Collects all strings that the entries reference and assigns their file offsets. Each string is stored once.
+     * 
+     * @param settings The settings, in order.
+     * @param sections The section name of each setting.
+     * @param start The file offset of the first string.
+     * @return The strings with their offsets, in the order they are written.
+     */
+    private static Map<String, Integer> collectStrings(List<SettingInfo> settings, List<String> sections, int start) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int offset = start;
+        for (int i = 0; i < settings.size(); i++) {
+            SettingInfo setting = settings.get(i);
+            offset = addString(strings, setting.getKey(), offset);
+            offset = addString(strings, sections.get(i), offset);
+            offset = addString(strings, setting.getType().name(), offset);
+            offset = addString(strings, setting.getNestedType() != null ? setting.getNestedType().name() : null,
+                    offset);
+            offset = addString(strings, setting.getDefaultValue(), offset);
+            offset = addString(strings, setting.getDescription(), offset);
+            if (setting.getEnumValues() != null) {
+                for (String value : setting.getEnumValues()) {
+                    offset = addString(strings, value, offset);
+                }
+            }
+        }
+        return strings;
+    }
+    
+    /**
+     * Assigns a file offset to a string, if it does not have one, yet.
+     * 
+     * @param strings The strings with their offsets, in the order they are written.
+     * @param str The string to add. May be <code>null</code>, which is not stored.
+     * @param offset The offset for the next new string.
+     * @return The offset for the next new string after adding this one.
+     */
+    private static int addString(Map<String, Integer> strings, String str, int offset) {
+        int result = offset;
+        if (str != null && !strings.containsKey(str)) {
+            strings.put(str, offset);
+            result += 4 + str.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the file offset of a string.
+     * 
+     * @param strings The strings with their offsets.
+     * @param str The string. May be <code>null</code>.
+     * @return The offset of the string; -1 if it is <code>null</code>.
+     */
+    private static int offsetOf(Map<String, Integer> strings, String str) {
+        return str != null ? strings.get(str) : -1;
+    }
+    
+    /**
+     * Writes the header, the hash table and the order of the entries.
+     * 
+     * @param out The stream to write to.
+     * @param table The hash table.
+     * @param entryOffsets The file offset of each entry, in order.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private static void writeHeader(DataOutputStream out, int[] table, int[] entryOffsets) throws IOException {
+        out.writeInt(SettingIndex.MAGIC);
+        out.writeInt(SettingIndex.VERSION);
+        out.writeInt(entryOffsets.length);
+        out.writeInt(table.length);
+        for (int slot : table) {
+            out.writeInt(slot);
+        }
+        for (int entryOffset : entryOffsets) {
+            out.writeInt(entryOffset);
+        }
+    }
+    
+    /**
+     * Writes the entries.
+     * 
+     * @param out The stream to write to.
+     * @param settings The settings, in order.
+     * @param sections The section name of each setting.
+     * @param strings The strings with their offsets.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private static void writeEntries(DataOutputStream out, List<SettingInfo> settings, List<String> sections,
+            Map<String, Integer> strings) throws IOException {
+        
+        for (int i = 0; i < settings.size(); i++) {
+            SettingInfo setting = settings.get(i);
+            out.writeInt(setting.getKey().hashCode());
+            out.writeInt(strings.get(setting.getKey()));
+            out.writeInt(strings.get(sections.get(i)));
+            out.writeInt(strings.get(setting.getType().name()));
+            out.writeInt(offsetOf(strings, setting.getNestedType() != null ? setting.getNestedType().name() : null));
+            out.writeInt(offsetOf(strings, setting.getDefaultValue()));
+            out.writeInt(offsetOf(strings, setting.getDescription()));
+            out.writeBoolean(setting.isMandatory());
+            
+            List<String> enumValues = setting.getEnumValues();
+            out.writeInt(enumValues != null ? enumValues.size() : -1);
+            if (enumValues != null) {
+                for (String value : enumValues) {
+                    out.writeInt(strings.get(value));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes the strings.
+     * 
+     * @param out The stream to write to.
+     * @param strings The strings, in the order of their offsets.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private static void writeStrings(DataOutputStream out, Map<String, Integer> strings) throws IOException {
+        for (String str : strings.keySet()) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.config.EnumSetting;
+import net.ssehub.kernel_haven.config.ListSetting;
+import net.ssehub.kernel_haven.config.Setting;
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * The metadata of a {@link Setting} that is relevant for the documentation. Unlike the {@link Setting} itself, this
+ * does not reference any classes of the plugin that defines the setting, so it can be cached and outlive the class
+ * loader of the plugin.
+ */
+public final class SettingInfo {
+    
+    private String key;
+    
+    private Type type;
+    
+    private Type nestedType;
+    
+    private String defaultValue;
+    
+    private boolean mandatory;
+    
+    private String description;
+    
+    private List<String> enumValues;
+    
+    // checkstyle: stop parameter number check
+    
+    /**
+     * Creates a {@link SettingInfo}. Use {@link #fromSetting(Setting, List)} to create one for a {@link Setting}.
+     * 
+     * @param key The key of the setting.
+     * @param type The type of the setting.
+     * @param nestedType The nested type for {@link Type#LIST} settings; <code>null</code> for other types.
+     * @param defaultValue The default value of the setting; <code>null</code> if it has none.
+     * @param mandatory Whether the setting is mandatory.
+     * @param description The description text of the setting.
+     * @param enumValues The possible values for {@link Type#ENUM} settings; <code>null</code> for other types. This
+     *      is copied into a compact, unmodifiable list.
+     */
+    SettingInfo(String key, Type type, Type nestedType, String defaultValue, boolean mandatory, String description,
+            List<String> enumValues) {
+        
+        this.key = key;
+        this.type = type;
+        this.nestedType = nestedType;
+        this.defaultValue = defaultValue;
+        this.mandatory = mandatory;
+        this.description = description;
+        this.enumValues = enumValues != null
+                ? Collections.unmodifiableList(Arrays.asList(enumValues.toArray(new String[enumValues.size()])))
+                : null;
+    }
+    
+    // checkstyle: resume parameter number check
+    
+    /**
+     * Creates a copy of the given {@link SettingInfo} with a different key and enum value list instance.
+     * 
+     * @param original The setting to copy.
+     * @param key The key; equal to the key of <code>original</code>.
+     * @param enumValues The already unmodifiable enum values; equal to the enum values of <code>original</code>.
+     */
+    private SettingInfo(SettingInfo original, String key, List<String> enumValues) {
+        this.key = key;
+        this.type = original.type;
+        this.nestedType = original.nestedType;
+        this.defaultValue = original.defaultValue;
+        this.mandatory = original.mandatory;
+        this.description = original.description;
+        this.enumValues = enumValues;
+    }
+    
+    /**
+     * Creates a {@link SettingInfo} from the given {@link Setting}.
+     * 
+     * @param setting The setting to copy the metadata from.
+     * @param enumValues The names of the enum constants if this is an {@link EnumSetting}; <code>null</code>
+     *      otherwise.
+     * 
+     * @return The metadata of the given setting.
+     */
+    public static SettingInfo fromSetting(Setting<?> setting, List<String> enumValues) {
+        Type nestedType = null;
+        if (setting.getType() == Type.LIST) {
+            nestedType = ((ListSetting<?>) setting).getNestedType();
+        }
+        
+        return new SettingInfo(setting.getKey(), setting.getType(), nestedType, setting.getDefaultValue(),
+                setting.isMandatory(), setting.getDescription(), enumValues);
+    }
+    
+    /**
+     * Returns a {@link SettingInfo} that uses the shared instances of its key and enum value list. Instances that are
+     * not in the given maps yet are added to them.
+     * 
+     * @param keys The shared keys. Each key maps to itself.
+     * @param enumValueLists The shared enum value lists. Each list maps to itself.
+     * 
+     * @return This setting, if it already uses the shared instances; otherwise a copy that uses them.
+     */
+    SettingInfo share(Map<String, String> keys, Map<List<String>, List<String>> enumValueLists) {
+        String sharedKey = keys.putIfAbsent(key, key);
+        if (sharedKey == null) {
+            sharedKey = key;
+        }
+        
+        List<String> sharedValues = null;
+        if (enumValues != null) {
+            sharedValues = enumValueLists.putIfAbsent(enumValues, enumValues);
+            if (sharedValues == null) {
+                sharedValues = enumValues;
+            }
+        }
+        
+        SettingInfo result = this;
+        if (sharedKey != key || sharedValues != enumValues) {
+            result = new SettingInfo(this, sharedKey, sharedValues);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the key of this setting.
+     * 
+     * @return The key.
+     */
+    public String getKey() {
+        return key;
+    }
+    
+    /**
+     * Returns the type of this setting.
+     * 
+     * @return The type.
+     */
+    public Type getType() {
+        return type;
+    }
+    
+    /**
+     * Returns the type of the elements if this is a {@link Type#LIST} setting.
+     * 
+     * @return The nested type; <code>null</code> if this is not a list setting.
+     */
+    public Type getNestedType() {
+        return nestedType;
+    }
+    
+    /**
+     * Returns the default value of this setting.
+     * 
+     * @return The default value; <code>null</code> if this setting has none.
+     */
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+    
+    /**
+     * Returns whether this setting is mandatory.
+     * 
+     * @return Whether this setting is mandatory.
+     */
+    public boolean isMandatory() {
+        return mandatory;
+    }
+    
+    /**
+     * Returns the description text of this setting.
+     * 
+     * @return The description.
+     */
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * Returns the possible values if this is a {@link Type#ENUM} setting.
+     * 
+     * @return The names of the enum constants; <code>null</code> if this is not an enum setting.
+     */
+    public List<String> getEnumValues() {
+        return enumValues;
+    }
+
+}
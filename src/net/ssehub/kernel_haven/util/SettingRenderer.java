@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.IOException;
+
+/**
+ * Renders the documentation of a {@link SettingCatalog} in a specific format. Each renderer writes its format in a
+ * single pass over the catalog. Since catalogs are immutable, several renderers can render the same catalog
+ * concurrently; see {@link SettingDocumentationGenerator#render(java.util.List, java.util.List)}.
+ */
+public interface SettingRenderer {
+    
+    /**
+     * Writes the documentation of all settings of the given catalog.
+     * 
+     * @param catalog The settings to document.
+     * @param out The output to write the documentation to.
+     * 
+     * @throws IOException If writing to the output fails.
+     */
+    public void render(SettingCatalog catalog, Appendable out) throws IOException;
+
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An in-memory inverted index for full-text search over settings. The tokens of a setting are the segments of its key
+ * (split at <code>.</code> and <code>_</code>) and the words of its description, all in lower case. The tokens are
+ * kept in a sorted array, so that query terms also match all tokens that start with them (e.g. <code>src</code>
+ * matches <code>srcml</code>) via binary search.
+ * <p>
+ * Results are ranked by the number of query terms that a setting matches, then by a score: each matched token adds
+ * its weight (key segments count more than description words) multiplied by its inverse document frequency. Prefix
+ * matches count half as much as exact matches.
+ * <p>
+ * This class only uses the Java class library, so it can be built from a {@link SettingIndex} without KernelHaven on
+ * the class-path.
+ */
+public final class SettingSearchIndex {
+    
+    /**
+     * A single search result.
+     */
+    public static final class Hit {
+        
+        private String key;
+        
+        private String section;
+        
+        private String description;
+        
+        private double score;
+        
+        /**
+         * Creates a {@link Hit}.
+         * 
+         * @param key The key of the found setting.
+         * @param section The name of the section that the setting was found in.
+         * @param description The description of the setting.
+         * @param score The score of the setting for the query.
+         */
+        private Hit(String key, String section, String description, double score) {
+            this.key = key;
+            this.section = section;
+            this.description = description;
+            this.score = score;
+        }
+        
+        /**
+         * Returns the key of the found setting.
+         * 
+         * @return The key.
+         */
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * Returns the name of the section that the setting was found in.
+         * 
+         * @return The section name.
+         */
+        public String getSection() {
+            return section;
+        }
+        
+        /**
+         * Returns the description of the found setting.
+         * 
+         * @return The description.
+         */
+        public String getDescription() {
+            return description;
+        }
+        
+        /**
+         * Returns the score of the setting for the query. Only comparable between hits of the same query.
+         * 
+         * @return The score.
+         */
+        public double getScore() {
+            return score;
+        }
+        
+    }
+    
+    /**
+     * The weight of a token that is a segment of the key.
+     */
+    private static final int KEY_WEIGHT = 3;
+    
+    /**
+     * The weight of each occurrence of a token in the description.
+     */
+    private static final int DESCRIPTION_WEIGHT = 1;
+    
+    /**
+     * The number of results that {@link #answerQueries(BufferedReader, Writer)} prints per query.
+     */
+    private static final int MAX_PRINTED_HITS = 10;
+    
+    private String[] keys;
+    
+    private String[] sections;
+    
+    private String[] descriptions;
+    
+    /**
+     * All distinct tokens, sorted.
+     */
+    private String[] tokens;
+    
+    /**
+     * The inverse document frequency of each token in {@link #tokens}.
+     */
+    private double[] idfs;
+    
+    /**
+     * For each token in {@link #tokens}, the start of its postings in {@link #postingSettings} and
+     * {@link #postingWeights}. Has one more element than {@link #tokens}, so that the postings of token
+     * <code>i</code> end at <code>postingStarts[i + 1]</code>.
+     */
+    private int[] postingStarts;
+    
+    /**
+     * The settings (indices into {@link #keys}) that contain a token, in ascending order per token.
+     */
+    private int[] postingSettings;
+    
+    /**
+     * The weight of a token in the setting at the same position in {@link #postingSettings}.
+     */
+    private int[] postingWeights;
+    
+    /**
+     * Creates a {@link SettingSearchIndex} and builds the index.
+     * 
+     * @param keys The keys of all settings.
+     * @param sections The section names of all settings.
+     * @param descriptions The descriptions of all settings; may contain <code>null</code>.
+     */
+    private SettingSearchIndex(String[] keys, String[] sections, String[] descriptions) {
+        this.keys = keys;
+        this.sections = sections;
+        this.descriptions = descriptions;
+        
+        // token -> postings as {setting, weight}; settings are added in ascending order
+        Map<String, List<int[]>> postings = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            Map<String, Integer> weights = new HashMap<>();
+            for (String token : tokenize(keys[i], "[._]+")) {
+                weights.merge(token, KEY_WEIGHT, Integer::sum);
+            }
+            if (descriptions[i] != null) {
+                for (String token : tokenize(descriptions[i], "[^\\p{L}\\p{N}]+")) {
+                    weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), (token) -> new ArrayList<>())
+                        .add(new int[] {i, entry.getValue()});
+            }
+        }
+        
+        int numPostings = 0;
+        for (List<int[]> list : postings.values()) {
+            numPostings += list.size();
+        }
+        
+        this.tokens = new String[postings.size()];
+        this.idfs = new double[postings.size()];
+        this.postingStarts = new int[postings.size() + 1];
+        this.postingSettings = new int[numPostings];
+        this.postingWeights = new int[numPostings];
+        
+        int token = 0;
+        int posting = 0;
+        for (Map.Entry<String, List<int[]>> entry : postings.entrySet()) {
+            tokens[token] = entry.getKey();
+            idfs[token] = Math.log(1.0 + (double) keys.length / entry.getValue().size());
+            postingStarts[token] = posting;
+            for (int[] settingAndWeight : entry.getValue()) {
+                postingSettings[posting] = settingAndWeight[0];
+                postingWeights[posting] = settingAndWeight[1];
+                posting++;
+            }
+            token++;
+        }
+        postingStarts[token] = posting;
+    }
+    
+    /**
+     * Builds a search index over all settings of a catalog.
+     * 
+     * @param catalog The catalog to search in.
+     * @return The search index.
+     */
+    public static SettingSearchIndex of(SettingCatalog catalog) {
+        int size = catalog.getNumSettings();
+        String[] keys = new String[size];
+        String[] sections = new String[size];
+        String[] descriptions = new String[size];
+        
+        int i = 0;
+        for (int section = 0; section < catalog.getNumSections(); section++) {
+            for (SettingInfo setting : catalog.getSection(section)) {
+                keys[i] = setting.getKey();
+                sections[i] = catalog.getSectionName(section);
+                descriptions[i] = setting.getDescription();
+                i++;
+            }
+        }
+        return new SettingSearchIndex(keys, sections, descriptions);
+    }
+    
+    /**
+     * Builds a search index over all settings of a {@link SettingIndex}.
+     * 
+     * @param index The index to search in.
+     * @return The search index.
+     */
+    public static SettingSearchIndex of(SettingIndex index) {
+        String[] keys = new String[index.size()];
+        String[] sections = new String[index.size()];
+        String[] descriptions = new String[index.size()];
+        
+        for (int i = 0; i < index.size(); i++) {
+            SettingIndex.Entry entry = index.getEntry(i);
+            keys[i] = entry.getKey();
+            sections[i] = entry.getSection();
+            descriptions[i] = entry.getDescription();
+        }
+        return new SettingSearchIndex(keys, sections, descriptions);
+    }
+    
+    /**
+     * Splits a text into lower case tokens.
+     * 
+     * @param text The text to split.
+     * @param separator The regular expression for the separators between tokens.
+     * @return The non-empty tokens.
+     */
+    private static List<String> tokenize(String text, String separator) {
+        List<String> result = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split(separator)) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of distinct tokens in this index.
+     * 
+     * @return The number of tokens.
+     */
+    public int getNumTokens() {
+        return tokens.length;
+    }
+    
+    /**
+     * Searches for settings that match the given query. The query is split into terms like descriptions are; a
+     * setting matches a term if any of its tokens starts with the term. See the class comment for the ranking.
+     * 
+     * @param query The query, e.g. <code>srcml timeout</code>.
+     * @param maxHits The maximum number of hits to return.
+     * @return The best hits, best first; empty if no setting matches any term.
+     */
+    public List<Hit> search(String query, int maxHits) {
+        double[] scores = new double[keys.length];
+        int[] matchedTerms = new int[keys.length];
+        int[] lastTerm = new int[keys.length];
+        int[] found = new int[keys.length];
+        int numFound = 0;
+        
+        List<String> terms = tokenize(query, "[^\\p{L}\\p{N}]+");
+        for (int term = 1; term <= terms.size(); term++) {
+            String prefix = terms.get(term - 1);
+            
+            // all tokens starting with the term are adjacent in the sorted array, beginning at its insertion point
+            int token = Arrays.binarySearch(tokens, prefix);
+            if (token < 0) {
+                token = -token - 1;
+            }
+            for (; token < tokens.length && tokens[token].startsWith(prefix); token++) {
+                double factor = idfs[token] * (tokens[token].length() == prefix.length() ? 1.0 : 0.5);
+                
+                for (int posting = postingStarts[token]; posting < postingStarts[token + 1]; posting++) {
+                    int setting = postingSettings[posting];
+                    if (matchedTerms[setting] == 0) {
+                        found[numFound++] = setting;
+                    }
+                    if (lastTerm[setting] != term) {
+                        lastTerm[setting] = term;
+                        matchedTerms[setting]++;
+                    }
+                    scores[setting] += postingWeights[posting] * factor;
+                }
+            }
+        }
+        
+        // keep only the best hits, sorted by insertion; much cheaper than sorting all found settings
+        int[] best = new int[Math.min(maxHits, numFound)];
+        int numBest = 0;
+        for (int i = 0; i < numFound; i++) {
+            int setting = found[i];
+            boolean full = numBest == best.length;
+            if (full && (numBest == 0 || !isBetter(setting, best[numBest - 1], matchedTerms, scores))) {
+                continue;
+            }
+            
+            int position = full ? numBest - 1 : numBest++;
+            while (position > 0 && isBetter(setting, best[position - 1], matchedTerms, scores)) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = setting;
+        }
+        
+        List<Hit> result = new ArrayList<>(numBest);
+        for (int i = 0; i < numBest; i++) {
+            int setting = best[i];
+            result.add(new Hit(keys[setting], sections[setting], descriptions[setting], scores[setting]));
+        }
+        return result;
+    }
+    
+    /**
+     * Compares the ranking of two settings for a query.
+     * 
+     * @param setting The setting to compare.
+     * @param other The setting to compare with.
+     * @param matchedTerms The number of matched query terms per setting.
+     * @param scores The score per setting.
+     * @return Whether <code>setting</code> is ranked before <code>other</code>. Ties are broken by the order of the
+     *      settings.
+     */
+    private static boolean isBetter(int setting, int other, int[] matchedTerms, double[] scores) {
+        boolean result;
+        if (matchedTerms[setting] != matchedTerms[other]) {
+            result = matchedTerms[setting] > matchedTerms[other];
+        } else if (scores[setting] != scores[other]) {
+            result = scores[setting] > scores[other];
+        } else {
+            result = setting < other;
+        }
+        return result;
+    }
+    
+    /**
+     * Answers queries interactively: reads one query per line until the end of the input, and prints the best hits
+     * with the first line of their description and the time the search took.
+     * 
+     * @param in The input to read the queries from.
+     * @param out The output to print the results to. Flushed after each query.
+     * 
+     * @throws IOException If reading or writing fails.
+     */
+    public void answerQueries(BufferedReader in, Writer out) throws IOException {
+        String query;
+        while ((query = in.readLine()) != null) {
+            if (query.trim().isEmpty()) {
+                continue;
+            }
+            
+            long start = System.nanoTime();
+            List<Hit> hits = search(query, MAX_PRINTED_HITS);
+            long nanos = System.nanoTime() - start;
+            
+            for (Hit hit : hits) {
+                out.append(hit.getKey()).append(" (").append(hit.getSection()).append(")\n");
+                if (hit.getDescription() != null && !hit.getDescription().isEmpty()) {
+                    String firstLine = hit.getDescription().split("\n", 2)[0];
+                    out.append("    ").append(firstLine).append('\n');
+                }
+            }
+            out.append(String.format(Locale.ROOT, "# %d hits in %.3f ms\n", hits.size(), nanos / 1000000.0));
+            out.flush();
+        }
+    }
+    
+    /**
+     * Reads an index file and answers search queries from {@link System#in}, one per line.
+     * 
+     * @param args The index file, as written by the <code>--index</code> option of
+     *      {@link SettingDocumentationGenerator#main(String[])}.
+     * 
+     * @throws IOException If reading the index fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expecting: <index file>");
+        }
+        
+        SettingSearchIndex index = of(SettingIndex.open(new File(args[0])));
+        index.answerQueries(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+import net.ssehub.kernel_haven.util.CatalogDiff.Change;
+import net.ssehub.kernel_haven.util.CatalogDiff.Kind;
+
+/**
+ * Tests the {@link CatalogDiff}.
+ */
+public class CatalogDiffTest {
+    
+    /**
+     * The folder for the index files created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates an in-memory index with a single section.
+     * 
+     * @param settings The settings of the section.
+     * @return The index.
+     */
+    private static SettingIndex index(SettingInfo... settings) {
+        return SettingIndexWriter.toIndex(new SettingCatalog(Arrays.asList("core"),
+                Arrays.asList(Arrays.asList(settings))));
+    }
+    
+    /**
+     * Creates a setting of type {@link Type#STRING}.
+     * 
+     * @param key The key of the setting.
+     * @param defaultValue The default value; may be <code>null</code>.
+     * @param mandatory Whether the setting is mandatory.
+     * @return The setting.
+     */
+    private static SettingInfo string(String key, String defaultValue, boolean mandatory) {
+        return new SettingInfo(key, Type.STRING, null, defaultValue, mandatory, "A string.", null);
+    }
+    
+    /**
+     * Creates an enum setting.
+     * 
+     * @param key The key of the setting.
+     * @param values The possible values.
+     * @return The setting.
+     */
+    private static SettingInfo enumSetting(String key, String... values) {
+        return new SettingInfo(key, Type.ENUM, null, values[0], false, "An enum.", Arrays.asList(values));
+    }
+    
+    /**
+     * Compares two indices and returns the only change.
+     * 
+     * @param oldIndex The old version.
+     * @param newIndex The new version.
+     * @return The single change between both versions.
+     */
+    private static Change singleChange(SettingIndex oldIndex, SettingIndex newIndex) {
+        List<Change> changes = CatalogDiff.compare(oldIndex, newIndex).getChanges();
+        assertThat(changes.size(), is(1));
+        return changes.get(0);
+    }
+    
+    /**
+     * Tests that equal versions have no changes.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testEqual() throws IOException {
+        SettingIndex index = index(string("a", "x", false), enumSetting("b", "ONE", "TWO"));
+        
+        CatalogDiff diff = CatalogDiff.compare(index, index(string("a", "x", false), enumSetting("b", "ONE", "TWO")));
+        
+        assertThat(diff.getChanges(), is(Collections.emptyList()));
+        assertThat(diff.hasBreakingChanges(), is(false));
+        StringBuilder changelog = new StringBuilder();
+        diff.writeChangelog(changelog);
+        assertThat(changelog.toString(), is("# Setting changes\n\n0 added, 0 removed, 0 changed, 0 breaking\n"));
+    }
+    
+    /**
+     * Tests that added settings are only breaking if they require a value.
+     */
+    @Test
+    public void testAdded() {
+        CatalogDiff diff = CatalogDiff.compare(index(), index(string("optional", null, false),
+                string("withDefault", "x", true), string("required", null, true)));
+        
+        List<String> keys = new ArrayList<>();
+        List<Boolean> breaking = new ArrayList<>();
+        for (Change change : diff.getChanges()) {
+            assertThat(change.getKind(), is(Kind.ADDED));
+            keys.add(change.getKey());
+            breaking.add(change.isBreaking());
+        }
+        assertThat(keys, is(Arrays.asList("optional", "withDefault", "required")));
+        assertThat(breaking, is(Arrays.asList(false, false, true)));
+        assertThat(diff.getChanges().get(2).getDetails(), is(Arrays.asList("requires a value")));
+    }
+    
+    /**
+     * Tests that removed settings are breaking and listed after added and changed settings.
+     */
+    @Test
+    public void testRemoved() {
+        CatalogDiff diff = CatalogDiff.compare(index(string("removed", null, false), string("kept", "x", false)),
+                index(string("kept", "y", false)));
+        
+        assertThat(diff.getChanges().size(), is(2));
+        assertThat(diff.getChanges().get(0).getKind(), is(Kind.CHANGED));
+        assertThat(diff.getChanges().get(1).getKind(), is(Kind.REMOVED));
+        assertThat(diff.getChanges().get(1).getKey(), is("removed"));
+        assertThat(diff.getChanges().get(1).isBreaking(), is(true));
+        assertThat(diff.hasBreakingChanges(), is(true));
+    }
+    
+    /**
+     * Tests that type changes, including changes of the nested type of list settings, are breaking.
+     */
+    @Test
+    public void testTypeChanged() {
+        Change change = singleChange(index(string("a", null, false)),
+                index(new SettingInfo("a", Type.INTEGER, null, null, false, "A string.", null)));
+        assertThat(change.getDetails(), is(Arrays.asList("type STRING -> INTEGER")));
+        assertThat(change.isBreaking(), is(true));
+        
+        change = singleChange(index(new SettingInfo("l", Type.LIST, Type.PATH, null, false, "A list.", null)),
+                index(new SettingInfo("l", Type.LIST, Type.FILE, null, false, "A list.", null)));
+        assertThat(change.getDetails(), is(Arrays.asList("type LIST of PATH -> LIST of FILE")));
+        assertThat(change.isBreaking(), is(true));
+    }
+    
+    /**
+     * Tests that removed enum values are breaking, but added enum values are not.
+     */
+    @Test
+    public void testEnumValues() {
+        Change change = singleChange(index(enumSetting("e", "ONE", "TWO")), index(enumSetting("e", "ONE", "THREE")));
+        assertThat(change.getDetails(), is(Arrays.asList("removed enum values TWO", "added enum values THREE")));
+        assertThat(change.isBreaking(), is(true));
+        
+        change = singleChange(index(enumSetting("e", "ONE")), index(enumSetting("e", "ONE", "TWO")));
+        assertThat(change.getDetails(), is(Arrays.asList("added enum values TWO")));
+        assertThat(change.isBreaking(), is(false));
+    }
+    
+    /**
+     * Tests that changed default values, sections and descriptions are reported, but are not breaking.
+     */
+    @Test
+    public void testNonBreakingChanges() {
+        Change change = singleChange(index(string("a", "old", false)), index(string("a", "new \"value\"", false)));
+        assertThat(change.getDetails(), is(Arrays.asList("default value \"old\" -> \"new \\\"value\\\"\"")));
+        assertThat(change.isBreaking(), is(false));
+        
+        change = singleChange(index(string("a", null, false)),
+                SettingIndexWriter.toIndex(new SettingCatalog(Arrays.asList("other"), Arrays.asList(
+                        Arrays.asList(new SettingInfo("a", Type.STRING, null, null, false, "Changed.", null))))));
+        assertThat(change.getDetails(), is(Arrays.asList("moved from core to other", "description changed")));
+        assertThat(change.isBreaking(), is(false));
+    }
+    
+    /**
+     * Tests that a setting that now requires a value is breaking, while other changes of the mandatory flag are not.
+     */
+    @Test
+    public void testMandatory() {
+        Change change = singleChange(index(string("a", null, false)), index(string("a", null, true)));
+        assertThat(change.getDetails(), is(Arrays.asList("now requires a value")));
+        assertThat(change.isBreaking(), is(true));
+        
+        change = singleChange(index(string("a", "x", false)), index(string("a", "x", true)));
+        assertThat(change.getDetails(), is(Arrays.asList("mandatory false -> true")));
+        assertThat(change.isBreaking(), is(false));
+        
+        change = singleChange(index(string("a", "x", true)), index(string("a", null, true)));
+        assertThat(change.getDetails(), is(Arrays.asList("default value \"x\" -> (none)", "now requires a value")));
+        assertThat(change.isBreaking(), is(true));
+    }
+    
+    /**
+     * Tests the Markdown changelog.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testChangelog() throws IOException {
+        CatalogDiff diff = CatalogDiff.compare(index(string("removed", null, false), enumSetting("e", "ONE", "TWO")),
+                index(enumSetting("e", "ONE"), string("added", null, false)));
+        
+        StringBuilder changelog = new StringBuilder();
+        diff.writeChangelog(changelog);
+        
+        assertThat(changelog.toString(), is("# Setting changes\n"
+                + "\n"
+                + "1 added, 1 removed, 1 changed, 2 breaking\n"
+                + "\n"
+                + "## Added settings\n"
+                + "\n"
+                + "- `added` (core)\n"
+                + "\n"
+                + "## Removed settings\n"
+                + "\n"
+                + "- `removed` (core) **breaking**\n"
+                + "\n"
+                + "## Changed settings\n"
+                + "\n"
+                + "- `e` (core) **breaking**: removed enum values TWO\n"));
+    }
+    
+    /**
+     * Tests that an index file that does not exist or is truncated results in its own exit code, both for
+     * {@link CatalogDiff#main(String[])} and for the <code>--diff</code> option of the generator, instead of an
+     * exception. Nothing is written for the <code>--index</code> option in this case.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testUnreadableIndex() throws IOException {
+        File valid = new File(folder.getRoot(), "valid.index");
+        SettingIndexWriter.write(new SettingCatalog(Arrays.asList("core"), Arrays.asList(Arrays.asList(
+                string("a", null, false), string("b", "x", false), enumSetting("e", "ONE", "TWO")))), valid);
+        byte[] bytes = Files.readAllBytes(valid.toPath());
+        File truncated = new File(folder.getRoot(), "truncated.index");
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+        File missing = new File(folder.getRoot(), "missing.index");
+        
+        assertThat(CatalogDiff.readIndex(valid).size(), is(3));
+        assertThat(CatalogDiff.readIndex(truncated), nullValue());
+        assertThat(CatalogDiff.readIndex(missing), nullValue());
+        
+        assertThat(CatalogDiff.run(new String[] {valid.getPath(), valid.getPath()}), is(0));
+        assertThat(CatalogDiff.run(new String[] {missing.getPath(), valid.getPath()}),
+                is(CatalogDiff.EXIT_UNREADABLE_INDEX));
+        assertThat(CatalogDiff.run(new String[] {valid.getPath(), truncated.getPath()}),
+                is(CatalogDiff.EXIT_UNREADABLE_INDEX));
+        
+        File newIndex = new File(folder.getRoot(), "new.index");
+        String[] args = {"--diff=" + truncated.getPath(), "--index=" + newIndex.getPath(),
+                folder.getRoot().getPath(), "Nothing"};
+        assertThat(SettingDocumentationCli.run(args), is(CatalogDiff.EXIT_UNREADABLE_INDEX));
+        assertThat(newIndex.exists(), is(false));
+    }
+    
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link CentralDirectoryReader}.
+ */
+public class CentralDirectoryReaderTest {
+    
+    private static final byte[] CENTRAL_SIGNATURE = {0x50, 0x4b, 0x01, 0x02};
+    
+    /**
+     * The folder for the jars created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Returns the content used for an entry, so that each entry has a different content.
+     * 
+     * @param name The name of the entry.
+     * @return The content of the entry.
+     */
+    private static byte[] content(String name) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            result.append(name).append(i);
+        }
+        return result.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Creates a jar with the given entries. Entries with a name ending in <code>Stored.class</code> are stored,
+     * all others are deflated.
+     * 
+     * @param names The names of the entries.
+     * @return The created jar file.
+     * 
+     * @throws IOException If writing the jar fails.
+     */
+    private File createJar(String... names) throws IOException {
+        File jar = folder.newFile();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (String name : names) {
+                byte[] content = content(name);
+                ZipEntry entry = new ZipEntry(name);
+                if (name.endsWith("Stored.class")) {
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                ((OutputStream) out).write(content);
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+    
+    /**
+     * Returns the offset of the first central directory header in the given jar.
+     * 
+     * @param jar The content of the jar.
+     * @return The offset of the header.
+     */
+    private static int findCentralHeader(byte[] jar) {
+        int result = -1;
+        for (int i = 0; i <= jar.length - CENTRAL_SIGNATURE.length && result == -1; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(jar, i, i + CENTRAL_SIGNATURE.length), CENTRAL_SIGNATURE)) {
+                result = i;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that only top-level .class files with the given package prefix are listed, and that both stored and
+     * deflated entries are read correctly.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testListAndRead() throws IOException {
+        File jar = createJar("META-INF/readme.txt", "net/ssehub/Deflated.class", "net/ssehub/Deflated$Inner.class",
+                "net/ssehub/sub/Stored.class", "net/ssehub/notes.txt", "org/other/Other.class");
+        
+        List<String> names = new ArrayList<>();
+        try (CentralDirectoryReader reader = CentralDirectoryReader.open(jar, "net.ssehub")) {
+            assertThat(reader, notNullValue());
+            for (int i = 0; i < reader.getNumEntries(); i++) {
+                String name = reader.getClassName(i);
+                names.add(name);
+                assertThat(reader.read(i), is(content(name.replace('.', '/') + ".class")));
+            }
+        }
+        
+        assertThat(names, is(Arrays.asList("net.ssehub.Deflated", "net.ssehub.sub.Stored")));
+    }
+    
+    /**
+     * Tests that many entries are listed (i.e. more than the initial capacity of the entry table).
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testManyEntries() throws IOException {
+        String[] names = new String[200];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "net/ssehub/C" + i + ".class";
+        }
+        File jar = createJar(names);
+        
+        try (CentralDirectoryReader reader = CentralDirectoryReader.open(jar, "net.ssehub")) {
+            assertThat(reader.getNumEntries(), is(names.length));
+            assertThat(reader.getClassName(199), is("net.ssehub.C199"));
+            assertThat(reader.read(199), is(content(names[199])));
+        }
+    }
+    
+    /**
+     * Tests that the end of central directory record is found in front of an archive comment.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testArchiveComment() throws IOException {
+        File jar = folder.newFile();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            out.setComment("a comment that contains PK\u0005\u0006 like a signature");
+            out.putNextEntry(new ZipEntry("net/ssehub/Deflated.class"));
+            ((OutputStream) out).write(content("net/ssehub/Deflated.class"));
+            out.closeEntry();
+        }
+        
+        try (CentralDirectoryReader reader = CentralDirectoryReader.open(jar, "net.ssehub")) {
+            assertThat(reader.getNumEntries(), is(1));
+            assertThat(reader.read(0), is(content("net/ssehub/Deflated.class")));
+        }
+    }
+    
+    /**
+     * Tests that <code>null</code> is returned for jars with an unsupported compression method, so that the caller
+     * can fall back to a different reader.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testUnsupportedCompression() throws IOException {
+        File jar = createJar("net/ssehub/Deflated.class");
+        byte[] bytes = Files.readAllBytes(jar.toPath());
+        bytes[findCentralHeader(bytes) + 10] = 12; // bzip2
+        Files.write(jar.toPath(), bytes);
+        
+        assertThat(CentralDirectoryReader.open(jar, "net.ssehub"), nullValue());
+    }
+    
+    /**
+     * Tests that a file that is not a ZIP archive is rejected.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testNotAZip() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content("not a zip"));
+        
+        CentralDirectoryReader.open(file, "net.ssehub");
+    }
+    
+    /**
+     * Tests that an entry with an invalid local header offset is rejected when reading it.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testInvalidLocalHeaderOffset() throws IOException {
+        File jar = createJar("net/ssehub/Deflated.class");
+        byte[] bytes = Files.readAllBytes(jar.toPath());
+        int header = findCentralHeader(bytes);
+        bytes[header + 42] = 1; // local header offset 1 instead of 0
+        Files.write(jar.toPath(), bytes);
+        
+        try (CentralDirectoryReader reader = CentralDirectoryReader.open(jar, "net.ssehub")) {
+            reader.read(0);
+        }
+    }
+    
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ClassFileInspector}.
+ */
+public class ClassFileInspectorTest {
+    
+    /**
+     * A class with different kinds of fields. Only the field declarations are read by the tests.
+     */
+    @SuppressWarnings("unused")
+    private static class Fields {
+        
+        public static final String NAME = "name";
+        
+        static final List<String> LIST = Collections.emptyList();
+        
+        private static final int NUMBER = 1;
+        
+        private static final String[] ARRAY = {};
+        
+        private static final Integer BOXED = 2;
+        
+        private static Object notFinal;
+        
+        private final String notStatic = "x";
+        
+    }
+    
+    /**
+     * A class without any fields.
+     */
+    private static class NoFields {
+    }
+    
+    /**
+     * Reads the bytes of the .class file of the given class.
+     * 
+     * @param cls The class to read.
+     * @return The bytes of the .class file.
+     * 
+     * @throws IOException If reading fails.
+     */
+    private static byte[] readClassFile(Class<?> cls) throws IOException {
+        String name = cls.getName();
+        try (InputStream in = cls.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            return ClassFileInspector.readFully(in);
+        }
+    }
+    
+    /**
+     * Tests that only the class types of static final fields are returned, in declaration order.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testStaticFinalFieldTypes() throws IOException {
+        List<String> types = ClassFileInspector.getStaticFinalFieldTypes(readClassFile(Fields.class));
+        
+        assertThat(types, is(Arrays.asList("java.lang.String", "java.util.List", "java.lang.Integer")));
+    }
+    
+    /**
+     * Tests that a class without fields results in an empty list.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testNoFields() throws IOException {
+        List<String> types = ClassFileInspector.getStaticFinalFieldTypes(readClassFile(NoFields.class));
+        
+        assertThat(types, is(Collections.emptyList()));
+    }
+    
+    /**
+     * Tests that bytes without the class file magic number are rejected.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testNotAClassFile() throws IOException {
+        ClassFileInspector.getStaticFinalFieldTypes(new byte[] {'P', 'K', 3, 4, 0, 0, 0, 0});
+    }
+    
+    /**
+     * Tests that a truncated class file is rejected with an {@link IOException}.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] classFile = readClassFile(Fields.class);
+        
+        ClassFileInspector.getStaticFinalFieldTypes(Arrays.copyOf(classFile, classFile.length / 2));
+    }
+    
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link ClassLoadingWorkers}, i.e. scanning with a time budget per class.
+ */
+public class ClassLoadingWorkersTest {
+    
+    /**
+     * The system property that releases the hanging static initializer of {@link #createPlugin()}.
+     */
+    private static final String RELEASE_PROPERTY = "ClassLoadingWorkersTest.release";
+    
+    /**
+     * The folder for the jars created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Releases the hanging static initializer, so that its worker thread ends.
+     */
+    @After
+    public void release() {
+        System.setProperty(RELEASE_PROPERTY, "true");
+    }
+    
+    /**
+     * Creates a plugin jar with a class that declares a setting, a class whose static initializer throws and a class
+     * whose static initializer ignores interrupts until {@link #RELEASE_PROPERTY} is set.
+     * 
+     * @return The plugin jar.
+     * 
+     * @throws IOException If creating the jar fails.
+     */
+    private File createPlugin() throws IOException {
+        Map<String, String> sources = new HashMap<>();
+        sources.put("net.ssehub.test_workers.Good", "package net.ssehub.test_workers;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class Good {\n"
+                + "    public static final Setting<String> GOOD = new Setting<>(\"workers.good\",\n"
+                + "            Setting.Type.STRING, false, null, \"A setting.\");\n"
+                + "}\n");
+        sources.put("net.ssehub.test_workers.Throwing", "package net.ssehub.test_workers;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class Throwing {\n"
+                + "    public static final Setting<String> THROWING = new Setting<>(fail(),\n"
+                + "            Setting.Type.STRING, false, null, \"A setting.\");\n"
+                + "    private static String fail() {\n"
+                + "        throw new IllegalStateException(\"broken\");\n"
+                + "    }\n"
+                + "}\n");
+        sources.put("net.ssehub.test_workers.Hanging", "package net.ssehub.test_workers;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class Hanging {\n"
+                + "    public static final Setting<String> HANGING = new Setting<>(hang(),\n"
+                + "            Setting.Type.STRING, false, null, \"A setting.\");\n"
+                + "    private static String hang() {\n"
+                + "        while (!Boolean.getBoolean(\"" + RELEASE_PROPERTY + "\")) {\n"
+                + "            try {\n"
+                + "                Thread.sleep(10);\n"
+                + "            } catch (InterruptedException e) {\n"
+                + "                // ignored on purpose\n"
+                + "            }\n"
+                + "        }\n"
+                + "        return \"workers.hanging\";\n"
+                + "    }\n"
+                + "}\n");
+        return PluginFixtures.createJar(folder.getRoot(), "plugin.jar", sources);
+    }
+    
+    /**
+     * Tests that classes whose static initializer throws or hangs are skipped and recorded, and that the class
+     * loader that can't be closed because of the hanging class is recorded, too.
+     * 
+     * @throws IOException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testThrowingAndHangingInitializers() throws IOException, InterruptedException {
+        System.clearProperty(RELEASE_PROPERTY);
+        File plugin = createPlugin();
+        
+        ScanStatistics statistics = new ScanStatistics();
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        generator.setIsolatedClassLoaders(getClass().getClassLoader());
+        generator.setStatistics(statistics);
+        generator.setClassTimeout(200);
+        
+        List<List<SettingInfo>> sections = generator.scanSections(Collections.singletonList(plugin),
+                Collections.singletonList("Plugin"), 1);
+        
+        assertThat(sections.get(0).size(), is(1));
+        assertThat(sections.get(0).get(0).getKey(), is("workers.good"));
+        
+        String report = waitForReport(statistics, "\"unclosedClassLoaders\": [\n    {");
+        assertThat(report, containsString("{\"class\": \"net.ssehub.test_workers.Throwing\", \"section\": \"Plugin\", "
+                + "\"reason\": \"static initializer threw java.lang.IllegalStateException: broken\"}"));
+        assertThat(report, containsString("{\"class\": \"net.ssehub.test_workers.Hanging\", \"section\": \"Plugin\", "
+                + "\"reason\": \"timed out after 200 ms\"}"));
+        assertThat(report, containsString("{\"section\": \"Plugin\", \"location\": "));
+        assertThat(report, containsString("\"reason\": \"a class was still loading after 200 ms\"}"));
+    }
+    
+    /**
+     * Tests that a class loader is closed without a failure if the timed out class ends within the time budget.
+     * 
+     * @throws IOException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testClassLoaderClosedAfterRelease() throws IOException, InterruptedException {
+        System.clearProperty(RELEASE_PROPERTY);
+        File plugin = createPlugin();
+        
+        ScanStatistics statistics = new ScanStatistics();
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        generator.setIsolatedClassLoaders(getClass().getClassLoader());
+        generator.setStatistics(statistics);
+        generator.setClassTimeout(1000);
+        
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(1200);
+            } catch (InterruptedException e) {
+                // release immediately
+            }
+            System.setProperty(RELEASE_PROPERTY, "true");
+        });
+        releaser.start();
+        generator.scanSections(Collections.singletonList(plugin), Collections.singletonList("Plugin"), 1);
+        releaser.join();
+        Thread.sleep(1500);
+        
+        StringWriter report = new StringWriter();
+        statistics.writeJson(report);
+        assertThat(report.toString(), containsString("\"reason\": \"timed out after 1000 ms\"}"));
+        assertThat(report.toString(), not(containsString("still loading")));
+    }
+    
+    /**
+     * Writes the report repeatedly until it contains the given string, i.e. until the background thread recorded its
+     * result. Gives up after 5 seconds.
+     * 
+     * @param statistics The statistics to write.
+     * @param expected The string that appears once the result is recorded.
+     * @return The last report.
+     * 
+     * @throws IOException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    private static String waitForReport(ScanStatistics statistics, String expected)
+            throws IOException, InterruptedException {
+        
+        String result = "";
+        boolean done = false;
+        for (int i = 0; i < 500 && !done; i++) {
+            StringWriter out = new StringWriter();
+            statistics.writeJson(out);
+            result = out.toString();
+            done = result.contains(expected);
+            if (!done) {
+                Thread.sleep(10);
+            }
+        }
+        return result;
+    }
+    
+}
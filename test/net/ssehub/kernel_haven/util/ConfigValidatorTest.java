@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Tests the {@link ConfigValidator}.
+ */
+public class ConfigValidatorTest {
+    
+    /**
+     * The folder for the configuration files created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates a validator for a catalog with two sections: <code>core</code> and <code>plugin</code>.
+     * 
+     * @return The validator.
+     */
+    private static ConfigValidator createValidator() {
+        List<SettingInfo> core = Arrays.asList(
+                new SettingInfo("core.count", Type.INTEGER, null, "1", false, "A number.", null),
+                new SettingInfo("core.filter", Type.REGEX, null, ".*", false, "A filter.", null),
+                new SettingInfo("core.mode", Type.ENUM, null, "FAST", false, "A mode.",
+                        Arrays.asList("FAST", "SLOW", "CAF\u00C9")),
+                new SettingInfo("core.numbers", Type.LIST, Type.INTEGER, null, false, "Some numbers.", null),
+                new SettingInfo("core.name", Type.STRING, null, null, true, "A mandatory name.", null));
+        List<SettingInfo> plugin = Arrays.asList(
+                new SettingInfo("plugin.dir", Type.DIRECTORY, null, null, true, "A mandatory directory.", null),
+                new SettingInfo("plugin.flag", Type.BOOLEAN, null, "false", false, "A flag.", null));
+        
+        return new ConfigValidator(new SettingCatalog(Arrays.asList("core", "plugin"), Arrays.asList(core, plugin)));
+    }
+    
+    /**
+     * Creates properties from the given key value pairs.
+     * 
+     * @param keysAndValues Alternating keys and values.
+     * @return The properties.
+     */
+    private static Properties properties(String... keysAndValues) {
+        Properties result = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that a valid configuration has no problems.
+     */
+    @Test
+    public void testValid() {
+        List<String> problems = createValidator().validate(properties(
+                "core.name", "test", "core.count", "42", "core.filter", "[a-z]+", "core.mode", "slow"));
+        
+        assertThat(problems, is(Collections.emptyList()));
+    }
+    
+    /**
+     * Tests that unknown keys are reported.
+     */
+    @Test
+    public void testUnknownKey() {
+        List<String> problems = createValidator().validate(properties("core.name", "test", "core.unknown", "x"));
+        
+        assertThat(problems, is(Arrays.asList("core.unknown: Unknown setting")));
+    }
+    
+    /**
+     * Tests that values that don't match the type of their setting are reported, ordered by key.
+     */
+    @Test
+    public void testInvalidValues() {
+        List<String> problems = createValidator().validate(properties(
+                "core.name", "test", "core.count", "many", "core.filter", "[a-z", "core.mode", "medium"));
+        
+        assertThat(problems.size(), is(3));
+        assertThat(problems.get(0), is("core.count: Not an integer: \"many\""));
+        assertThat(problems.get(1).startsWith("core.filter: Invalid regular expression: "), is(true));
+        assertThat(problems.get(2), is("core.mode: Invalid value medium, possible values are: FAST, SLOW, CAF\u00C9"));
+    }
+    
+    /**
+     * Tests that integers are checked as they are, like KernelHaven parses them: trailing white space is kept by
+     * {@link java.util.Properties} and makes the value invalid.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testIntegerWithWhiteSpace() throws IOException {
+        File config = folder.newFile("config.properties");
+        Files.write(config.toPath(), "core.name = test\ncore.count = 5 \n".getBytes(StandardCharsets.ISO_8859_1));
+        
+        assertThat(createValidator().validate(config), is(Arrays.asList("core.count: Not an integer: \"5 \"")));
+        assertThat(createValidator().validate(properties("core.name", "test", "core.count", "5")),
+                is(Collections.emptyList()));
+    }
+    
+    /**
+     * Tests that the elements of list settings are checked against the nested type, both in the comma separated
+     * form and in the <code>key.N</code> form, and that empty lists and empty elements are accepted.
+     */
+    @Test
+    public void testListValues() {
+        ConfigValidator validator = createValidator();
+        
+        assertThat(validator.validate(properties("core.name", "test", "core.numbers", "1, 2,,3")),
+                is(Collections.emptyList()));
+        assertThat(validator.validate(properties("core.name", "test", "core.numbers", "")),
+                is(Collections.emptyList()));
+        assertThat(validator.validate(properties("core.name", "test", "core.numbers", "1,x")),
+                is(Arrays.asList("core.numbers: Not an integer: \"x\"")));
+        assertThat(validator.validate(properties("core.name", "test", "core.numbers.0", "1", "core.numbers.1", "y")),
+                is(Arrays.asList("core.numbers.1: Not an integer: \"y\"")));
+        assertThat(validator.validate(properties("core.name", "test", "core.count.0", "1")),
+                is(Arrays.asList("core.count.0: Unknown setting")));
+    }
+    
+    /**
+     * Tests that missing mandatory settings are only reported for sections that the configuration uses.
+     */
+    @Test
+    public void testMissingMandatory() {
+        ConfigValidator validator = createValidator();
+        
+        assertThat(validator.validate(properties("core.count", "1")),
+                is(Arrays.asList("core.name: Missing mandatory setting")));
+        assertThat(validator.validate(properties("core.name", "test", "plugin.flag", "true")),
+                is(Arrays.asList("plugin.dir: Missing mandatory setting")));
+    }
+    
+    /**
+     * Tests that configuration files are read as ISO-8859-1, like KernelHaven does.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testFileIsReadAsLatin1() throws IOException {
+        File config = folder.newFile("config.properties");
+        Files.write(config.toPath(), "core.name = test\ncore.mode = caf\u00E9\n".getBytes(StandardCharsets.ISO_8859_1));
+        
+        assertThat(createValidator().validate(config), is(Collections.emptyList()));
+    }
+    
+    /**
+     * Tests that several files are validated concurrently, with the results in the order of the files, and that a
+     * file that can not be read is reported as a problem.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testValidateAll() throws IOException {
+        File valid = folder.newFile("valid.properties");
+        Files.write(valid.toPath(), "core.name = test\n".getBytes(StandardCharsets.ISO_8859_1));
+        File invalid = folder.newFile("invalid.properties");
+        Files.write(invalid.toPath(), "core.name = test\ncore.count = x\n".getBytes(StandardCharsets.ISO_8859_1));
+        File missing = new File(folder.getRoot(), "missing.properties");
+        
+        List<List<String>> problems = createValidator().validateAll(Arrays.asList(valid, invalid, missing), 2);
+        
+        assertThat(problems.size(), is(3));
+        assertThat(problems.get(0), is(Collections.emptyList()));
+        assertThat(problems.get(1), is(Arrays.asList("core.count: Not an integer: \"x\"")));
+        assertThat(problems.get(2).size(), is(1));
+        assertThat(problems.get(2).get(0).startsWith("Can not read file: "), is(true));
+    }
+    
+}
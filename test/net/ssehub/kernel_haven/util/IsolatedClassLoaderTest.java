@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.ssehub.kernel_haven.config.Setting;
+
+/**
+ * Tests the {@link IsolatedClassLoader}.
+ */
+public class IsolatedClassLoaderTest {
+    
+    /**
+     * The folder for the jars created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates the source of a class with a static field that tells where it was loaded from.
+     * 
+     * @param simpleName The simple name of the class.
+     * @param origin The value of the field.
+     * @return The source code.
+     */
+    private static String source(String simpleName, String origin) {
+        return "package net.ssehub.test_isolated;\n"
+                + "public class " + simpleName + " {\n"
+                + "    public static final String ORIGIN = new String(\"" + origin + "\");\n"
+                + "}\n";
+    }
+    
+    /**
+     * Reads the field created by {@link #source(String, String)}.
+     * 
+     * @param clazz The class to read the field of.
+     * @return The value of the field.
+     * 
+     * @throws ReflectiveOperationException unwanted.
+     */
+    private static String origin(Class<?> clazz) throws ReflectiveOperationException {
+        return (String) clazz.getField("ORIGIN").get(null);
+    }
+    
+    /**
+     * Tests that classes of the scanned location are loaded before the libraries, but after the shared class
+     * loader, and that the other locations of the run are only used for classes that are found nowhere else.
+     * 
+     * @throws Exception unwanted.
+     */
+    @Test
+    public void testLookupOrder() throws Exception {
+        Map<String, String> librarySources = new HashMap<>();
+        librarySources.put("net.ssehub.test_isolated.Both", source("Both", "library"));
+        librarySources.put("net.ssehub.test_isolated.OnlyLibrary", source("OnlyLibrary", "library"));
+        File library = PluginFixtures.createJar(folder.getRoot(), "library.jar", librarySources);
+        File location = PluginFixtures.createJar(folder.getRoot(), "location.jar",
+                Collections.singletonMap("net.ssehub.test_isolated.Both", source("Both", "location")));
+        Map<String, String> siblingSources = new HashMap<>();
+        siblingSources.put("net.ssehub.test_isolated.Both", source("Both", "sibling"));
+        siblingSources.put("net.ssehub.test_isolated.OnlyLibrary", source("OnlyLibrary", "sibling"));
+        siblingSources.put("net.ssehub.test_isolated.OnlySibling", source("OnlySibling", "sibling"));
+        File sibling = PluginFixtures.createJar(folder.getRoot(), "sibling.jar", siblingSources);
+        
+        ClassLoader shared = getClass().getClassLoader();
+        URL[] siblings = {sibling.toURI().toURL()};
+        try (URLClassLoader libraries = new URLClassLoader(new URL[] {library.toURI().toURL()}, shared);
+                IsolatedClassLoader loader = new IsolatedClassLoader(location.toURI().toURL(), shared, libraries,
+                        siblings)) {
+            
+            Class<?> both = Class.forName("net.ssehub.test_isolated.Both", true, loader);
+            assertThat(both.getClassLoader(), sameInstance((ClassLoader) loader));
+            assertThat(origin(both), is("location"));
+            
+            Class<?> onlyLibrary = Class.forName("net.ssehub.test_isolated.OnlyLibrary", true, loader);
+            assertThat(onlyLibrary.getClassLoader(), sameInstance((ClassLoader) libraries));
+            
+            Class<?> onlySibling = Class.forName("net.ssehub.test_isolated.OnlySibling", true, loader);
+            assertThat(origin(onlySibling), is("sibling"));
+            assertThat(onlySibling.getClassLoader().getParent(), sameInstance((ClassLoader) libraries));
+            assertThat(loader.loadClass("net.ssehub.test_isolated.OnlySibling"), sameInstance((Object) onlySibling));
+            
+            assertThat(loader.loadClass(Setting.class.getName()), sameInstance((Object) Setting.class));
+        }
+    }
+    
+    /**
+     * Tests that a missing class is reported as such.
+     * 
+     * @throws IOException unwanted.
+     * @throws ClassNotFoundException wanted.
+     */
+    @Test(expected = ClassNotFoundException.class)
+    public void testMissingClass() throws IOException, ClassNotFoundException {
+        File location = PluginFixtures.createJar(folder.getRoot(), "location.jar",
+                Collections.singletonMap("net.ssehub.test_isolated.Both", source("Both", "location")));
+        File sibling = PluginFixtures.createJar(folder.getRoot(), "sibling.jar",
+                Collections.singletonMap("net.ssehub.test_isolated.Other", source("Other", "sibling")));
+        
+        ClassLoader shared = getClass().getClassLoader();
+        try (IsolatedClassLoader loader = new IsolatedClassLoader(location.toURI().toURL(), shared, shared,
+                new URL[] {sibling.toURI().toURL()})) {
+            loader.loadClass("net.ssehub.test_isolated.Missing");
+        }
+    }
+
+}
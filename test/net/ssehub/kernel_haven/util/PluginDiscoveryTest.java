@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link PluginDiscovery}.
+ */
+public class PluginDiscoveryTest {
+    
+    /**
+     * The folder for the directory trees created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates a jar with a single (empty) entry. The discovery only looks at the entry names, not their content.
+     * 
+     * @param file The jar file to create.
+     * @param entry The name of the entry.
+     * @param title The <code>Implementation-Title</code> of the manifest; <code>null</code> for no manifest.
+     * 
+     * @throws IOException If writing the jar fails.
+     */
+    private static void createJar(File file, String entry, String title) throws IOException {
+        file.getParentFile().mkdirs();
+        JarOutputStream out;
+        if (title != null) {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_TITLE, title);
+            out = new JarOutputStream(Files.newOutputStream(file.toPath()), manifest);
+        } else {
+            out = new JarOutputStream(Files.newOutputStream(file.toPath()));
+        }
+        try {
+            out.putNextEntry(new JarEntry(entry));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+    }
+    
+    /**
+     * Tests the section names and order of discovered plugins. Jars without KernelHaven classes, broken jars and the
+     * incremental analyses infrastructure are skipped.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testDiscover() throws IOException {
+        File root = folder.getRoot();
+        createJar(new File(root, "jars/UndertakerExtractor.jar"), "net/ssehub/undertaker/A.class", null);
+        createJar(new File(root, "jars/MyExtractor-1.0.0.jar"), "net/ssehub/my/A.class", null);
+        createJar(new File(root, "jars/srcMLExtractor_v2.jar"), "net/ssehub/srcml/A.class", null);
+        createJar(new File(root, "jars/KernelHaven.jar"), "net/ssehub/kernel_haven/A.class", null);
+        createJar(new File(root, "jars/renamed.jar"), "net/ssehub/metric/A.class", "MetricHaven");
+        createJar(new File(root, "jars/CnfUtils.jar"), "net/ssehub/cnf/A.class", null);
+        createJar(new File(root, "jars/IncrementalAnalysesInfrastructure.jar"), "net/ssehub/inc/A.class", null);
+        createJar(new File(root, "jars/lib/gson.jar"), "com/google/gson/Gson.class", null);
+        Files.write(new File(root, "jars/broken.jar").toPath(), "not a jar".getBytes(StandardCharsets.UTF_8));
+        
+        File bin = new File(root, "workspace/Zeta/bin/net/ssehub/zeta");
+        bin.mkdirs();
+        Files.write(new File(bin, "A.class").toPath(), new byte[0]);
+        
+        List<File> locations = new ArrayList<>();
+        List<String> sectionNames = new ArrayList<>();
+        PluginDiscovery.discover(root, locations, sectionNames);
+        
+        assertThat(sectionNames, is(Arrays.asList("Main Infrastructure", "CnfUtils", "Zeta", "MetricHaven",
+                "SrcMlExtractor", "UndertakerExtractor", "MyExtractor")));
+        assertThat(locations.get(1), is(new File(root, "jars/CnfUtils.jar")));
+        assertThat(locations.get(2), is(new File(root, "workspace/Zeta/bin")));
+    }
+    
+    /**
+     * Tests that the first location of a section is used if a plugin is found twice.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testDuplicateSection() throws IOException {
+        File root = folder.getRoot();
+        createJar(new File(root, "a/CppUtils.jar"), "net/ssehub/cpp/A.class", null);
+        createJar(new File(root, "other/dir/CppUtils-1.1.jar"), "net/ssehub/cpp/A.class", null);
+        
+        List<File> locations = new ArrayList<>();
+        List<String> sectionNames = new ArrayList<>();
+        PluginDiscovery.discover(root, locations, sectionNames);
+        
+        assertThat(sectionNames, is(Arrays.asList("CppUtils")));
+        assertThat(locations, is(Arrays.asList(new File(root, "a/CppUtils.jar"))));
+    }
+    
+    /**
+     * Tests that the known projects are added in their usual order, based on the same table as the discovery.
+     */
+    @Test
+    public void testAddKnownProjects() {
+        List<File> locations = new ArrayList<>();
+        List<String> sectionNames = new ArrayList<>();
+        PluginDiscovery.addKnownProjects(new File(".."), locations, sectionNames);
+        
+        assertThat(sectionNames.size(), is(19));
+        assertThat(sectionNames.get(0), is("Main Infrastructure"));
+        assertThat(locations.get(0), is(new File("../KernelHaven/bin")));
+        assertThat(sectionNames.get(15), is("SrcMlExtractor"));
+        assertThat(locations.get(15), is(new File("../srcMLExtractor/bin")));
+    }
+    
+}
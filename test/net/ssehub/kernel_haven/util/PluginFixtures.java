@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Creates small plugin jars for the tests, by compiling the given sources against the class-path of the tests (i.e.
+ * KernelHaven).
+ */
+final class PluginFixtures {
+    
+    /**
+     * Don't allow any instances.
+     */
+    private PluginFixtures() {
+    }
+    
+    /**
+     * Compiles the given classes and packs them into a jar.
+     * 
+     * @param directory The directory to create the jar in. Source and class files are created in sub-directories
+     *      named after the jar.
+     * @param name The file name of the jar.
+     * @param sources The source code of the classes; key is the fully qualified class name.
+     * @param libraries Additional jars that the sources are compiled against.
+     * 
+     * @return The created jar file.
+     * 
+     * @throws IOException If compiling or writing the jar fails.
+     */
+    static File createJar(File directory, String name, Map<String, String> sources, File... libraries)
+            throws IOException {
+        
+        Path base = directory.toPath().resolve(name + "_build");
+        Path sourceDir = base.resolve("src");
+        Path classes = base.resolve("classes");
+        Files.createDirectories(classes);
+        
+        List<String> args = new ArrayList<>();
+        StringBuilder classPath = new StringBuilder(System.getProperty("java.class.path"));
+        for (File library : libraries) {
+            classPath.append(File.pathSeparatorChar).append(library.getPath());
+        }
+        args.addAll(Arrays.asList("-classpath", classPath.toString(), "-d", classes.toString(), "-nowarn"));
+        
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = sourceDir.resolve(source.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.write(file, source.getValue().getBytes(StandardCharsets.UTF_8));
+            args.add(file.toString());
+        }
+        
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Tests have to run on a JDK");
+        }
+        if (compiler.run(null, null, null, args.toArray(new String[args.size()])) != 0) {
+            throw new IOException("Compiling " + name + " failed");
+        }
+        
+        File jar = new File(directory, name);
+        writeJar(classes, jar);
+        return jar;
+    }
+    
+    /**
+     * Packs all files of a directory into a jar.
+     * 
+     * @param classes The directory to pack.
+     * @param jar The jar file to create.
+     * 
+     * @throws IOException If writing the jar fails.
+     */
+    private static void writeJar(Path classes, File jar) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(classes)) {
+            files = walk.filter((path) -> Files.isRegularFile(path)).sorted().collect(Collectors.toList());
+        }
+        
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (Path file : files) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, (OutputStream) out);
+                out.closeEntry();
+            }
+        }
+    }
+
+}
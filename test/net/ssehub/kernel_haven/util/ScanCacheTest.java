@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Tests the {@link ScanCache}.
+ */
+public class ScanCacheTest {
+    
+    /**
+     * The folder for the cache and the (fake) jars created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates a file with the given content. The cache only hashes the content of jars, so these don't need to be
+     * valid jars.
+     * 
+     * @param content The content of the file.
+     * @return The created file.
+     * 
+     * @throws IOException If writing the file fails.
+     */
+    private File createFile(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+    
+    /**
+     * Creates a list with a single setting.
+     * 
+     * @param key The key of the setting.
+     * @return The settings.
+     */
+    private static List<SettingInfo> settings(String key) {
+        return Arrays.asList(new SettingInfo(key, Type.STRING, null, null, false, "A string.", null));
+    }
+    
+    /**
+     * Tests that changing a scanned jar only invalidates the entry of that jar, even if the other jar could see it.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testChangedJarOnlyInvalidatesItsEntry() throws IOException {
+        File kernelHaven = createFile("KernelHaven");
+        File pluginA = createFile("plugin A");
+        File pluginB = createFile("plugin B");
+        File directory = folder.newFolder();
+        
+        ScanCache cache = new ScanCache(directory, Arrays.asList(kernelHaven));
+        String keyA = cache.getKey(pluginA, false);
+        String keyB = cache.getKey(pluginB, false);
+        cache.store(keyA, settings("a"));
+        cache.store(keyB, settings("b"));
+        
+        Files.write(pluginA.toPath(), "plugin A, version 2".getBytes(StandardCharsets.UTF_8));
+        
+        // a new cache, like in the next run
+        cache = new ScanCache(directory, Arrays.asList(kernelHaven));
+        assertThat(cache.getKey(pluginA, false), not(keyA));
+        assertThat(cache.load(cache.getKey(pluginA, false)), nullValue());
+        assertThat(cache.getKey(pluginB, false), is(keyB));
+        assertThat(cache.load(cache.getKey(pluginB, false)).get(0).getKey(), is("b"));
+    }
+    
+    /**
+     * Tests that changing a declared dependency invalidates the entries of all jars.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testChangedDependencyInvalidatesAllEntries() throws IOException {
+        File kernelHaven = createFile("KernelHaven");
+        File pluginA = createFile("plugin A");
+        File pluginB = createFile("plugin B");
+        File directory = folder.newFolder();
+        
+        ScanCache cache = new ScanCache(directory, Arrays.asList(kernelHaven));
+        String keyA = cache.getKey(pluginA, false);
+        String keyB = cache.getKey(pluginB, false);
+        
+        Files.write(kernelHaven.toPath(), "KernelHaven, version 2".getBytes(StandardCharsets.UTF_8));
+        
+        cache = new ScanCache(directory, Arrays.asList(kernelHaven));
+        assertThat(cache.getKey(pluginA, false), not(keyA));
+        assertThat(cache.getKey(pluginB, false), not(keyB));
+    }
+    
+    /**
+     * Tests that stored settings are loaded with all their attributes, including missing optional ones.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        ScanCache cache = new ScanCache(folder.newFolder(), Collections.<File>emptyList());
+        String key = cache.getKey(createFile("plugin"), false);
+        assertThat(cache.load(key), nullValue());
+        
+        cache.store(key, Arrays.asList(
+                new SettingInfo("list", Type.LIST, Type.INTEGER, "1,2", true, "A list.", null),
+                new SettingInfo("enum", Type.ENUM, null, null, false, null, Arrays.asList("A", "B"))));
+        
+        List<SettingInfo> loaded = cache.load(key);
+        assertThat(loaded, notNullValue());
+        assertThat(loaded.size(), is(2));
+        assertThat(loaded.get(0).getNestedType(), is(Type.INTEGER));
+        assertThat(loaded.get(0).getDefaultValue(), is("1,2"));
+        assertThat(loaded.get(0).isMandatory(), is(true));
+        assertThat(loaded.get(1).getDescription(), nullValue());
+        assertThat(loaded.get(1).getEnumValues(), is(Arrays.asList("A", "B")));
+    }
+    
+    /**
+     * Writes a cache file with the given header: the format version, the number of settings and the length of the
+     * key of the first setting.
+     * 
+     * @param file The cache file to write.
+     * @param numSettings The number of settings.
+     * @param keyLength The length of the key of the first setting.
+     * 
+     * @throws IOException unwanted.
+     */
+    private static void writeCacheFile(File file, int numSettings, int keyLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(1);
+            out.writeInt(numSettings);
+            out.writeInt(keyLength);
+            out.write("key".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(file.toPath(), bytes.toByteArray());
+    }
+    
+    /**
+     * Tests that truncated cache files and cache files with negative or too large lengths are treated as missing
+     * entries, instead of failing with an {@link OutOfMemoryError} or {@link NegativeArraySizeException}.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testCorruptEntries() throws IOException {
+        File directory = folder.newFolder();
+        ScanCache cache = new ScanCache(directory, Collections.<File>emptyList());
+        String key = cache.getKey(createFile("plugin"), false);
+        File file = new File(directory, key + ".settings");
+        
+        cache.store(key, Arrays.asList(new SettingInfo("a", Type.STRING, null, "x", false, "Some text.", null)));
+        byte[] valid = Files.readAllBytes(file.toPath());
+        assertThat(cache.load(key), notNullValue());
+        
+        Files.write(file.toPath(), Arrays.copyOf(valid, valid.length - 3));
+        assertThat(cache.load(key), nullValue());
+        
+        writeCacheFile(file, Integer.MAX_VALUE, 3);
+        assertThat(cache.load(key), nullValue());
+        
+        writeCacheFile(file, -2, 3);
+        assertThat(cache.load(key), nullValue());
+        
+        writeCacheFile(file, 1, Integer.MAX_VALUE);
+        assertThat(cache.load(key), nullValue());
+        
+        writeCacheFile(file, 1, -5);
+        assertThat(cache.load(key), nullValue());
+        
+        // a null key or type
+        writeCacheFile(file, 1, -1);
+        assertThat(cache.load(key), nullValue());
+    }
+    
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Tests the {@link SettingCatalog}.
+ */
+public class SettingCatalogTest {
+    
+    /**
+     * Creates a string setting with the given key.
+     * 
+     * @param key The key of the setting.
+     * @param description The description of the setting.
+     * @return The setting.
+     */
+    private static SettingInfo setting(String key, String description) {
+        return new SettingInfo(key, Type.STRING, null, null, false, description, null);
+    }
+    
+    /**
+     * Tests that a key that appears in several sections is found in the first of these sections.
+     */
+    @Test
+    public void testDuplicateKeyFromFirstSection() {
+        SettingCatalog catalog = new SettingCatalog(Arrays.asList("a", "b", "c"), Arrays.asList(
+                Arrays.asList(setting("z", "a"), setting("shared", "first")),
+                Arrays.asList(setting("shared", "second"), setting("b", "b")),
+                Arrays.asList(setting("shared", "third"))));
+        
+        assertThat(catalog.getSetting("shared").getDescription(), is("first"));
+        assertThat(catalog.getSetting("b").getDescription(), is("b"));
+        assertThat(catalog.getSetting("z").getDescription(), is("a"));
+        assertThat(catalog.getSetting("missing"), nullValue());
+        assertThat(catalog.getSetting(""), nullValue());
+    }
+    
+    /**
+     * Tests that all settings of a large catalog with random keys are found, and that duplicates resolve to the
+     * first occurrence, i.e. that the sort by key is stable.
+     */
+    @Test
+    public void testLookupOfManyKeys() {
+        Random random = new Random(42);
+        List<List<SettingInfo>> sections = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Map<String, String> firstDescription = new HashMap<>();
+        for (int s = 0; s < 7; s++) {
+            List<SettingInfo> section = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(150); i++) {
+                String key = "key." + random.nextInt(400);
+                String description = s + "/" + i;
+                firstDescription.putIfAbsent(key, description);
+                section.add(setting(key, description));
+            }
+            sections.add(section);
+            names.add("section " + s);
+        }
+        
+        SettingCatalog catalog = new SettingCatalog(names, sections);
+        
+        for (Map.Entry<String, String> entry : firstDescription.entrySet()) {
+            assertThat(entry.getKey(), catalog.getSetting(entry.getKey()).getDescription(), is(entry.getValue()));
+        }
+        assertThat(catalog.getSetting("key.400"), nullValue());
+    }
+    
+    /**
+     * Tests that the sections keep the order of their settings and that equal keys share one instance.
+     */
+    @Test
+    public void testSections() {
+        SettingCatalog catalog = new SettingCatalog(Arrays.asList("empty", "full"), Arrays.asList(
+                Collections.<SettingInfo>emptyList(),
+                Arrays.asList(setting(new String("b"), "1"), setting("a", "2"), setting(new String("b"), "3"))));
+        
+        assertThat(catalog.getNumSections(), is(2));
+        assertThat(catalog.getNumSettings(), is(3));
+        assertThat(catalog.getSection(0).isEmpty(), is(true));
+        assertThat(catalog.getSection(1).get(0).getDescription(), is("1"));
+        assertThat(catalog.getSection(1).get(1).getDescription(), is("2"));
+        assertThat(catalog.getSection(1).get(2).getKey(), sameInstance(catalog.getSection(1).get(0).getKey()));
+    }
+
+}
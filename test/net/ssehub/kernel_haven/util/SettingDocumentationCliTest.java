@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link SettingDocumentationCli}.
+ */
+public class SettingDocumentationCliTest {
+    
+    /**
+     * Tests that options with and without values are parsed up to the first location.
+     */
+    @Test
+    public void testParseOptions() {
+        Map<String, String> options = new HashMap<>();
+        int firstLocation = SettingDocumentationCli.parseOptions(new String[] {"--parallel", "--class-timeout=5",
+            "--format=json=a=b", "plugin.jar", "--Plugin"}, options);
+        
+        assertThat(firstLocation, is(3));
+        assertThat(options.size(), is(3));
+        assertThat(options.get("parallel"), is(""));
+        assertThat(options.get("class-timeout"), is("5"));
+        assertThat(options.get("format"), is("json=a=b"));
+    }
+    
+    /**
+     * Tests that misspelled options are rejected instead of being ignored.
+     */
+    @Test
+    public void testUnknownOptions() {
+        for (String option : new String[] {"--paralel", "--class-timout=30000", "--indx=foo", "--", "--=x"}) {
+            try {
+                SettingDocumentationCli.parseOptions(new String[] {"--parallel", option, "plugin.jar", "Plugin"},
+                        new HashMap<>());
+                fail("expected an IllegalArgumentException for " + option);
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("Unknown option: " + option + ";"));
+            }
+        }
+    }
+    
+    /**
+     * Tests that running with an unknown option fails before anything is scanned.
+     * 
+     * @throws Exception wanted.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRunWithUnknownOption() throws Exception {
+        SettingDocumentationCli.run(new String[] {"--diff=old.index", "--validat=config.properties"});
+    }
+
+}
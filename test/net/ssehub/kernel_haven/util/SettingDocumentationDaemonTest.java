@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link SettingDocumentationDaemon}.
+ */
+public class SettingDocumentationDaemonTest {
+    
+    /**
+     * The folder for the jars created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates a plugin jar with a single settings class. All versions use the same class name, so that stale classes
+     * would show up.
+     * 
+     * @param name The file name of the jar.
+     * @param key The key of the setting.
+     * @return The jar file.
+     * 
+     * @throws IOException If creating the jar fails.
+     */
+    private File createPlugin(String name, String key) throws IOException {
+        return PluginFixtures.createJar(folder.getRoot(), name, Collections.singletonMap(
+                "net.ssehub.test_daemon.Settings", "package net.ssehub.test_daemon;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class Settings {\n"
+                + "    public static final Setting<String> SETTING = new Setting<>(\"" + key + "\",\n"
+                + "            Setting.Type.STRING, false, null, \"A setting.\");\n"
+                + "}\n"));
+    }
+    
+    /**
+     * Creates a generator with isolated class loaders and statistics.
+     * 
+     * @return The generator.
+     */
+    private static SettingDocumentationGenerator createGenerator() {
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        generator.setIsolatedClassLoaders(SettingDocumentationDaemonTest.class.getClassLoader());
+        generator.setStatistics(new ScanStatistics());
+        return generator;
+    }
+    
+    /**
+     * Counts how often a string appears in a text.
+     * 
+     * @param text The text to search in.
+     * @param str The string to count.
+     * @return The number of occurrences.
+     */
+    private static int count(String text, String str) {
+        int result = 0;
+        for (int i = text.indexOf(str); i != -1; i = text.indexOf(str, i + 1)) {
+            result++;
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that a rescan loads the new version of a changed jar, that the statistics keep one section per location
+     * and that the report file is rewritten.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testRescanLoadsChangedJar() throws IOException {
+        File plugin = createPlugin("plugin.jar", "daemon.first");
+        File report = new File(folder.getRoot(), "report.json");
+        SettingDocumentationGenerator generator = createGenerator();
+        
+        try (SettingDocumentationDaemon daemon = new SettingDocumentationDaemon(generator, Arrays.asList(plugin),
+                Arrays.asList("Plugin"))) {
+            daemon.setReportFile(report);
+            daemon.start(1);
+            assertThat(daemon.getSettingText(), containsString("daemon.first ="));
+            assertThat(report.isFile(), is(true));
+            
+            File newVersion = createPlugin("new_version.jar", "daemon.second");
+            Files.move(newVersion.toPath(), plugin.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            daemon.rescanAll();
+            daemon.rescanAll();
+            
+            assertThat(daemon.getSettingText(), containsString("daemon.second ="));
+            assertThat(daemon.getSettingText(), not(containsString("daemon.first")));
+        }
+        
+        StringWriter json = new StringWriter();
+        generator.getStatistics().writeJson(json);
+        assertThat(count(json.toString(), "{\"name\": \"Plugin\""), is(1));
+        
+        String written = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertThat(count(written, "{\"name\": \"Plugin\""), is(1));
+        assertThat(written, containsString("\"settingsFound\": 1"));
+    }
+    
+    /**
+     * Tests that a jar that can't be read keeps the settings of the previous scan.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testBrokenJarKeepsPreviousSettings() throws IOException {
+        File plugin = createPlugin("plugin.jar", "daemon.first");
+        
+        try (SettingDocumentationDaemon daemon = new SettingDocumentationDaemon(createGenerator(),
+                Arrays.asList(plugin), Arrays.asList("Plugin"))) {
+            daemon.start(1);
+            
+            Files.write(plugin.toPath(), "not a jar".getBytes(StandardCharsets.UTF_8));
+            daemon.rescanAll();
+            
+            assertThat(daemon.getSettingText(), containsString("daemon.first ="));
+        }
+    }
+    
+    /**
+     * Tests that the daemon refuses a generator without isolated class loaders, which could not load changed classes
+     * again.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiresIsolatedClassLoaders() {
+        new SettingDocumentationDaemon(new SettingDocumentationGenerator(), Collections.<File>emptyList(),
+                Collections.<String>emptyList());
+    }
+    
+}
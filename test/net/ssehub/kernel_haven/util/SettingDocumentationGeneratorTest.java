@@ -0,0 +1,559 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Tests the {@link SettingDocumentationGenerator}.
+ */
+public class SettingDocumentationGeneratorTest {
+    
+    /**
+     * The folder for the jars created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates a library jar that the plugins of {@link #createPlugin(File, int)} depend on. It declares a setting
+     * itself, too.
+     * 
+     * @return The library jar.
+     * 
+     * @throws IOException If creating the jar fails.
+     */
+    private File createLibrary() throws IOException {
+        Map<String, String> sources = new HashMap<>();
+        sources.put("net.ssehub.test_utils.Defaults", "package net.ssehub.test_utils;\n"
+                + "public class Defaults {\n"
+                + "    public static final String PREFIX = new String(\"lib\");\n"
+                + "}\n");
+        sources.put("net.ssehub.test_utils.UtilSettings", "package net.ssehub.test_utils;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class UtilSettings {\n"
+                + "    public static final Setting<String> UTIL = new Setting<>(\"utils.prefix\",\n"
+                + "            Setting.Type.STRING, false, Defaults.PREFIX, \"The prefix.\");\n"
+                + "}\n");
+        return PluginFixtures.createJar(folder.getRoot(), "utils.jar", sources);
+    }
+    
+    /**
+     * Creates a plugin jar. Every plugin has a class with the same name (<code>net.ssehub.test_shared.Common</code>)
+     * but a different setting, and uses a constant of the library in a default value.
+     * 
+     * @param library The library jar created by {@link #createLibrary()}.
+     * @param number The number of the plugin.
+     * @return The plugin jar.
+     * 
+     * @throws IOException If creating the jar fails.
+     */
+    private File createPlugin(File library, int number) throws IOException {
+        String name = "plugin" + number;
+        Map<String, String> sources = new HashMap<>();
+        sources.put("net.ssehub.test_shared.Common", "package net.ssehub.test_shared;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class Common {\n"
+                + "    public static final Setting<String> COMMON = new Setting<>(\"" + name + ".common\",\n"
+                + "            Setting.Type.STRING, true, null, \"Common setting of " + name + ".\");\n"
+                + "}\n");
+        sources.put("net.ssehub.test_" + name + ".Settings", "package net.ssehub.test_" + name + ";\n"
+                + "import net.ssehub.kernel_haven.config.EnumSetting;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "import net.ssehub.test_utils.Defaults;\n"
+                + "public class Settings {\n"
+                + "    public enum Mode { FAST, SLOW }\n"
+                + "    public static final Setting<String> PATH = new Setting<>(\"" + name + ".path\",\n"
+                + "            Setting.Type.PATH, false, Defaults.PREFIX + \"/" + name + "\", \"A path.\");\n"
+                + "    public static final EnumSetting<Mode> MODE = new EnumSetting<>(\"" + name + ".mode\",\n"
+                + "            Mode.class, false, Mode.SLOW, \"The mode.\");\n"
+                + "}\n");
+        return PluginFixtures.createJar(folder.getRoot(), name + ".jar", sources, library);
+    }
+    
+    /**
+     * Scans the given locations with isolated class loaders and renders the found sections.
+     * 
+     * @param locations The jars to scan.
+     * @param library The library jar that the scanned jars depend on.
+     * @param numThreads The number of threads to scan with.
+     * @return The documentation text of all sections.
+     * 
+     * @throws IOException If scanning fails.
+     */
+    private static String scanIsolated(List<File> locations, File library, int numThreads) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (File location : locations) {
+            names.add(location.getName());
+        }
+        
+        StringBuilder result = new StringBuilder();
+        ClassLoader shared = SettingDocumentationGeneratorTest.class.getClassLoader();
+        try (URLClassLoader libraries = new URLClassLoader(new URL[] {library.toURI().toURL()}, shared)) {
+            SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+            generator.setIsolatedClassLoaders(libraries);
+            List<List<SettingInfo>> sections = generator.scanSections(locations, names, numThreads);
+            for (int i = 0; i < sections.size(); i++) {
+                generator.writeSection(result, names.get(i), sections.get(i));
+            }
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Tests that scanning concurrently finds exactly the same settings as scanning one jar after another, including
+     * classes with the same name in different jars and a library that is scanned, too.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testConcurrentScanEqualsSequential() throws IOException {
+        File library = createLibrary();
+        List<File> locations = new ArrayList<>();
+        locations.add(library);
+        for (int i = 0; i < 6; i++) {
+            locations.add(createPlugin(library, i));
+        }
+        
+        String sequential = scanIsolated(locations, library, 1);
+        String concurrent = scanIsolated(locations, library, 4);
+        
+        assertThat(concurrent, is(sequential));
+        assertThat(sequential, containsString("# Default value: lib\nutils.prefix =\n"));
+        for (int i = 0; i < 6; i++) {
+            assertThat(sequential, containsString("# Default value: lib/plugin" + i + "\nplugin" + i + ".path =\n"));
+            assertThat(sequential, containsString("# Mandatory: Yes\nplugin" + i + ".common =\n"));
+        }
+    }
+    
+    /**
+     * Tests that writing the sections while scanning results in exactly the same bytes as scanning all locations
+     * first and then generating the text, including a section added before and an empty location in between.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testPipelinedOutputEqualsBuffered() throws IOException {
+        File library = createLibrary();
+        File empty = PluginFixtures.createJar(folder.getRoot(), "empty.jar", Collections.singletonMap(
+                "net.ssehub.test_empty.Nothing", "package net.ssehub.test_empty;\npublic class Nothing {}\n"));
+        List<File> locations = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            locations.add(createPlugin(library, i));
+            names.add("Plugin " + i);
+        }
+        locations.add(2, empty);
+        names.add(2, "Empty");
+        List<SettingInfo> before = Collections.singletonList(
+                new SettingInfo("before", Type.STRING, null, "x", false, "Added before scanning.", null));
+        
+        ClassLoader shared = SettingDocumentationGeneratorTest.class.getClassLoader();
+        try (URLClassLoader libraries = new URLClassLoader(new URL[] {library.toURI().toURL()}, shared)) {
+            SettingDocumentationGenerator buffered = new SettingDocumentationGenerator();
+            buffered.setIsolatedClassLoaders(libraries);
+            buffered.addSection("Before", before);
+            buffered.findSettingsInAll(locations, names, 3);
+            
+            SettingDocumentationGenerator pipelined = new SettingDocumentationGenerator();
+            pipelined.setIsolatedClassLoaders(libraries);
+            pipelined.addSection("Before", before);
+            StringWriter out = new StringWriter();
+            pipelined.generateSettingText(locations, names, 3, out);
+            
+            String expected = buffered.generateSettingText();
+            assertThat(out.toString(), is(expected));
+            assertThat(pipelined.generateSettingText(), is(expected));
+            assertThat(expected, containsString("# Default value: x\nbefore =\n\n##"));
+        }
+    }
+    
+    /**
+     * Tests that a plugin whose settings are initialized with a class of another plugin is documented when scanned
+     * with the options of the build script (parallel, isolated with the utility plugins as libraries, class timeout,
+     * cache and discovery), although the other plugin is not one of the libraries.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testPluginDependingOnOtherPlugin() throws IOException {
+        File build = folder.newFolder("build");
+        File jars = folder.newFolder("kh_jars");
+        
+        File cnfUtils = PluginFixtures.createJar(build, "CnfUtils.jar", Collections.singletonMap(
+                "net.ssehub.test_cnf.CnfSettings", "package net.ssehub.test_cnf;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class CnfSettings {\n"
+                + "    public static final Setting<String> SOLVER = new Setting<>(\"cnf.solver\",\n"
+                + "            Setting.Type.STRING, false, \"sat4j\", \"The solver.\");\n"
+                + "}\n"));
+        
+        Map<String, String> feSources = new HashMap<>();
+        feSources.put("net.ssehub.test_fe.FeDefaults", "package net.ssehub.test_fe;\n"
+                + "public class FeDefaults {\n"
+                + "    public static String prefix() {\n"
+                + "        return new String(\"fe\");\n"
+                + "    }\n"
+                + "}\n");
+        feSources.put("net.ssehub.test_fe.FeSettings", "package net.ssehub.test_fe;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "public class FeSettings {\n"
+                + "    public static final Setting<String> MODE = new Setting<>(\"fe.mode\",\n"
+                + "            Setting.Type.STRING, false, FeDefaults.prefix(), \"The mode.\");\n"
+                + "}\n");
+        File featureEffect = PluginFixtures.createJar(build, "FeatureEffectAnalysis.jar", feSources);
+        
+        File mismatch = PluginFixtures.createJar(build, "ConfigurationMismatchAnalysis.jar", Collections.singletonMap(
+                "net.ssehub.test_cm.CmSettings", "package net.ssehub.test_cm;\n"
+                + "import net.ssehub.kernel_haven.config.Setting;\n"
+                + "import net.ssehub.test_fe.FeDefaults;\n"
+                + "public class CmSettings {\n"
+                + "    public static final Setting<String> PREFIX = new Setting<>(\"cm.prefix\",\n"
+                + "            Setting.Type.STRING, false, FeDefaults.prefix() + \"/cm\", \"The prefix.\");\n"
+                + "}\n"), featureEffect);
+        
+        for (File jar : Arrays.asList(cnfUtils, featureEffect, mismatch)) {
+            Files.move(jar.toPath(), new File(jars, jar.getName()).toPath());
+        }
+        
+        String[] args = {"--parallel", "--isolated=" + new File(jars, "CnfUtils.jar").getPath(),
+            "--class-timeout=30000", "--cache=" + new File(build, "cache").getPath(), "--discover=" + jars.getPath()};
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        int exitCode;
+        try {
+            System.setOut(new PrintStream(out, true, "UTF-8"));
+            System.setErr(new PrintStream(err, true, "UTF-8"));
+            exitCode = SettingDocumentationCli.run(args);
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        
+        assertThat(exitCode, is(0));
+        assertThat(new String(err.toByteArray(), StandardCharsets.UTF_8), is(""));
+        assertThat(output, containsString("# Default value: sat4j\ncnf.solver =\n"));
+        assertThat(output, containsString("# Default value: fe\nfe.mode =\n"));
+        assertThat(output, containsString("# ConfigurationMismatchAnalysis #\n"));
+        assertThat(output, containsString("# Default value: fe/cm\ncm.prefix =\n"));
+    }
+    
+    /**
+     * Tests that a class bundled in several jars is loaded and initialized only once when the jars are scanned
+     * concurrently, even if its static initializer is slow, and that its settings are in the section of every jar.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSharedClassLoadedOnceWhenScanningConcurrently() throws IOException {
+        String property = "SettingDocumentationGeneratorTest.initializations";
+        System.clearProperty(property);
+        
+        List<File> locations = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            locations.add(PluginFixtures.createJar(folder.getRoot(), "bundling" + i + ".jar", Collections.singletonMap(
+                    "net.ssehub.test_bundled.Bundled", "package net.ssehub.test_bundled;\n"
+                    + "import net.ssehub.kernel_haven.config.Setting;\n"
+                    + "public class Bundled {\n"
+                    + "    public static final Setting<String> BUNDLED = new Setting<>(initialize(),\n"
+                    + "            Setting.Type.STRING, false, null, \"A bundled setting.\");\n"
+                    + "    private static String initialize() {\n"
+                    + "        synchronized (System.class) {\n"
+                    + "            System.setProperty(\"" + property + "\",\n"
+                    + "                    String.valueOf(Integer.getInteger(\"" + property + "\", 0) + 1));\n"
+                    + "        }\n"
+                    + "        try {\n"
+                    + "            Thread.sleep(300);\n"
+                    + "        } catch (InterruptedException e) {\n"
+                    + "            Thread.currentThread().interrupt();\n"
+                    + "        }\n"
+                    + "        return \"bundled.key\";\n"
+                    + "    }\n"
+                    + "}\n")));
+            names.add("Plugin " + i);
+        }
+        
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        generator.setIsolatedClassLoaders(getClass().getClassLoader());
+        generator.setClassTimeout(30000);
+        List<List<SettingInfo>> sections = generator.scanSections(locations, names, 4);
+        
+        assertThat(Integer.getInteger(property), is(1));
+        for (List<SettingInfo> section : sections) {
+            assertThat(section.size(), is(1));
+            assertThat(section.get(0).getKey(), is("bundled.key"));
+        }
+    }
+    
+    /**
+     * The line wrapping of the original generator, as a reference for {@link #testDescriptionWrapping()}.
+     * 
+     * @param description The text to split up.
+     * @return The list of resulting lines.
+     */
+    private static List<String> referenceSplit(String description) {
+        List<String> lines = new ArrayList<>();
+        
+        int currentLength = 0;
+        int previousEnd = -1;
+        for (int i = 0; i < description.length(); i++) {
+            if (description.charAt(i) == '\n') {
+                lines.add(description.substring(previousEnd + 1, i));
+                previousEnd = i;
+                currentLength = 0;
+            }
+            currentLength++;
+            if (currentLength > 78) {
+                int j = i;
+                for (; j > previousEnd + 1; j--) {
+                    char c = description.charAt(j);
+                    if (c == ' ' || c == '\n') {
+                        break;
+                    }
+                }
+                if (j == previousEnd + 1) {
+                    for (; j < description.length(); j++) {
+                        char c = description.charAt(j);
+                        if (c == ' ' || c == '\n') {
+                            break;
+                        }
+                    }
+                }
+                lines.add(description.substring(previousEnd + 1, j));
+                previousEnd = j;
+                currentLength = 0;
+                i = j;
+            }
+        }
+        if (previousEnd + 1 < description.length()) {
+            lines.add(description.substring(previousEnd + 1));
+        }
+        
+        return lines;
+    }
+    
+    /**
+     * Creates a string of the given length that consists of a single repeated character.
+     * 
+     * @param c The character.
+     * @param length The length of the string.
+     * @return The string.
+     */
+    private static String repeat(char c, int length) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            result.append(c);
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Tests that {@link SettingDocumentationGenerator#splitDescription(String)} and
+     * {@link SettingDocumentationGenerator#writeDescription(Appendable, String)} wrap exactly like the original
+     * generator, including words longer than 78 characters, runs of spaces and embedded line breaks.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testDescriptionWrapping() throws IOException {
+        List<String> descriptions = new ArrayList<>(Arrays.asList(
+                "",
+                "short",
+                "\n",
+                "a\n\nb\n",
+                repeat('x', 78),
+                repeat('x', 79),
+                repeat('x', 200) + " after a long word",
+                "before a long word " + repeat('x', 100) + " " + repeat('y', 90),
+                repeat('w', 77) + "  " + repeat('v', 10),
+                "many    spaces" + repeat(' ', 100) + "between" + repeat(' ', 78) + "words",
+                "line\n" + repeat('z', 85) + "\n" + repeat('a', 40) + " " + repeat('b', 40) + "\n\n end"));
+        
+        Random random = new Random(42);
+        char[] alphabet = {'a', 'b', ' ', ' ', '\n'};
+        for (int i = 0; i < 200; i++) {
+            StringBuilder description = new StringBuilder();
+            int length = random.nextInt(400);
+            for (int j = 0; j < length; j++) {
+                description.append(random.nextInt(8) == 0 ? alphabet[random.nextInt(alphabet.length)] : 'c');
+            }
+            descriptions.add(description.toString());
+        }
+        
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        for (String description : descriptions) {
+            List<String> expected = referenceSplit(description);
+            assertThat(description, generator.splitDescription(description), is(expected));
+            
+            StringBuilder expectedText = new StringBuilder();
+            for (String line : expected) {
+                expectedText.append("# ").append(line).append('\n');
+            }
+            StringBuilder text = new StringBuilder();
+            generator.writeDescription(text, description);
+            assertThat(description, text.toString(), is(expectedText.toString()));
+            
+            StringWriter writer = new StringWriter();
+            generator.writeDescription(writer, description);
+            assertThat(description, writer.toString(), is(expectedText.toString()));
+        }
+    }
+    
+    /**
+     * Tests that a location without any settings results in an empty section, which is not rendered.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testEmptyLocation() throws IOException {
+        File library = createLibrary();
+        File empty = PluginFixtures.createJar(folder.getRoot(), "empty.jar", Collections.singletonMap(
+                "net.ssehub.test_empty.Nothing", "package net.ssehub.test_empty;\npublic class Nothing {}\n"));
+        
+        assertThat(scanIsolated(Collections.singletonList(empty), library, 1), is(""));
+    }
+    
+    /**
+     * Tests that an empty generator writes only the file header, ending with the timestamp line, like the original
+     * generator did.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testGoldenOutputWithoutSections() throws IOException {
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        generator.addSection("Empty", Collections.emptyList());
+        
+        String output = generator.generateSettingText();
+        
+        assertThat(output.startsWith("# Configuration file documentation for KernelHaven\n#\n"), is(true));
+        assertThat(output.endsWith("#\n# This was automatically generated on: " + Timestamp.INSTANCE.getTimestamp()
+                + "\n"), is(true));
+        assertThat(output.split("\n", -1).length, is(63));
+    }
+    
+    /**
+     * Tests that the streamed output matches the output of the original generator byte by byte, including empty
+     * sections (not rendered), enum settings without values, empty defaults and escaped backslashes.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testGoldenOutput() throws IOException {
+        SettingDocumentationGenerator empty = new SettingDocumentationGenerator();
+        String fileHeader = empty.generateSettingText();
+        
+        SettingDocumentationGenerator generator = new SettingDocumentationGenerator();
+        generator.addSection("Main Infrastructure", Arrays.asList(
+                new SettingInfo("main.path", Type.PATH, null, "C:\\dir", false, "A path with a\nline break.", null),
+                new SettingInfo("main.mandatory", Type.STRING, null, null, true, "Mandatory.", null),
+                new SettingInfo("main.empty", Type.STRING, null, "", false, "Empty default.", null)));
+        generator.addSection("Empty", Collections.emptyList());
+        generator.addSection("Plugin", Arrays.asList(
+                new SettingInfo("plugin.mode", Type.ENUM, null, "FAST", false, "The mode of this plugin. This "
+                        + "description is long enough that it has to be wrapped onto a second line.",
+                        Arrays.asList("FAST", "SLOW")),
+                new SettingInfo("plugin.none", Type.ENUM, null, null, false, "No values.",
+                        Collections.emptyList()),
+                new SettingInfo("plugin.list", Type.LIST, Type.INTEGER, null, false, "", null)));
+        
+        String expected = fileHeader
+                + "\n"
+                + "#######################\n"
+                + "# Main Infrastructure #\n"
+                + "#######################\n"
+                + "\n"
+                + "# A path with a\n"
+                + "# line break.\n"
+                + "#\n"
+                + "# Type: Path\n"
+                + "# Default value: C:\\\\dir\n"
+                + "main.path =\n"
+                + "\n"
+                + "# Mandatory.\n"
+                + "#\n"
+                + "# Type: String\n"
+                + "# Mandatory: Yes\n"
+                + "main.mandatory =\n"
+                + "\n"
+                + "# Empty default.\n"
+                + "#\n"
+                + "# Type: String\n"
+                + "# Default value: (empty string)\n"
+                + "main.empty =\n"
+                + "\n"
+                + "##########\n"
+                + "# Plugin #\n"
+                + "##########\n"
+                + "\n"
+                + "# The mode of this plugin. This description is long enough that it has to be\n"
+                + "# wrapped onto a second line.\n"
+                + "#\n"
+                + "# Type: Enum\n"
+                + "# Possible values: FAST, SLOW\n"
+                + "# Default value: FAST\n"
+                + "plugin.mode =\n"
+                + "\n"
+                + "# No values.\n"
+                + "#\n"
+                + "# Type: Enum\n"
+                + "# Possible values\n"
+                + "# Mandatory: No\n"
+                + "plugin.none =\n"
+                + "\n"
+                + "#\n"
+                + "# Type: List of Integers\n"
+                + "# Mandatory: No\n"
+                + "plugin.list =\n";
+        
+        assertThat(generator.generateSettingText(), is(expected));
+        
+        StringWriter writer = new StringWriter();
+        generator.generateSettingText(writer);
+        assertThat(writer.toString(), is(expected));
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Tests the {@link SettingIndex} and the {@link SettingIndexWriter}.
+ */
+public class SettingIndexTest {
+    
+    /**
+     * The folder for the index files created by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Creates a catalog with two sections. The key <code>core.name</code> is defined in both sections.
+     * 
+     * @return The catalog.
+     */
+    private static SettingCatalog createCatalog() {
+        List<SettingInfo> core = Arrays.asList(
+                new SettingInfo("core.name", Type.STRING, null, null, true, "The name.", null),
+                new SettingInfo("core.mode", Type.ENUM, null, "FAST", false, "The mode.",
+                        Arrays.asList("FAST", "SLOW")),
+                new SettingInfo("core.list", Type.LIST, Type.INTEGER, "", false,
+                        "Some numbers.\nAnd \u00FCml\u00E4uts.", null));
+        List<SettingInfo> plugin = Arrays.asList(
+                new SettingInfo("plugin.dir", Type.DIRECTORY, null, ".", false, "A directory.", null),
+                new SettingInfo("core.name", Type.INTEGER, null, "1", false, "Redefined.", null));
+        
+        return new SettingCatalog(Arrays.asList("core", "plugin"), Arrays.asList(core, plugin));
+    }
+    
+    /**
+     * Writes the given catalog to an index file and opens it.
+     * 
+     * @param catalog The catalog to write.
+     * @return The opened index.
+     * 
+     * @throws IOException unwanted.
+     */
+    private SettingIndex writeAndOpen(SettingCatalog catalog) throws IOException {
+        File file = new File(folder.getRoot(), "settings.index");
+        SettingIndexWriter.write(catalog, file);
+        return SettingIndex.open(file);
+    }
+    
+    /**
+     * Writes the test catalog to a file and returns the bytes of the file.
+     * 
+     * @return The bytes of the index file.
+     * 
+     * @throws IOException unwanted.
+     */
+    private byte[] writeBytes() throws IOException {
+        File file = new File(folder.getRoot(), "settings.index");
+        SettingIndexWriter.write(createCatalog(), file);
+        return Files.readAllBytes(file.toPath());
+    }
+    
+    /**
+     * Tests that all properties of the settings are read back as written.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        SettingIndex index = writeAndOpen(createCatalog());
+        
+        SettingIndex.Entry name = index.get("core.name");
+        assertThat(name.getKey(), is("core.name"));
+        assertThat(name.getSection(), is("core"));
+        assertThat(name.getType(), is("STRING"));
+        assertThat(name.getNestedType(), nullValue());
+        assertThat(name.getDefaultValue(), nullValue());
+        assertThat(name.isMandatory(), is(true));
+        assertThat(name.getDescription(), is("The name."));
+        assertThat(name.getEnumValues(), nullValue());
+        
+        SettingIndex.Entry mode = index.get("core.mode");
+        assertThat(mode.getDefaultValue(), is("FAST"));
+        assertThat(mode.isMandatory(), is(false));
+        assertThat(mode.getEnumValues(), is(Arrays.asList("FAST", "SLOW")));
+        
+        SettingIndex.Entry list = index.get("core.list");
+        assertThat(list.getType(), is("LIST"));
+        assertThat(list.getNestedType(), is("INTEGER"));
+        assertThat(list.getDefaultValue(), is(""));
+        assertThat(list.getDescription(), is("Some numbers.\nAnd \u00FCml\u00E4uts."));
+        
+        assertThat(index.get("plugin.dir").getSection(), is("plugin"));
+        assertThat(index.get("unknown"), nullValue());
+    }
+    
+    /**
+     * Tests that a key defined in several sections is stored once, with the definition of the first section, and
+     * that the entries are in section order.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testDuplicateKeysAndOrder() throws IOException {
+        SettingIndex index = writeAndOpen(createCatalog());
+        
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            keys.add(index.getEntry(i).getKey());
+        }
+        
+        assertThat(keys, is(Arrays.asList("core.name", "core.mode", "core.list", "plugin.dir")));
+        assertThat(index.get("core.name").getDescription(), is("The name."));
+    }
+    
+    /**
+     * Tests that lookups work for many keys, i.e. with collisions in the hash table.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testManyKeys() throws IOException {
+        List<SettingInfo> settings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            settings.add(new SettingInfo("key." + i, Type.STRING, null, null, false, "Setting " + i, null));
+        }
+        SettingIndex index = writeAndOpen(new SettingCatalog(Arrays.asList("many"), Arrays.asList(settings)));
+        
+        assertThat(index.size(), is(1000));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(index.get("key." + i).getDescription(), is("Setting " + i));
+        }
+        assertThat(index.get("key.1000"), nullValue());
+    }
+    
+    /**
+     * Tests that the in-memory index is equal to the written index.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testToIndex() throws IOException {
+        SettingIndex index = SettingIndexWriter.toIndex(createCatalog());
+        
+        assertThat(index.size(), is(4));
+        assertThat(index.get("core.mode").getEnumValues(), is(Arrays.asList("FAST", "SLOW")));
+    }
+    
+    /**
+     * Tests that an out of range position is rejected.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetEntryOutOfRange() throws IOException {
+        writeAndOpen(createCatalog()).getEntry(4);
+    }
+    
+    /**
+     * Tests that a file with a wrong magic number is rejected.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testWrongMagic() throws IOException {
+        byte[] bytes = writeBytes();
+        bytes[0] = 'X';
+        
+        new SettingIndex(ByteBuffer.wrap(bytes));
+    }
+    
+    /**
+     * Tests that a file with an unsupported version is rejected.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testWrongVersion() throws IOException {
+        byte[] bytes = writeBytes();
+        bytes[7] = (byte) (SettingIndex.VERSION + 1);
+        
+        new SettingIndex(ByteBuffer.wrap(bytes));
+    }
+    
+    /**
+     * Tests that a truncated file can be opened, but reading the entries whose strings are cut off fails instead of
+     * returning garbage.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test(expected = UncheckedIOException.class)
+    public void testTruncated() throws IOException {
+        byte[] bytes = writeBytes();
+        
+        SettingIndex index = new SettingIndex(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 10)));
+        
+        for (int i = 0; i < index.size(); i++) {
+            index.getEntry(i);
+        }
+    }
+    
+    /**
+     * Tests that a header whose hash table does not fit into the file is rejected when it is opened.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testTableOutOfBounds() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(writeBytes());
+        buffer.putInt(12, Integer.highestOneBit(buffer.limit()));
+        
+        new SettingIndex(buffer);
+    }
+    
+    /**
+     * Tests that an entry offset pointing outside of the file is only rejected when that entry is accessed, so that
+     * opening does not check every entry.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testEntryOffsetOutOfBounds() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(writeBytes());
+        int tableSize = buffer.getInt(12);
+        // the first entry of the order, directly after the 16 byte header and the hash table
+        buffer.putInt(16 + 4 * tableSize, buffer.limit() - 4);
+        
+        SettingIndex index = new SettingIndex(buffer);
+        
+        assertThat(index.getEntry(1).getKey(), is("core.mode"));
+        assertThat(index.get("plugin.dir").getKey(), is("plugin.dir"));
+        try {
+            index.getEntry(0);
+            fail("expected an UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            assertThat(e.getCause().getMessage(), containsString("Corrupt setting index"));
+        }
+    }
+    
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+
+/**
+ * Tests the {@link SettingRenderer}s with texts that contain special characters of the output formats.
+ */
+public class SettingRendererTest {
+    
+    /**
+     * Creates a catalog with special characters in the section names, descriptions and default values, and an enum
+     * setting that does not specify its values.
+     * 
+     * @return The catalog.
+     */
+    private static SettingCatalog createCatalog() {
+        return new SettingCatalog(Arrays.asList("Section <1> & | `x`", "Multi\nline"), Arrays.asList(
+                Arrays.asList(new SettingInfo("a.key", Type.STRING, null, "a`b|c<d>&\"e\"", false,
+                        "Use <b> & \"quotes\" | pipes `code`\nsecond line\n\nthird", null)),
+                Arrays.asList(new SettingInfo("b.enum", Type.ENUM, null, null, true, "No values.", null))));
+    }
+    
+    /**
+     * Renders the catalog of {@link #createCatalog()} with the given renderer.
+     * 
+     * @param renderer The renderer to use.
+     * @return The rendered text.
+     * 
+     * @throws IOException unwanted.
+     */
+    private static String render(SettingRenderer renderer) throws IOException {
+        StringBuilder result = new StringBuilder();
+        renderer.render(createCatalog(), result);
+        return result.toString();
+    }
+    
+    /**
+     * Tests that the {@link MarkdownRenderer} escapes special characters and keeps line breaks out of headings and
+     * code spans.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testMarkdownEscaping() throws IOException {
+        String markdown = render(new MarkdownRenderer());
+        
+        assertThat(markdown, containsString("\n## Section \\<1\\> \\& \\| \\`x\\`\n"));
+        assertThat(markdown, containsString("\n### `a.key`\n\n"
+                + "Use \\<b\\> \\& \"quotes\" \\| pipes \\`code\\`\n\n"
+                + "second line\n\n"
+                + "third\n\n"
+                + "* Type: String\n"
+                + "* Default value: `` a`b|c<d>&\"e\" ``\n"));
+        assertThat(markdown, containsString("\n## Multi line\n"));
+        assertThat(markdown, containsString("* Type: Enum\n* Possible values\n* Mandatory: Yes\n"));
+    }
+    
+    /**
+     * Tests that the {@link MarkdownRenderer} escapes list markers and thematic breaks at the start of description
+     * lines, but not inside of them.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testMarkdownLineStartEscaping() throws IOException {
+        SettingCatalog catalog = new SettingCatalog(Arrays.asList("1. Section"), Arrays.asList(Arrays.asList(
+                new SettingInfo("list.key", Type.STRING, null, null, false,
+                        "- dash\n+ plus\n1. first\n  10) tenth\n---\n2019 was a year\na - b + c 3. d", null))));
+        StringBuilder markdown = new StringBuilder();
+        new MarkdownRenderer().render(catalog, markdown);
+        
+        assertThat(markdown.toString(), containsString("\n## 1\\. Section\n"));
+        assertThat(markdown.toString(), containsString("\n### `list.key`\n\n"
+                + "\\- dash\n\n"
+                + "\\+ plus\n\n"
+                + "1\\. first\n\n"
+                + "  10\\) tenth\n\n"
+                + "\\---\n\n"
+                + "2019 was a year\n\n"
+                + "a - b + c 3. d\n\n"
+                + "* Type: String\n"));
+    }
+    
+    /**
+     * Tests that the {@link HtmlRenderer} escapes special characters and writes each line of a description as its
+     * own paragraph.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testHtmlEscaping() throws IOException {
+        String html = render(new HtmlRenderer());
+        
+        assertThat(html, containsString("<h2 id=\"section-0\">Section &lt;1&gt; &amp; | `x`</h2>\n"));
+        assertThat(html, containsString("<dt id=\"a.key\"><code>a.key</code></dt>\n<dd>\n"
+                + "<p>Use &lt;b&gt; &amp; &quot;quotes&quot; | pipes `code`</p>\n"
+                + "<p>second line</p>\n"
+                + "<p>third</p>\n"
+                + "<ul>\n<li>Type: String</li>\n"
+                + "<li>Default value: <code>a`b|c&lt;d&gt;&amp;&quot;e&quot;</code></li>\n"));
+        assertThat(html, containsString("<li>Type: Enum</li>\n<li>Possible values</li>\n<li>Mandatory: Yes</li>\n"));
+        assertThat(html, not(containsString("<b>")));
+    }
+    
+    /**
+     * Tests that the {@link JsonRenderer} escapes quotes and line breaks, and writes an empty array for an enum
+     * setting that does not specify its values.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testJsonEscaping() throws IOException {
+        String json = render(new JsonRenderer());
+        
+        assertThat(json, containsString("{\"name\": \"Section <1> & | `x`\", \"settings\": [\n"));
+        assertThat(json, containsString("{\"key\": \"a.key\", \"type\": \"STRING\", \"typeDescription\": \"String\", "
+                + "\"defaultValue\": \"a`b|c<d>&\\\"e\\\"\", \"mandatory\": false, "
+                + "\"description\": \"Use <b> & \\\"quotes\\\" | pipes `code`\\nsecond line\\n\\nthird\"}"));
+        assertThat(json, containsString("{\"name\": \"Multi\\nline\", \"settings\": [\n"));
+        assertThat(json, containsString("{\"key\": \"b.enum\", \"type\": \"ENUM\", \"typeDescription\": \"Enum\", "
+                + "\"enumValues\": [], \"defaultValue\": null, \"mandatory\": true, \"description\": \"No values.\"}"));
+    }
+    
+    /**
+     * Tests that the {@link PropertiesRenderer} documents an enum setting that does not specify its values.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testPropertiesWithoutEnumValues() throws IOException {
+        String properties = render(new PropertiesRenderer(new SettingDocumentationGenerator()));
+        
+        assertThat(properties, containsString("# No values.\n#\n# Type: Enum\n# Possible values\n# Mandatory: Yes\n"
+                + "b.enum =\n"));
+        assertThat(properties.endsWith("b.enum =\n"), is(true));
+    }
+
+}
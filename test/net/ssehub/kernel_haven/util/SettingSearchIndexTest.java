@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.config.Setting.Type;
+import net.ssehub.kernel_haven.util.SettingSearchIndex.Hit;
+
+/**
+ * Tests the {@link SettingSearchIndex}.
+ */
+public class SettingSearchIndexTest {
+    
+    /**
+     * Creates a catalog with a few settings in two sections.
+     * 
+     * @return The catalog.
+     */
+    private static SettingCatalog createCatalog() {
+        List<SettingInfo> extractor = Arrays.asList(
+                new SettingInfo("code.extractor.srcml_timeout", Type.INTEGER, null, "10", false,
+                        "Timeout for srcML in seconds.", null),
+                new SettingInfo("code.extractor.threads", Type.INTEGER, null, "1", false,
+                        "Number of threads for the extractor.", null));
+        List<SettingInfo> other = Arrays.asList(
+                new SettingInfo("analysis.output.dir", Type.DIRECTORY, null, null, true,
+                        "The directory to write the output to. The code model is not written.", null),
+                new SettingInfo("preparation.src_dir", Type.DIRECTORY, null, null, false, "The source directory.",
+                        null));
+        
+        return new SettingCatalog(Arrays.asList("extractor", "other"), Arrays.asList(extractor, other));
+    }
+    
+    /**
+     * Returns the keys of the given hits.
+     * 
+     * @param hits The search results.
+     * @return The keys, in the order of the hits.
+     */
+    private static List<String> keys(List<Hit> hits) {
+        List<String> result = new ArrayList<>();
+        for (Hit hit : hits) {
+            result.add(hit.getKey());
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that keys are split at dots and underscores, and descriptions into lower case words.
+     */
+    @Test
+    public void testTokens() {
+        SettingSearchIndex index = SettingSearchIndex.of(new SettingCatalog(Arrays.asList("section"),
+                Arrays.asList(Arrays.asList(new SettingInfo("a.b_c", Type.STRING, null, null, false, "B, d d.",
+                        null)))));
+        
+        assertThat(index.getNumTokens(), is(4));
+        assertThat(keys(index.search("D", 10)), is(Arrays.asList("a.b_c")));
+    }
+    
+    /**
+     * Tests that settings matching more query terms are ranked first.
+     */
+    @Test
+    public void testMatchedTermsFirst() {
+        SettingSearchIndex index = SettingSearchIndex.of(createCatalog());
+        
+        List<Hit> hits = index.search("threads extractor", 10);
+        
+        assertThat(keys(hits), is(Arrays.asList("code.extractor.threads", "code.extractor.srcml_timeout")));
+        assertThat(hits.get(0).getSection(), is("extractor"));
+        assertThat(hits.get(0).getDescription(), is("Number of threads for the extractor."));
+    }
+    
+    /**
+     * Tests that key segments weigh more than description words, and that ties are broken by the order of the
+     * settings.
+     */
+    @Test
+    public void testKeyBeforeDescription() {
+        SettingSearchIndex index = SettingSearchIndex.of(createCatalog());
+        
+        assertThat(keys(index.search("code", 10)), is(Arrays.asList("code.extractor.srcml_timeout",
+                "code.extractor.threads", "analysis.output.dir")));
+    }
+    
+    /**
+     * Tests that query terms match tokens that start with them, but exact matches rank higher.
+     */
+    @Test
+    public void testPrefix() {
+        SettingSearchIndex index = SettingSearchIndex.of(createCatalog());
+        
+        assertThat(keys(index.search("src", 10)),
+                is(Arrays.asList("preparation.src_dir", "code.extractor.srcml_timeout")));
+        assertThat(keys(index.search("time", 10)), is(Arrays.asList("code.extractor.srcml_timeout")));
+    }
+    
+    /**
+     * Tests that only the best hits are returned, in the same order as without a limit.
+     */
+    @Test
+    public void testMaxHits() {
+        SettingSearchIndex index = SettingSearchIndex.of(createCatalog());
+        List<Hit> all = index.search("the code directory", 10);
+        
+        assertThat(all.size(), is(4));
+        assertThat(keys(index.search("the code directory", 2)), is(keys(all).subList(0, 2)));
+        assertThat(index.search("the code directory", 0), is(Collections.emptyList()));
+    }
+    
+    /**
+     * Tests that queries without matching settings have no hits.
+     */
+    @Test
+    public void testNoMatch() {
+        SettingSearchIndex index = SettingSearchIndex.of(createCatalog());
+        
+        assertThat(index.search("unknown", 10), is(Collections.emptyList()));
+        assertThat(index.search(" ., ", 10), is(Collections.emptyList()));
+    }
+    
+    /**
+     * Tests that an index built from a {@link SettingIndex} finds the same settings as one built from the catalog.
+     */
+    @Test
+    public void testOfSettingIndex() {
+        SettingSearchIndex fromCatalog = SettingSearchIndex.of(createCatalog());
+        SettingSearchIndex fromIndex = SettingSearchIndex.of(SettingIndexWriter.toIndex(createCatalog()));
+        
+        assertThat(fromIndex.getNumTokens(), is(fromCatalog.getNumTokens()));
+        assertThat(keys(fromIndex.search("the code directory", 10)),
+                is(keys(fromCatalog.search("the code directory", 10))));
+    }
+    
+    /**
+     * Tests the output of the interactive query mode.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testAnswerQueries() throws IOException {
+        SettingSearchIndex index = SettingSearchIndex.of(createCatalog());
+        StringWriter out = new StringWriter();
+        
+        index.answerQueries(new BufferedReader(new StringReader("timeout\n\nunknown\n")), out);
+        
+        String[] lines = out.toString().split("\n");
+        assertThat(lines.length, is(4));
+        assertThat(lines[0], is("code.extractor.srcml_timeout (extractor)"));
+        assertThat(lines[1], is("    Timeout for srcML in seconds."));
+        assertThat(lines[2].matches("# 1 hits in [0-9.]+ ms"), is(true));
+        assertThat(lines[3].matches("# 0 hits in [0-9.]+ ms"), is(true));
+    }
+    
+}